@@ -0,0 +1,35 @@
+package com.primeservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the range scan of a single {@link PrimeCalculatorThread}, run on the benchmark thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrimeCalculatorThreadBenchmark {
+
+    @Param({"2", "1000000000", "1000000000000"})
+    private long startRange;
+
+    @Param({"1000000", "10000000"})
+    private long rangeSize;
+
+    @Benchmark
+    public ConcurrentHashMap<Integer, List<Long>> scanRange() {
+        final ConcurrentHashMap<Integer, List<Long>> primeNumbersList = new ConcurrentHashMap<>();
+        new PrimeCalculatorThread(1, startRange, startRange + rangeSize - 1L, primeNumbersList).run();
+        return primeNumbersList;
+    }
+}
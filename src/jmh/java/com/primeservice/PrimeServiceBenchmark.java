@@ -0,0 +1,49 @@
+package com.primeservice;
+
+import com.primeservice.api.PrimeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link MultiThreadedCachedPrimeService#getPrimeNumbers(long)} with the cache on and off, across
+ * thread counts. One service is shared by all the invocations of a trial, so with the cache on every invocation after
+ * the first one is a cache hit. The primes are iterated like a response would be.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrimeServiceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean cacheEnabled;
+
+    @Param({"1", "2", "4", "8"})
+    private int numberOfThreads;
+
+    @Param({"100000", "10000000"})
+    private long maxValue;
+
+    private PrimeService primeService;
+
+    @Setup
+    public void setUp() {
+        primeService = new MultiThreadedCachedPrimeService(cacheEnabled, numberOfThreads);
+    }
+
+    @Benchmark
+    public long getPrimeNumbers() {
+        long sum = 0L;
+        for (long primeNumber : primeService.getPrimeNumbers(maxValue)) {
+            sum += primeNumber;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,59 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeSequence;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the built-in {@link PrimeEngine}s on the same range, which calibrates their cost estimates.
+ * "dense" is the range 2..10^7, "high" 10^6 values from 10^12 and "sparse" 10^4 values from 10^18.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrimeEngineBenchmark {
+
+    @Param({SegmentedSieveEngine.NAME, WheelSieveEngine.NAME, ProbabilisticEngine.NAME})
+    private String engineName;
+
+    @Param({"dense", "high", "sparse"})
+    private String range;
+
+    private PrimeEngine engine;
+
+    private long minValue;
+
+    private long maxValue;
+
+    @Setup
+    public void setUp() {
+        engine = new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(), engineName)
+                .select(null, 0L, 0L);
+        if ("dense".equals(range)) {
+            minValue = 2L;
+            maxValue = 10000000L;
+        } else if ("high".equals(range)) {
+            minValue = 1000000000000L;
+            maxValue = minValue + 1000000L;
+        } else {
+            minValue = 1000000000000000000L;
+            maxValue = minValue + 10000L;
+        }
+        engine.prepare(maxValue);
+    }
+
+    @Benchmark
+    public PrimeSequence getPrimeSequence() {
+        return engine.getPrimeSequence(minValue, maxValue, Deadline.NONE);
+    }
+}
@@ -0,0 +1,53 @@
+package com.primeservice.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link PrimeFactorizer#factorize(long)}.
+ * "random" factorizes random 63-bit numbers, "semiprime" products of two primes of about 31 bits, which is the
+ * hardest case for Pollard-Rho.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PrimeFactorizerBenchmark {
+
+    private static final int INPUTS = 1 << 8;
+
+    @Param({"random", "semiprime"})
+    private String inputs;
+
+    private long[] numbers;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42L);
+        numbers = new long[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            if ("semiprime".equals(inputs)) {
+                numbers[i] = BigInteger.probablePrime(31, random).longValue()
+                        * BigInteger.probablePrime(32, random).longValue();
+            } else {
+                numbers[i] = 1L + (random.nextLong() >>> 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] factorize() {
+        return PrimeFactorizer.factorize(numbers[index++ & (INPUTS - 1)]);
+    }
+}
@@ -0,0 +1,47 @@
+package com.primeservice.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for {@link PrimeNumberUtil#isPrime(long)} across input magnitudes.
+ * Every invocation checks the next one of a fixed set of odd numbers with the given number of bits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PrimeNumberUtilBenchmark {
+
+    private static final int INPUTS = 1 << 10;
+
+    @Param({"10", "20", "32", "48", "63"})
+    private int bits;
+
+    private long[] numbers;
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(bits);
+        numbers = new long[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            //Odd numbers with the highest bit set, so that they are of the given magnitude.
+            numbers[i] = (random.nextLong() >>> (64 - bits)) | (1L << (bits - 1)) | 1L;
+        }
+    }
+
+    @Benchmark
+    public boolean isPrime() {
+        return PrimeNumberUtil.isPrime(numbers[index++ & (INPUTS - 1)]);
+    }
+}
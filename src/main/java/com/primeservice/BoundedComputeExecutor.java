@@ -0,0 +1,149 @@
+package com.primeservice;
+
+import com.primeservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated, bounded executor for the expensive computations of the requests, with admission control.
+ * Every request is admitted with an estimate of its work. A request is rejected with a
+ * {@link TooManyRequestsException} when the work of the admitted requests, which are queued or running, would go
+ * over the budget. Requests without any work never wait for the executor.
+ */
+public class BoundedComputeExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedComputeExecutor.class);
+
+    /**
+     * Values sieved per second which are assumed until the first request has been measured.
+     */
+    private static final double INITIAL_VALUES_PER_SECOND = 1e8;
+
+    private static final long MAX_RETRY_AFTER_SECONDS = 60L;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Largest work which may be admitted at a time.
+     */
+    private final long workBudget;
+
+    /**
+     * Work of the admitted requests which have not completed yet.
+     */
+    private final AtomicLong admittedWork = new AtomicLong();
+
+    /**
+     * Moving average of the measured throughput, used to tell rejected clients when to retry.
+     */
+    private volatile double valuesPerSecond = INITIAL_VALUES_PER_SECOND;
+
+    private final Counter rejections;
+
+    /**
+     * @param threads       - number of threads which run the computations.
+     * @param queueCapacity - number of computations which may wait for a thread.
+     * @param workBudget    - largest work which may be admitted at a time.
+     * @param meterRegistry - registry of the admission metrics.
+     */
+    public BoundedComputeExecutor(int threads, int queueCapacity, long workBudget, MeterRegistry meterRegistry) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "prime-compute-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.workBudget = workBudget;
+        this.rejections = meterRegistry.counter("prime.admission.rejected");
+        Gauge.builder("prime.admission.work", admittedWork, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("prime.admission.queued", executor, e -> e.getQueue().size()).register(meterRegistry);
+    }
+
+    /**
+     * Runs the task on the executor, or on the calling thread if it has no work.
+     *
+     * @param work - estimated work of the task.
+     * @param task - the computation.
+     * @return CompletableFuture - completed with the result of the task.
+     * @throws TooManyRequestsException if the task is not admitted.
+     */
+    public <T> CompletableFuture<T> submit(long work, Supplier<T> task) {
+        if (work <= 0L) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        admit(work);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                final long start = System.nanoTime();
+                try {
+                    return task.get();
+                } finally {
+                    release(work, System.nanoTime() - start);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            release(work, 0L);
+            rejections.increment();
+            throw new TooManyRequestsException(getRetryAfterSeconds());
+        }
+    }
+
+    /**
+     * Admits work which is run outside of the executor. It must be released once it is completed.
+     *
+     * @param work - estimated work.
+     * @throws TooManyRequestsException if the work is not admitted.
+     */
+    public void admit(long work) {
+        while (true) {
+            final long current = admittedWork.get();
+            //Work larger than the budget is still admitted when nothing else is, so that it is not rejected forever.
+            //The sum is never formed for work beyond the budget, so that huge estimates cannot overflow it.
+            if (work > 0L && current > 0L && work > workBudget - current) {
+                rejections.increment();
+                final long retryAfterSeconds = getRetryAfterSeconds();
+                LOGGER.info("Rejected work of " + work + " with " + current + " admitted, retry after "
+                        + retryAfterSeconds + " s");
+                throw new TooManyRequestsException(retryAfterSeconds);
+            }
+            if (admittedWork.compareAndSet(current, current + work)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Releases admitted work.
+     *
+     * @param work         - the work passed to {@link #admit}.
+     * @param elapsedNanos - time the computation took, or 0 if it is not a measure of the throughput.
+     */
+    public void release(long work, long elapsedNanos) {
+        admittedWork.addAndGet(-work);
+        if (elapsedNanos > 0L) {
+            valuesPerSecond = 0.8 * valuesPerSecond + 0.2 * (work * 1e9 / elapsedNanos);
+        }
+    }
+
+    long getAdmittedWork() {
+        return admittedWork.get();
+    }
+
+    private long getRetryAfterSeconds() {
+        final long seconds = (long) Math.ceil(admittedWork.get() / valuesPerSecond);
+        return Math.max(1L, Math.min(MAX_RETRY_AFTER_SECONDS, seconds));
+    }
+}
@@ -0,0 +1,162 @@
+package com.primeservice;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+
+/**
+ * Background stage which fills the cache of a {@link ManagedPrimeService} before the requests need it.
+ * At start it caches every prime up to the warm-up limit. After that, while the {@link BoundedComputeExecutor} has no
+ * admitted work, it extends the cache ahead of the demand, to {@link #SPECULATION_FACTOR} times the largest value of
+ * the latest requests, so that growing requests are answered from the cache.
+ * The cache grows in steps of {@link #STEP_VALUES}, so that a request which joins a background step does not wait
+ * long, and never beyond the largest limit it may grow to. Every step uses at most the given number of workers,
+ * and the speculation stops at a budget of cache memory.
+ */
+public class FrontierWarmer implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrontierWarmer.class);
+
+    /**
+     * Number of values cached per step.
+     */
+    static final long STEP_VALUES = 1L << 24;
+
+    /**
+     * How far ahead of the latest requests the cache is extended.
+     */
+    static final long SPECULATION_FACTOR = 2L;
+
+    /**
+     * Time between the checks for idle time.
+     */
+    private static final long IDLE_POLL_MILLIS = 100L;
+
+    private final ManagedPrimeService primeService;
+
+    private final BoundedComputeExecutor computeExecutor;
+
+    private final long warmUpLimit;
+
+    private final boolean speculative;
+
+    private final int maxParallelism;
+
+    private final long maxCacheSizeInBytes;
+
+    private final Counter warmUpValues;
+
+    private final Counter speculativeValues;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    /**
+     * @param primeService        - service whose cache is filled.
+     * @param computeExecutor     - executor of the requests, which must be idle for the speculation.
+     * @param warmUpLimit         - largest value cached at start, or 0 for none.
+     * @param speculative         - whether the cache is extended ahead of the requests.
+     * @param maxParallelism      - most workers of a step.
+     * @param maxCacheSizeInBytes - memory of the cache beyond which it is not extended ahead of the requests.
+     * @param meterRegistry       - registry of the metrics of the stage.
+     */
+    public FrontierWarmer(ManagedPrimeService primeService, BoundedComputeExecutor computeExecutor, long warmUpLimit,
+                          boolean speculative, int maxParallelism, long maxCacheSizeInBytes,
+                          MeterRegistry meterRegistry) {
+        this.primeService = primeService;
+        this.computeExecutor = computeExecutor;
+        this.warmUpLimit = warmUpLimit;
+        this.speculative = speculative;
+        this.maxParallelism = maxParallelism;
+        this.maxCacheSizeInBytes = maxCacheSizeInBytes;
+        this.warmUpValues = meterRegistry.counter("prime.warmup.values", "phase", "startup");
+        this.speculativeValues = meterRegistry.counter("prime.warmup.values", "phase", "speculative");
+    }
+
+    /**
+     * Starts the stage on a daemon thread.
+     */
+    public synchronized void start() {
+        if (thread != null || (warmUpLimit <= 0L && !speculative)) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "prime-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the stage after its current step.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    private void run() {
+        try {
+            if (warmUpLimit > 0L) {
+                LOGGER.info("Warmed up the cache to " + extendTo(warmUpLimit, warmUpValues));
+            }
+            while (speculative && running) {
+                Thread.sleep(IDLE_POLL_MILLIS);
+                final long target = Math.min(primeService.getMaxCacheLimit(),
+                        Math.min(Long.MAX_VALUE / SPECULATION_FACTOR, primeService.getRecentDemand())
+                                * SPECULATION_FACTOR);
+                final long limit = primeService.getCacheLimit();
+                if (limit < target && computeExecutor.getAdmittedWork() == 0L
+                        && primeService.getCacheSizeInBytes() < maxCacheSizeInBytes) {
+                    step(limit, target, speculativeValues);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            //A step which is interrupted by close() fails as well.
+            if (running) {
+                LOGGER.warn("Stopped warming up the cache", e);
+            }
+        }
+    }
+
+    /**
+     * Extends the cache to the target step by step, as long as it grows.
+     *
+     * @return long - the new limit of the cache.
+     */
+    private long extendTo(long target, Counter values) {
+        final long maxLimit = Math.min(target, primeService.getMaxCacheLimit());
+        long limit = primeService.getCacheLimit();
+        while (running && limit < maxLimit) {
+            final long newLimit = step(limit, maxLimit, values);
+            if (newLimit <= limit) {
+                break;
+            }
+            limit = newLimit;
+        }
+        return limit;
+    }
+
+    /**
+     * Extends the cache by at most {@link #STEP_VALUES} towards the target.
+     *
+     * @return long - the new limit of the cache, which stays the same once the cache is full.
+     */
+    private long step(long limit, long target, Counter values) {
+        final long stepLimit = target - limit > STEP_VALUES ? limit + STEP_VALUES : target;
+        final long newLimit = primeService.precompute(stepLimit, maxParallelism);
+        if (newLimit > limit) {
+            values.increment(newLimit - limit);
+        }
+        return newLimit;
+    }
+}
@@ -0,0 +1,88 @@
+package com.primeservice;
+
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeService;
+
+/**
+ * {@link PrimeService} with the hooks which the infrastructure of the application uses around the requests: the checks
+ * and work estimates of the admission by the {@link BoundedComputeExecutor} before anything is calculated, and the
+ * cache state which the {@link FrontierWarmer} reads and extends. The consumers of the service only need the
+ * {@link PrimeService}.
+ */
+public interface ManagedPrimeService extends PrimeService {
+
+    /**
+     * Checks the name of an engine before a calculation is started with it.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     */
+    void validateEngine(String engine);
+
+    /**
+     * Checks a range whose PrimeNumbers are listed before anything is cached or admitted for it.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.InvalidInputException if the range is invalid, larger than
+     *                                                          {@link #MAX_RANGE_SIZE}, or not supported by the
+     *                                                          engine.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     */
+    void validateRange(long minValue, long maxValue, String engine);
+
+    /**
+     * Estimates the work of getting all the PrimeNumbers upto a maximum value, as the number of values which are not
+     * cached and have to be sieved.
+     */
+    long estimateWork(long maxValue);
+
+    /**
+     * Estimates the work of getting the first limit PrimeNumbers from minValue to maxValue, in the same unit as
+     * {@link #estimateWork(long)}.
+     */
+    long estimateWork(long minValue, long maxValue, int limit);
+
+    /**
+     * Estimates the work of counting the PrimeNumbers upto a maximum value, in the same unit as
+     * {@link #estimateWork(long)}.
+     *
+     * @throws com.primeservice.exception.InvalidInputException if the maximum value cannot be counted.
+     */
+    long estimateCountWork(long maxValue);
+
+    /**
+     * Estimates the work of finding the n-th PrimeNumber, in the same unit as {@link #estimateWork(long)}.
+     *
+     * @throws com.primeservice.exception.InvalidInputException if the n-th PrimeNumber cannot be found.
+     */
+    long estimateNthPrimeWork(long n);
+
+    /**
+     * Extends the cache up to maxValue ahead of the requests, without counting as one.
+     *
+     * @param maxValue       - largest value to cache. The cache stops growing at its memory bound.
+     * @param maxParallelism - most workers of the calculation.
+     * @return long - the limit up to which the cache holds every PrimeNumber, 0 if caching is disabled.
+     */
+    long precompute(long maxValue, int maxParallelism);
+
+    /**
+     * Gets the limit up to which the cache holds every PrimeNumber, 0 if caching is disabled.
+     */
+    long getCacheLimit();
+
+    /**
+     * Gets the largest limit which the cache may grow to within its memory bound, 0 if caching is disabled.
+     */
+    long getMaxCacheLimit();
+
+    /**
+     * Gets the largest value of the latest requests which the cache may grow to, 0 if there are none.
+     */
+    long getRecentDemand();
+
+    /**
+     * Gets the memory used by the cached PrimeNumbers.
+     */
+    long getCacheSizeInBytes();
+}
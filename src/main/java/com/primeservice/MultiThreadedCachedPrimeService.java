@@ -1,242 +1,966 @@
 package com.primeservice;
 
+import com.primeservice.api.Deadline;
+import com.primeservice.api.LongArrayPrimeSequence;
+import com.primeservice.api.PrimeConsumer;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
 import com.primeservice.api.PrimeService;
+import com.primeservice.cache.PrimeFrontier;
+import com.primeservice.cache.PrimeSegmentCache;
+import com.primeservice.engine.PrimeEngineSelector;
+import com.primeservice.engine.SegmentedSieveEngine;
+import com.primeservice.exception.DeadlineExceededException;
 import com.primeservice.exception.InvalidInputException;
+import com.primeservice.util.DirectBufferArena;
+import com.primeservice.util.PrimeCounter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.SortedMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 
 /**
  * A cached and multi-threaded PrimeService implementation which uses threads to calculate a range of the Prime numbers
  * from 1 to the given MaxValue.
- * The threads divide the range and works on part of the range.
+ * The range is divided into small chunks which the workers of a long-lived work-stealing {@link ForkJoinPool}
+ * calculate with the {@link PrimeEngine} the {@link PrimeEngineSelector} chooses for the request. A
+ * {@link ParallelismTuner} per engine picks the number of workers of every calculation from the size of its range and
+ * the measured cost per chunk, and small ranges are calculated inline on the caller's thread.
  */
 @Service
-public class MultiThreadedCachedPrimeService implements PrimeService {
+public class MultiThreadedCachedPrimeService implements ManagedPrimeService, Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MultiThreadedCachedPrimeService.class);
 
     /**
      * Default min value for the Service
      */
-    private long DEFAULT_MIN = 2L;
+    private static final long DEFAULT_MIN = 2L;
 
     /**
-     * Determines whether .
+     * Smallest window of a range which is calculated for a page of PrimeNumbers.
      */
-    private boolean cacheEnabled;
+    private static final int MIN_PAGE_WINDOW = 1 << 12;
 
     /**
-     * A threadPool of threads for processing the results.
+     * Parallelism cap of the calculations of the requests, which only the pool bounds.
      */
-    private ArrayList<PrimeCalculatorThread> threadPool;
+    private static final int UNBOUNDED_PARALLELISM = Integer.MAX_VALUE;
 
     /**
-     * The threadStartValues time when the processing began. This is used for benchmarking.
+     * Number of values which are streamed per segment, after which the consumer is notified and the deadline checked.
      */
-    private long benchmarkStartTime;
+    private static final long STREAM_SEGMENT_VALUES = 1L << 20;
 
     /**
-     * The threadEndValues time when the processing ended. This is used for benchmarking.
+     * Determines whether the calculated prime numbers are cached.
      */
-    private long benchmarkEndTime;
+    private final boolean cacheEnabled;
 
     /**
-     * This is the number of threads to be created.
+     * Chooses the engine of every calculation.
      */
-    private int numberOfThreads = 10;
+    private final PrimeEngineSelector engineSelector;
 
     /**
-     * This is the cache for previously resolved PrimeNumbers
+     * Off-heap buffers of the results of the chunks, reused across the calculations.
      */
-    private final SortedMap<Long, List<Long>> cachedPrimeNumbers = new TreeMap<>();
+    private final DirectBufferArena bufferArena;
 
     /**
-     * This is the container of list of output primeNumbers per thread.
+     * Chooses the number of workers of every calculation by its engine, at most the worker threads of the pool.
      */
-    private ConcurrentHashMap<Integer, List<Long>> primeNumbersList;
+    private final Map<String, ParallelismTuner> parallelismTuners = new HashMap<>();
 
     /**
-     * This is the array used by the multiple threads to identify which
-     * long to begin with.
+     * Time spent calculating PrimeNumbers by every engine.
      */
-    private long[] threadStartValues;
+    private final Map<String, Timer> engineTimers = new HashMap<>();
 
     /**
-     * This is the array used by the multiple threads to identify which
-     * long to threadEndValues at.
+     * Shared pool of workers for all the calculations of this service. Idle workers steal chunks from busy ones.
      */
-    private long[] threadEndValues;
+    private final ForkJoinPool workerPool;
 
+    /**
+     * This is the cache for previously resolved PrimeNumbers. It holds every prime number up to its limit and serves
+     * reads without locking.
+     */
+    private final PrimeFrontier primeFrontier;
+
+    /**
+     * Cache of the segments beyond the frontier, for the ranges which are not appended to the frontier. It shares the
+     * maximum size of the frontier.
+     */
+    private final PrimeSegmentCache segmentCache;
+
+    /**
+     * In-flight extensions of the frontier by their limit. Each extension calculates only the range after the limit
+     * of the previous one, and appends it to the frontier once the previous one has been appended.
+     * Guarded by itself.
+     */
+    private final NavigableMap<Long, CompletableFuture<Void>> frontierExtensions = new TreeMap<>();
+
+    /**
+     * Limits of the latest requests which the frontier may grow to, see {@link #getRecentDemand()}.
+     */
+    private final RecentDemand recentDemand = new RecentDemand();
+
+    /**
+     * Requests which were answered completely from the cache.
+     */
+    private final Counter cacheHits;
+
+    /**
+     * Requests which were answered partly from the cache.
+     */
+    private final Counter cachePartialHits;
+
+    /**
+     * Requests which were not answered from the cache at all.
+     */
+    private final Counter cacheMisses;
+
+    /**
+     * Time spent reading PrimeNumbers from the cache.
+     */
+    private final Timer lookupTimer;
+
+    /**
+     * Time spent calculating PrimeNumbers on the worker pool.
+     */
+    private final Timer computeTimer;
+
+    /**
+     * Time spent by a worker on a single chunk.
+     */
+    private final Timer chunkTimer;
+
+    /**
+     * Number of workers chosen for every calculation, 1 for the ones calculated inline.
+     */
+    private final DistributionSummary parallelismSummary;
+
+    /**
+     * @param cacheEnabled    - whether the calculated prime numbers are cached.
+     * @param numberOfThreads - worker threads of the pool, which is the largest parallelism of a calculation.
+     */
     public MultiThreadedCachedPrimeService(boolean cacheEnabled, int numberOfThreads) {
+        this(cacheEnabled, numberOfThreads, new SimpleMeterRegistry());
+    }
+
+    public MultiThreadedCachedPrimeService(boolean cacheEnabled, int numberOfThreads, MeterRegistry meterRegistry) {
+        this(cacheEnabled, numberOfThreads, meterRegistry, new PrimeFrontier());
+    }
+
+    public MultiThreadedCachedPrimeService(boolean cacheEnabled, int numberOfThreads, MeterRegistry meterRegistry,
+                                           PrimeFrontier primeFrontier) {
+        this(cacheEnabled, numberOfThreads, meterRegistry, primeFrontier,
+                new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(), SegmentedSieveEngine.NAME));
+    }
+
+    /**
+     * @param engineSelector - chooses the engine of every calculation among the engines of the service.
+     */
+    public MultiThreadedCachedPrimeService(boolean cacheEnabled, int numberOfThreads, MeterRegistry meterRegistry,
+                                           PrimeFrontier primeFrontier, PrimeEngineSelector engineSelector) {
+        this(cacheEnabled, numberOfThreads, meterRegistry, primeFrontier, engineSelector,
+                new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES));
+    }
+
+    /**
+     * @param bufferArena - arena of the off-heap buffers of the calculations.
+     */
+    public MultiThreadedCachedPrimeService(boolean cacheEnabled, int numberOfThreads, MeterRegistry meterRegistry,
+                                           PrimeFrontier primeFrontier, PrimeEngineSelector engineSelector,
+                                           DirectBufferArena bufferArena) {
         this.cacheEnabled = cacheEnabled;
-        this.numberOfThreads = numberOfThreads;
+        this.primeFrontier = primeFrontier;
+        this.segmentCache = new PrimeSegmentCache(primeFrontier, meterRegistry);
+        this.engineSelector = engineSelector;
+        this.bufferArena = bufferArena;
+        this.workerPool = new ForkJoinPool(numberOfThreads);
+
+        this.cacheHits = meterRegistry.counter("prime.cache.requests", "result", "hit");
+        this.cachePartialHits = meterRegistry.counter("prime.cache.requests", "result", "partial");
+        this.cacheMisses = meterRegistry.counter("prime.cache.requests", "result", "miss");
+        this.lookupTimer = Timer.builder("prime.lookup").publishPercentileHistogram().register(meterRegistry);
+        this.computeTimer = Timer.builder("prime.compute").publishPercentileHistogram().register(meterRegistry);
+        this.chunkTimer = Timer.builder("prime.chunk").publishPercentileHistogram().register(meterRegistry);
+        this.parallelismSummary = DistributionSummary.builder("prime.parallelism").register(meterRegistry);
+        for (String engine : engineSelector.getEngineNames()) {
+            final ParallelismTuner parallelismTuner = new ParallelismTuner(numberOfThreads);
+            parallelismTuners.put(engine, parallelismTuner);
+            Gauge.builder("prime.sieve.cost", parallelismTuner, ParallelismTuner::getNanosPerValue)
+                    .tag("engine", engine).baseUnit("nanoseconds").register(meterRegistry);
+            engineTimers.put(engine, Timer.builder("prime.engine").tag("engine", engine).register(meterRegistry));
+        }
+        Gauge.builder("prime.frontier.size", primeFrontier, PrimeFrontier::getSizeInBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("prime.frontier.limit", primeFrontier, PrimeFrontier::getLimit).register(meterRegistry);
+        Gauge.builder("prime.arena.leased", bufferArena, DirectBufferArena::getLeasedBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("prime.arena.pooled", bufferArena, DirectBufferArena::getPooledBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("prime.pool.queued", workerPool, ForkJoinPool::getQueuedTaskCount).register(meterRegistry);
+        Gauge.builder("prime.pool.active", workerPool, ForkJoinPool::getActiveThreadCount).register(meterRegistry);
+        FunctionCounter.builder("prime.pool.steals", workerPool, ForkJoinPool::getStealCount)
+                .register(meterRegistry);
     }
 
 
     /**
      * Gets all the PrimeNumbers upto a maximum value.
      * The max value is currently restricted to a long range.
+     * If the deadline expires, the primes found so far are thrown with the {@link DeadlineExceededException}, and the
+     * part of the frontier extension which completed is kept in the cache.
      *
      * @param maxValue
+     * @param engine
+     * @param deadline
      * @return
      */
     @Override
-    public List<Long> getPrimeNumbers(long maxValue) {
+    public PrimeSequence getPrimeSequence(long maxValue, String engine, Deadline deadline) {
 
         validateInput(maxValue);
+        validateRange(0L, maxValue, engine);
 
-        //Reset Data Structures
-        final ArrayList<Long> consolidatedPrimeResult = new ArrayList<>();
+        if (cacheEnabled) {
+            //Only the range beyond the cached frontier is calculated and appended to the frontier, as far as the
+            //frontier may grow. The rest goes through the segment cache.
+            final long frontierLimit = primeFrontier.getLimit();
+            recordCacheRequest(DEFAULT_MIN, maxValue, frontierLimit);
+            recordDemand(maxValue);
+            final long extensionLimit = Math.min(maxValue, primeFrontier.getMaxLimit());
+            if (frontierLimit < extensionLimit) {
+                try {
+                    extendFrontier(extensionLimit, engine, UNBOUNDED_PARALLELISM, deadline);
+                } catch (DeadlineExceededException e) {
+                    final long partialLimit = Math.min(maxValue, primeFrontier.getLimit());
+                    throw new DeadlineExceededException(primeFrontier.getPrimeSequence(partialLimit));
+                }
+            } else if (frontierLimit >= maxValue) {
+                LOGGER.info("Cache hit for Current Max: " + maxValue + " is Value: " + frontierLimit);
+            }
+            return getCachedPrimeSequence(DEFAULT_MIN, maxValue, engine, deadline);
+        }
 
-        primeNumbersList = new ConcurrentHashMap<>(numberOfThreads);
+        cacheMisses.increment();
+        return calculatePrimeNumbers(DEFAULT_MIN, maxValue, engine, deadline);
+    }
 
-        //check for values in cache and return a new minValue
-        final long minValue = getCachedValues(maxValue, consolidatedPrimeResult);
+    /**
+     * Gets all the PrimeNumbers from minValue to maxValue, both inclusive.
+     * The part of the range covered by the cache is a view of the frontier and only the rest of the range is
+     * calculated. The base primes are only computed up to the square root of maxValue.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engine
+     * @param deadline
+     * @return
+     */
+    @Override
+    public PrimeSequence getPrimeSequence(long minValue, long maxValue, String engine, Deadline deadline) {
+
+        validateRange(minValue, maxValue, engine);
 
-        //Edge case where maxVal is 2L
-        if (maxValue == 2L) {
-            consolidatedPrimeResult.add(2L);
+        final long calculateFrom = Math.max(minValue, DEFAULT_MIN);
+        if (cacheEnabled) {
+            recordCacheRequest(calculateFrom, maxValue, Math.min(primeFrontier.getLimit(), maxValue));
+            recordDemand(maxValue);
+            return getCachedPrimeSequence(calculateFrom, maxValue, engine, deadline);
         }
+        cacheMisses.increment();
+        return calculatePrimeNumbers(calculateFrom, maxValue, engine, deadline);
+    }
 
-        //If there is a subset of applicable values from cache or no data found in cache, then calculate the prime
-        //numbers for the new range.
-        if (minValue < maxValue) {
-            try {
-                int numThreads = numberOfThreads;
-                LOGGER.info("Calculating Prime numbers for Min Val: " + minValue + " Max Val: " + maxValue);
-                initializeStarEndForThreads(minValue, maxValue - 1, numThreads);
-                executeThreads(numThreads);
-                LOGGER.info("Execution Time: " + (benchmarkEndTime - benchmarkStartTime) + " ms");
-            } catch (Exception e) {
-                LOGGER.error("Exception occurred when waiting for Threads to complete " + e.getMessage());
-            }
+    /**
+     * Gets at most limit PrimeNumbers from minValue to maxValue, both inclusive.
+     * The range is calculated in windows which are sized from the expected density of the primes, so that a page
+     * does not sieve much more of the range than it returns. Every window stops once the deadline expires.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param limit
+     * @param engine
+     * @param deadline
+     * @return
+     */
+    @Override
+    public PrimeSequence getPrimeSequence(long minValue, long maxValue, int limit, String engine,
+                                          Deadline deadline) {
 
-            //Consolidate the results
-            primeNumbersList.values().forEach(consolidatedPrimeResult::addAll);
+        validateRange(minValue, maxValue);
+        if (limit <= 0) {
+            throw new InvalidInputException(limit);
         }
+        validateEngineRange(minValue, maxValue, engine);
+
+        final PrimeSequenceBuilder page = new PrimeSequenceBuilder(Math.min(limit, MIN_PAGE_WINDOW));
+        long window = getPageWindow(minValue, limit);
+        long windowStart = minValue;
+        while (page.size() < limit) {
+            final long windowEnd = maxValue - windowStart < window ? maxValue : windowStart + window - 1L;
+            final PrimeSequence primeNumbers = getPrimeSequence(windowStart, windowEnd, engine, deadline);
+            page.addAll(primeNumbers.subSequence(0, Math.min(primeNumbers.size(), limit - page.size())));
+            if (windowEnd == maxValue) {
+                break;
+            }
+            windowStart = windowEnd + 1L;
+            window *= 2L;
+        }
+        return page.build();
+    }
 
-        //Update the cache
-        updateCache(maxValue, consolidatedPrimeResult);
+    /**
+     * @param engine
+     */
+    @Override
+    public void validateEngine(String engine) {
+        engineSelector.validate(engine);
+    }
 
-        return consolidatedPrimeResult;
+    /**
+     * Checks the bounds and the size of a range whose PrimeNumbers are listed, and that an engine supports it.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engine
+     */
+    @Override
+    public void validateRange(long minValue, long maxValue, String engine) {
+        validateRange(minValue, maxValue);
+        //The primes of a larger range could never be held, and the cache would grow for nothing first.
+        if (maxValue - minValue >= MAX_RANGE_SIZE) {
+            throw new InvalidInputException(maxValue);
+        }
+        validateEngineRange(minValue, maxValue, engine);
     }
 
     /**
-     * If Cache is enabled, then it gets the value of largest cached key smaller than or equal to the maxValue.
+     * Counts the PrimeNumbers upto a maximum value.
+     * If the cache covers the maxValue, then the count is read from the frontier, else it is computed with the
+     * {@link PrimeCounter} without enumerating the primes.
      *
      * @param maxValue
-     * @param consolidatedPrimeResult
+     * @param deadline
      * @return
      */
-    private long getCachedValues(long maxValue, ArrayList<Long> consolidatedPrimeResult) {
-        if (!cacheEnabled) {
-            return DEFAULT_MIN;
+    @Override
+    public long countPrimeNumbers(long maxValue, Deadline deadline) {
+
+        validateCountInput(maxValue);
+
+        if (cacheEnabled && maxValue <= primeFrontier.getLimit()) {
+            LOGGER.info("Cache hit for Count of Max: " + maxValue);
+            cacheHits.increment();
+            return lookupTimer.record(() -> primeFrontier.countPrimeNumbers(maxValue));
         }
-        //Returns a submap with keys <= maxvalue
-        final SortedMap<Long, List<Long>> validCacheMap = cachedPrimeNumbers.headMap(maxValue + 1);
+        cacheMisses.increment();
+        return PrimeCounter.countPrimeNumbers(maxValue, deadline, workerPool);
+    }
 
-        long lastKey = DEFAULT_MIN;
+    /**
+     * Finds the n-th PrimeNumber.
+     * If the cache holds n primes, then it is selected from the frontier, else it is found with the
+     * {@link PrimeCounter} by counting upto an estimate and sieving only the values between it and the prime.
+     *
+     * @param n
+     * @param deadline
+     * @return
+     */
+    @Override
+    public long getNthPrimeNumber(long n, Deadline deadline) {
 
-        if (!validCacheMap.isEmpty()) {
-            lastKey = validCacheMap.lastKey();
-            LOGGER.info("Cache hit for Current Max: " + maxValue + " is Value: " + lastKey);
-            consolidatedPrimeResult.addAll(validCacheMap.get(lastKey));
+        validateNthInput(n);
+
+        if (isNthPrimeCached(n)) {
+            LOGGER.info("Cache hit for Prime number: " + n);
+            cacheHits.increment();
+            return lookupTimer.record(() -> primeFrontier.getNthPrime(n));
         }
-        return lastKey;
+        cacheMisses.increment();
+        return PrimeCounter.getNthPrime(n, deadline, workerPool);
+    }
+
+    /**
+     * Passes all the PrimeNumbers upto a maximum value to the consumer, segment by segment, see
+     * {@link #forEachPrimeNumber(long, long, String, Deadline, PrimeConsumer)}.
+     *
+     * @param maxValue
+     * @param engine
+     * @param deadline
+     * @param consumer
+     */
+    @Override
+    public void forEachPrimeNumber(long maxValue, String engine, Deadline deadline, PrimeConsumer consumer) {
+        validateInput(maxValue);
+        forEachPrimeNumber(DEFAULT_MIN, maxValue, engine, deadline, consumer);
     }
 
     /**
-     * Updates the cache with the latest value obtained from the calculation.
+     * Passes all the PrimeNumbers from minValue to maxValue to the consumer, segment by segment.
+     * The part covered by the cache is read from the frontier, the rest is calculated by the engine on the calling
+     * thread in segments of {@link #STREAM_SEGMENT_VALUES}, so that only one segment is held in memory at a time.
+     * The deadline is checked after every segment.
      *
+     * @param minValue
      * @param maxValue
-     * @param consolidatedPrimeResult
+     * @param engine
+     * @param deadline
+     * @param consumer
      */
-    private void updateCache(long maxValue, ArrayList<Long> consolidatedPrimeResult) {
+    @Override
+    public void forEachPrimeNumber(long minValue, long maxValue, String engine, Deadline deadline,
+                                   PrimeConsumer consumer) {
+
+        validateRange(minValue, maxValue);
+        validateEngineRange(minValue, maxValue, engine);
+
+        final long calculateFrom = Math.max(minValue, DEFAULT_MIN);
+        long start = calculateFrom;
         if (cacheEnabled) {
-            cachedPrimeNumbers.putIfAbsent(maxValue, consolidatedPrimeResult);
+            final long frontierLimit = Math.min(primeFrontier.getLimit(), maxValue);
+            recordCacheRequest(calculateFrom, maxValue, frontierLimit);
+            recordDemand(maxValue);
+            if (calculateFrom <= frontierLimit) {
+                primeFrontier.forEachPrime(calculateFrom, frontierLimit, consumer, () -> {
+                    consumer.segmentCompleted();
+                    deadline.check();
+                });
+                start = frontierLimit + 1L;
+            }
+        } else {
+            cacheMisses.increment();
+        }
+        if (start <= maxValue) {
+            final PrimeEngine primeEngine = engineSelector.select(engine, start, maxValue);
+            primeEngine.prepare(maxValue);
+            while (true) {
+                final long end = maxValue - start < STREAM_SEGMENT_VALUES ? maxValue
+                        : start + STREAM_SEGMENT_VALUES - 1L;
+                deadline.check();
+                primeEngine.forEachPrime(start, end, consumer, deadline);
+                consumer.segmentCompleted();
+                if (end == maxValue) {
+                    return;
+                }
+                start = end + 1L;
+            }
         }
     }
 
     /**
+     * Estimates the work of getting the PrimeNumbers upto a maximum value as the part of the range beyond the cache.
+     *
      * @param maxValue
+     * @return
      */
-    private void validateInput(long maxValue) {
-        if (!(maxValue > 0)) {
-            throw new InvalidInputException(maxValue);
+    @Override
+    public long estimateWork(long maxValue) {
+        if (cacheEnabled) {
+            return Math.max(0L, maxValue - primeFrontier.getLimit());
         }
+        return Math.max(0L, maxValue - 1L);
     }
 
     /**
-     * Initializes the multiple threads and their division of work loads.
+     * Estimates the work of counting the PrimeNumbers upto a maximum value. A count which is read from the cache
+     * has no work, else it is the estimate of the {@link PrimeCounter}.
      *
      * @param maxValue
-     * @param numThreads
+     * @return
      */
-    public void initializeStarEndForThreads(long minValue, long maxValue, int numThreads) {
-        threadStartValues = new long[numberOfThreads];
-        threadEndValues = new long[numberOfThreads];
-
-        /**
-         * The size of a work load
-         */
-        long size = (maxValue - minValue) / (long) numberOfThreads;
+    @Override
+    public long estimateCountWork(long maxValue) {
+        validateCountInput(maxValue);
+        if (cacheEnabled && maxValue <= primeFrontier.getLimit()) {
+            return 0L;
+        }
+        return PrimeCounter.estimateWork(maxValue);
+    }
 
-        //If size load is same or less than number of threads.
-        if (size <= 1L) {
-            numThreads = 1;
-            return;
+    /**
+     * Estimates the work of finding the n-th PrimeNumber. A prime which is selected from the cache has no work,
+     * else it is the estimate of the {@link PrimeCounter}.
+     *
+     * @param n
+     * @return
+     */
+    @Override
+    public long estimateNthPrimeWork(long n) {
+        validateNthInput(n);
+        if (isNthPrimeCached(n)) {
+            return 0L;
         }
+        return PrimeCounter.estimateNthPrimeWork(n);
+    }
 
-        // initialize threadStartValues-threadEndValues
-        threadStartValues[0] = minValue;
+    /**
+     * Estimates the work of a page as the part of its range beyond the cache, but at most the first windows of the
+     * page, which usually hold its primes.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param limit
+     * @return
+     */
+    @Override
+    public long estimateWork(long minValue, long maxValue, int limit) {
+        final long rangeWork = Math.max(0L, estimateWork(maxValue) - estimateWork(minValue - 1L));
+        return Math.min(rangeWork, 2L * getPageWindow(minValue, limit));
+    }
 
-        for (int i = 0; i < numberOfThreads - 1; i++) {
-            threadStartValues[i + 1] = threadStartValues[i] + size;
-            threadEndValues[i] = threadStartValues[i + 1] - 1;
+    /**
+     * Extends the frontier up to maxValue, or as far as it may grow, without counting as a request. The calculation
+     * uses at most maxParallelism workers, so that it leaves the rest of the pool to the requests, and requests which
+     * need the range join it.
+     *
+     * @param maxValue
+     * @param maxParallelism
+     * @return
+     */
+    @Override
+    public long precompute(long maxValue, int maxParallelism) {
+        if (!cacheEnabled) {
+            return 0L;
+        }
+        final long extensionLimit = Math.min(maxValue, primeFrontier.getMaxLimit());
+        if (primeFrontier.getLimit() < extensionLimit) {
+            extendFrontier(extensionLimit, null, Math.max(1, maxParallelism), Deadline.NONE);
         }
-        threadEndValues[numberOfThreads - 1] = maxValue;
+        return primeFrontier.getLimit();
+    }
+
+    /**
+     * @return
+     */
+    @Override
+    public long getCacheLimit() {
+        return cacheEnabled ? primeFrontier.getLimit() : 0L;
     }
 
-    public void executeThreads(int numThreads) {
-        threadPool = new ArrayList<>();
+    /**
+     * @return
+     */
+    @Override
+    public long getMaxCacheLimit() {
+        return cacheEnabled ? primeFrontier.getMaxLimit() : 0L;
+    }
 
-        // initialize threads if threadEndValues is valid
-        for (int i = 0; i < numThreads; i++) {
-            if (threadEndValues[i] > 1L) {
-                // distribute work load
-                final PrimeCalculatorThread thread = new PrimeCalculatorThread(i + 1, threadStartValues[i],
-                        threadEndValues[i], primeNumbersList);
-                // add to threadPool
-                threadPool.add(thread);
+    /**
+     * @return
+     */
+    @Override
+    public long getRecentDemand() {
+        return recentDemand.getLimit();
+    }
+
+    /**
+     * @return
+     */
+    @Override
+    public long getCacheSizeInBytes() {
+        return primeFrontier.getSizeInBytes() + segmentCache.getSizeInBytes();
+    }
+
+    /**
+     * Stops the workers and closes the snapshot file of the frontier. It is called when the application shuts down.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        workerPool.shutdown();
+        primeFrontier.close();
+    }
+
+    /**
+     * Gets the PrimeNumbers from minValue to maxValue, both inclusive, out of the caches. The part of the range
+     * covered by the frontier is a view of it, the segments after it which the range covers completely are read from
+     * or added to the segment cache, and only the partial segments at the ends of the range are calculated directly.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engine
+     * @param deadline
+     * @return
+     */
+    private PrimeSequence getCachedPrimeSequence(long minValue, long maxValue, String engine, Deadline deadline) {
+        final PrimeSequenceBuilder primeNumbers = new PrimeSequenceBuilder();
+        final long frontierLimit = Math.min(primeFrontier.getLimit(), maxValue);
+        long calculateFrom = minValue;
+        if (minValue <= frontierLimit) {
+            final PrimeSequence cachedPrimeNumbers = lookupTimer.record(() -> {
+                final PrimeSequence prefix = primeFrontier.getPrimeSequence(frontierLimit);
+                return prefix.subSequence(prefix.lowerBound(minValue), prefix.size());
+            });
+            if (frontierLimit == maxValue) {
+                return cachedPrimeNumbers;
             }
+            primeNumbers.addAll(cachedPrimeNumbers);
+            calculateFrom = frontierLimit + 1L;
         }
 
-        // threadStartValues benchmark
-        benchmarkStartTime = System.currentTimeMillis();
+        try {
+            final long segmentSize = PrimeSegmentCache.SEGMENT_SIZE;
+            //Segments from firstSegment to lastSegment, exclusive, are covered completely by the range.
+            final long firstSegment = calculateFrom / segmentSize + (calculateFrom % segmentSize == 0L ? 0L : 1L);
+            final long lastSegment = maxValue / segmentSize + (maxValue % segmentSize == segmentSize - 1L ? 1L : 0L);
+            if (firstSegment >= lastSegment) {
+                return primeNumbers.addAll(calculatePrimeNumbers(calculateFrom, maxValue, engine, deadline)).build();
+            }
+            if (calculateFrom < firstSegment * segmentSize) {
+                primeNumbers.addAll(calculatePrimeNumbers(calculateFrom, firstSegment * segmentSize - 1L, engine,
+                        deadline));
+            }
+            for (long segment = firstSegment; segment < lastSegment; segment++) {
+                PrimeSequence segmentPrimeNumbers = segmentCache.get(segment);
+                if (segmentPrimeNumbers == null) {
+                    final long segmentStart = segment * segmentSize;
+                    segmentPrimeNumbers = calculatePrimeNumbers(segmentStart, segmentStart + segmentSize - 1L,
+                            engine, deadline);
+                    segmentCache.put(segment, segmentPrimeNumbers);
+                }
+                primeNumbers.addAll(segmentPrimeNumbers);
+            }
+            if (maxValue % segmentSize != segmentSize - 1L) {
+                primeNumbers.addAll(calculatePrimeNumbers(lastSegment * segmentSize, maxValue, engine, deadline));
+            }
+            return primeNumbers.build();
+        } catch (DeadlineExceededException e) {
+            throw new DeadlineExceededException(primeNumbers.addAll(e.getPartialResult()).build());
+        }
+    }
+
+    /**
+     * Extends the frontier up to maxValue. Concurrent callers are coalesced: a caller whose maxValue is covered by an
+     * in-flight extension waits for it, and a caller with a larger maxValue only calculates the range after the
+     * largest in-flight extension. Its first wave of chunks is calculated while the previous extension runs, and
+     * every completed wave is appended to the frontier once the previous extension is, which bounds the buffers that
+     * a large extension holds, see {@link PrimeCalculationContext}.
+     * An extension whose deadline expires appends the part of its range which completed, and fails. The callers which
+     * waited for it try again with their own deadlines, and a later extension calculates the gap it left.
+     *
+     * @param maxValue
+     * @param engine
+     * @param maxParallelism
+     * @param deadline
+     */
+    private void extendFrontier(long maxValue, String engine, int maxParallelism, Deadline deadline) {
+        while (primeFrontier.getLimit() < maxValue) {
+            final CompletableFuture<Void> extension;
+            final CompletableFuture<Void> previousExtension;
+            final long minValue;
+            synchronized (frontierExtensions) {
+                final Map.Entry<Long, CompletableFuture<Void>> covering = frontierExtensions.ceilingEntry(maxValue);
+                final Map.Entry<Long, CompletableFuture<Void>> last = frontierExtensions.lastEntry();
+                minValue = (last == null ? primeFrontier.getLimit() : last.getKey()) + 1L;
+                if (covering != null || minValue > maxValue) {
+                    extension = covering == null ? null : covering.getValue();
+                    previousExtension = null;
+                } else {
+                    extension = new CompletableFuture<>();
+                    previousExtension = last == null ? null : last.getValue();
+                    frontierExtensions.put(maxValue, extension);
+                }
+            }
+            if (extension == null) {
+                return;
+            }
+            if (minValue > maxValue) {
+                LOGGER.info("Joining in-flight calculation for Max: " + maxValue);
+                try {
+                    awaitExtension(extension, deadline);
+                    return;
+                } catch (DeadlineExceededException e) {
+                    //The extension ran out of its own time, so this caller only gives up if it is out of time too.
+                    deadline.check();
+                    continue;
+                }
+            }
 
-        // run the threads
-        for (PrimeCalculatorThread thread : threadPool) {
-            thread.start();
+            final PrimeCalculationContext.PrefixConsumer append = (completedLimit, primes) -> {
+                appendPrevious(previousExtension, minValue, engine, maxParallelism, deadline);
+                primeFrontier.appendPrimes(completedLimit, primes);
+            };
+            try (PrimeCalculationContext context = calculate(minValue, maxValue, engine, maxParallelism, deadline,
+                    append)) {
+                appendCompleted(context);
+                removeExtension(maxValue);
+                extension.complete(null);
+            } catch (RuntimeException | Error e) {
+                //The extension is removed first, so that the callers which try again do not find it.
+                removeExtension(maxValue);
+                extension.completeExceptionally(e);
+                throw e;
+            }
+            return;
         }
+    }
 
-        // Wait for all the threads to complete
-        for (PrimeCalculatorThread thread : threadPool) {
+    /**
+     * Waits until the frontier reaches the start of an extension, since it has no gaps. The previous extension must be
+     * appended first, and the gap which it left if it failed is calculated.
+     *
+     * @param previousExtension
+     * @param minValue
+     * @param engine
+     * @param maxParallelism
+     * @param deadline
+     */
+    private void appendPrevious(CompletableFuture<Void> previousExtension, long minValue, String engine,
+                                int maxParallelism, Deadline deadline) {
+        if (previousExtension != null) {
             try {
-                thread.join();
-            } catch (InterruptedException e) {
-                LOGGER.error("Exception occurred when waiting for Threads to complete " + e.getMessage());
+                awaitExtension(previousExtension, deadline);
+            } catch (DeadlineExceededException e) {
+                deadline.check();
+            }
+        }
+        final long frontierLimit = primeFrontier.getLimit();
+        if (frontierLimit < minValue - 1L) {
+            try (PrimeCalculationContext gap = calculate(frontierLimit + 1L, minValue - 1L, engine, maxParallelism,
+                    deadline, primeFrontier::appendPrimes)) {
+                appendCompleted(gap);
+            }
+        }
+    }
+
+    /**
+     * Appends the part of a calculation which completed before its deadline and was not appended between its waves
+     * to the frontier, straight from the bitmaps of its chunks, so that the heap of an extension does not grow with its
+     * number of primes.
+     *
+     * @param context
+     * @throws DeadlineExceededException if the calculation did not complete.
+     */
+    private void appendCompleted(PrimeCalculationContext context) {
+        context.mergeCompletedChunks();
+        if (!context.isComplete()) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /**
+     * @param maxValue
+     */
+    private void removeExtension(long maxValue) {
+        synchronized (frontierExtensions) {
+            frontierExtensions.remove(maxValue);
+        }
+    }
+
+    /**
+     * Waits for an extension of the frontier until the deadline, and rethrows its failure.
+     *
+     * @param extension
+     * @param deadline
+     */
+    private static void awaitExtension(CompletableFuture<Void> extension, Deadline deadline) {
+        try {
+            extension.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the frontier");
+        }
+    }
+
+    /**
+     * Calculates the PrimeNumbers from minValue to maxValue, both inclusive, on the worker pool.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engine
+     * @param deadline
+     * @return
+     * @throws DeadlineExceededException with the prime numbers found so far, if the deadline expires.
+     */
+    private PrimeSequence calculatePrimeNumbers(long minValue, long maxValue, String engine, Deadline deadline) {
+        if (maxValue < DEFAULT_MIN) {
+            return LongArrayPrimeSequence.EMPTY;
+        }
+        try (PrimeCalculationContext context = calculate(minValue, maxValue, engine, UNBOUNDED_PARALLELISM,
+                deadline, null)) {
+            if (!context.isComplete()) {
+                throw new DeadlineExceededException(context.getConsolidatedResult());
             }
+            return context.getConsolidatedResult();
+        }
+    }
+
+    /**
+     * Calculates the PrimeNumbers from minValue to maxValue, both inclusive, on the worker pool until the deadline.
+     * Every call works on its own {@link PrimeCalculationContext}, so concurrent calls do not interfere. The engine is
+     * chosen by the {@link PrimeEngineSelector}, and the number of workers by the {@link ParallelismTuner} of the
+     * engine, which learns from the cost of the chunks of the call.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engineName
+     * @param maxParallelism
+     * @param deadline
+     * @param prefixConsumer
+     * @return
+     */
+    private PrimeCalculationContext calculate(long minValue, long maxValue, String engineName, int maxParallelism,
+                                              Deadline deadline,
+                                              PrimeCalculationContext.PrefixConsumer prefixConsumer) {
+        final PrimeEngine engine = engineSelector.select(engineName, minValue, maxValue);
+        final ParallelismTuner parallelismTuner = parallelismTuners.get(engine.getName());
+        final int parallelism = Math.min(maxParallelism, parallelismTuner.choose(maxValue - minValue + 1L));
+        final PrimeCalculationContext context = new PrimeCalculationContext(minValue, maxValue, parallelism,
+                chunkTimer, deadline, engine, bufferArena, prefixConsumer);
+        LOGGER.info("Calculating Prime numbers for Min Val: " + minValue + " Max Val: " + maxValue + " with "
+                + engine.getName() + " on " + parallelism + " workers");
+        //Prepare the shared state, e.g. the base primes of a sieve, once before the workers calculate their chunks.
+        try {
+            engine.prepare(maxValue);
+            computeTimer.record(() -> engineTimers.get(engine.getName()).record(() -> context.execute(workerPool)));
+        } catch (RuntimeException | Error e) {
+            context.close();
+            throw e;
+        }
+        parallelismSummary.record(parallelism);
+        parallelismTuner.record(context.getCalculatedValues(), context.getChunkNanos());
+        LOGGER.info("Execution Time: " + context.getExecutionTime() + " ms for " + context.getNumberOfChunks()
+                + " chunks" + (context.isComplete() ? "" : ", stopped at the deadline"));
+        return context;
+    }
+
+    /**
+     * Counts a request for the PrimeNumbers from minValue to maxValue as a hit, partial hit or miss of the cache.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param frontierLimit
+     */
+    private void recordCacheRequest(long minValue, long maxValue, long frontierLimit) {
+        if (maxValue <= frontierLimit) {
+            cacheHits.increment();
+        } else if (minValue <= frontierLimit) {
+            cachePartialHits.increment();
+        } else {
+            cacheMisses.increment();
+        }
+    }
+
+    /**
+     * Remembers the limit of a request which the frontier may grow to.
+     *
+     * @param maxValue
+     */
+    private void recordDemand(long maxValue) {
+        if (maxValue <= primeFrontier.getMaxLimit()) {
+            recentDemand.record(maxValue);
+        }
+    }
+
+    /**
+     * @param maxValue
+     */
+    private void validateInput(long maxValue) {
+        if (!(maxValue > 0)) {
+            throw new InvalidInputException(maxValue);
+        }
+    }
+
+    /**
+     * @param maxValue
+     */
+    private void validateCountInput(long maxValue) {
+        validateInput(maxValue);
+        if (maxValue > PrimeCounter.MAX_VALUE) {
+            throw new InvalidInputException(maxValue);
+        }
+    }
+
+    /**
+     * @param n
+     */
+    private void validateNthInput(long n) {
+        if (n < 1L || n > PrimeCounter.MAX_NTH) {
+            throw new InvalidInputException(n);
+        }
+    }
+
+    /**
+     * @param n
+     * @return boolean - true if the cache holds at least n PrimeNumbers.
+     */
+    private boolean isNthPrimeCached(long n) {
+        return cacheEnabled && n <= primeFrontier.countPrimeNumbers(primeFrontier.getLimit());
+    }
+
+    /**
+     * @param minValue
+     * @param limit
+     * @return long - the first window of a page, which holds about limit PrimeNumbers, as roughly one in ln(x)
+     * numbers around x is prime.
+     */
+    private static long getPageWindow(long minValue, int limit) {
+        return Math.max(MIN_PAGE_WINDOW, (long) (limit * (Math.log(Math.max(minValue, 3L)) + 2.0)));
+    }
+
+    /**
+     * Checks that the engine, or one of the engines if it is not named, supports the range.
+     *
+     * @param minValue
+     * @param maxValue
+     * @param engine
+     */
+    private void validateEngineRange(long minValue, long maxValue, String engine) {
+        if (maxValue < DEFAULT_MIN) {
+            engineSelector.validate(engine);
+            return;
+        }
+        engineSelector.select(engine, Math.max(minValue, DEFAULT_MIN), maxValue);
+    }
+
+    /**
+     * @param minValue
+     * @param maxValue
+     */
+    private void validateRange(long minValue, long maxValue) {
+        if (minValue < 0) {
+            throw new InvalidInputException(minValue);
+        }
+        if (maxValue < minValue) {
+            throw new InvalidInputException(maxValue);
         }
-        benchmarkEndTime = System.currentTimeMillis();
-        // threadEndValues benchmark
     }
 
 }
@@ -0,0 +1,69 @@
+package com.primeservice;
+
+/**
+ * Chooses the degree of parallelism of every calculation of the {@link MultiThreadedCachedPrimeService}.
+ * The work of a range is estimated from its size and the measured cost of sieving a value, which is a moving average
+ * over the chunks of the previous calculations. Every worker gets at least {@link #MIN_NANOS_PER_WORKER} of it, so
+ * that a range which is not worth handing to the pool is calculated inline on the caller's thread, and the degree is
+ * bounded by the workers of the pool.
+ */
+final class ParallelismTuner {
+
+    /**
+     * Least estimated work per worker. Below it, the cost of forking and merging chunks outweighs the gain.
+     */
+    static final long MIN_NANOS_PER_WORKER = 1000000L;
+
+    /**
+     * Cost of sieving a value which is assumed until a calculation is measured.
+     */
+    static final double INITIAL_NANOS_PER_VALUE = 1.0;
+
+    /**
+     * Weight of the latest measurement in the moving average.
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private final int maxParallelism;
+
+    /**
+     * Moving average of the nanoseconds spent per sieved value. Guarded by this.
+     */
+    private double nanosPerValue = INITIAL_NANOS_PER_VALUE;
+
+    /**
+     * @param maxParallelism - number of workers of the pool.
+     */
+    ParallelismTuner(int maxParallelism) {
+        this.maxParallelism = maxParallelism;
+    }
+
+    /**
+     * @param values - number of values of the range.
+     * @return int - number of workers for the range, 1 if it is calculated inline.
+     */
+    int choose(long values) {
+        final double estimatedNanos = values * getNanosPerValue();
+        return (int) Math.max(1L, Math.min(maxParallelism, (long) (estimatedNanos / MIN_NANOS_PER_WORKER)));
+    }
+
+    /**
+     * Adds a measurement of the cost of sieving.
+     *
+     * @param values - number of values sieved.
+     * @param nanos  - time spent on them, summed over the workers.
+     */
+    synchronized void record(long values, long nanos) {
+        if (values > 0L) {
+            nanosPerValue += SMOOTHING * ((double) nanos / values - nanosPerValue);
+        }
+    }
+
+    synchronized double getNanosPerValue() {
+        return nanosPerValue;
+    }
+
+    int getMaxParallelism() {
+        return maxParallelism;
+    }
+}
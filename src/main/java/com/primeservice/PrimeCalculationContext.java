@@ -0,0 +1,535 @@
+package com.primeservice;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
+import com.primeservice.api.PrimeService;
+import com.primeservice.engine.SegmentedSieveEngine;
+import com.primeservice.exception.DeadlineExceededException;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.util.DirectBufferArena;
+import io.micrometer.core.instrument.Timer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Execution context of a single prime number calculation.
+ * It holds all the state of one request, so that concurrent requests to the {@link MultiThreadedCachedPrimeService}
+ * never share it. The range is split into many small chunks which the workers of a shared {@link ForkJoinPool}
+ * steal from each other, and the results of the chunks are merged in the order of the range. With a parallelism of 1
+ * the chunks are calculated inline on the caller's thread instead. Every chunk is calculated by the
+ * {@link PrimeEngine} chosen for the request.
+ * The workers check the deadline of the request between sieve segments. Once it has expired, the remaining chunks are
+ * skipped and only the chunks at the start of the range which completed are kept. A chunk which fails makes the
+ * remaining chunks skipped as well, and the failure is thrown once every worker is done with the buffers.
+ * The primes of every chunk are kept as a bitmap of its odd values in a direct buffer of a {@link DirectBufferArena}
+ * until they are merged, which takes a fraction of the memory of a long per prime and stays off the heap. A large range
+ * is calculated in waves of at most {@link #LEASED_CHUNKS_PER_WORKER} chunks per worker. After every wave but the last
+ * the completed chunks are merged into the result, or passed to a {@link PrefixConsumer}, and their buffers returned,
+ * so that the buffers leased at a time do not grow with the range. The context must be closed once its result is read,
+ * which returns the buffers of the last wave to the arena.
+ */
+class PrimeCalculationContext implements AutoCloseable {
+
+    /**
+     * Smallest chunk of the range which is worth a task of its own.
+     */
+    static final long MIN_CHUNK_SIZE = 1L << 16;
+
+    /**
+     * Largest chunk of the range, so that idle workers always find work to steal.
+     */
+    static final long MAX_CHUNK_SIZE = 1L << 22;
+
+    /**
+     * Largest range of a calculation, 2^20 chunks of the largest size or about 4.4e12 values.
+     */
+    static final long MAX_RANGE_SIZE = PrimeService.MAX_RANGE_SIZE;
+
+    /**
+     * Number of chunks per worker aimed for, so that uneven chunks balance out.
+     */
+    private static final int CHUNKS_PER_WORKER = 8;
+
+    /**
+     * Number of chunks per worker of a wave, which bounds the buffers leased at a time. Every wave waits for its
+     * slowest chunk, so a wave holds a few times the chunks aimed for per worker.
+     */
+    static final int LEASED_CHUNKS_PER_WORKER = 2 * CHUNKS_PER_WORKER;
+
+    private static final PrimeEngine DEFAULT_ENGINE = new SegmentedSieveEngine();
+
+    private static final DirectBufferArena DEFAULT_ARENA = new DirectBufferArena(
+            DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+
+    /**
+     * Start of the range, inclusive.
+     */
+    private final long minValue;
+
+    /**
+     * End of the range, inclusive.
+     */
+    private final long maxValue;
+
+    /**
+     * Number of workers the range is split for, or 1 if it is calculated inline.
+     */
+    private final int parallelism;
+
+    /**
+     * Size of every chunk but the last one.
+     */
+    private final long chunkSize;
+
+    /**
+     * Number of chunks of a wave.
+     */
+    private final int maxLeasedChunks;
+
+    /**
+     * Bitmap of the odd prime numbers of every chunk, in the order of the range, or null if it is not calculated, is
+     * merged already or the context is closed.
+     */
+    private final DirectBufferArena.Lease[] chunkBitmaps;
+
+    /**
+     * Number of prime numbers of every chunk, or -1 if a chunk was not completed.
+     */
+    private final int[] chunkPrimeCounts;
+
+    /**
+     * Records the time spent on every chunk.
+     */
+    private final Timer chunkTimer;
+
+    /**
+     * Deadline of the request.
+     */
+    private final Deadline deadline;
+
+    /**
+     * Engine which calculates the chunks.
+     */
+    private final PrimeEngine engine;
+
+    /**
+     * Arena of the bitmaps of the chunks.
+     */
+    private final DirectBufferArena arena;
+
+    /**
+     * Receives the completed chunks of the waves, or null if they are merged into the result.
+     */
+    private final PrefixConsumer prefixConsumer;
+
+    /**
+     * Number of chunks at the start of the range which are merged and whose buffers are returned.
+     */
+    private int mergedChunks;
+
+    /**
+     * The prime numbers of the merged chunks, if they are merged into the result.
+     */
+    private PrimeSequenceBuilder mergedPrimes;
+
+    /**
+     * First failure of a chunk, which is thrown once all the chunks are done.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * The merged prime numbers of the completed chunks, once they are read.
+     */
+    private PrimeSequence consolidatedResult;
+
+    /**
+     * Values of the completed chunks.
+     */
+    private final LongAdder calculatedValues = new LongAdder();
+
+    /**
+     * Time spent on the completed chunks, summed over the workers.
+     */
+    private final LongAdder chunkNanos = new LongAdder();
+
+    /**
+     * The time when the processing began. This is used for benchmarking.
+     */
+    private long benchmarkStartTime;
+
+    /**
+     * The time when the processing ended. This is used for benchmarking.
+     */
+    private long benchmarkEndTime;
+
+    PrimeCalculationContext(long minValue, long maxValue, int parallelism, Timer chunkTimer) {
+        this(minValue, maxValue, parallelism, chunkTimer, Deadline.NONE);
+    }
+
+    PrimeCalculationContext(long minValue, long maxValue, int parallelism, Timer chunkTimer, Deadline deadline) {
+        this(minValue, maxValue, parallelism, chunkTimer, deadline, DEFAULT_ENGINE);
+    }
+
+    PrimeCalculationContext(long minValue, long maxValue, int parallelism, Timer chunkTimer, Deadline deadline,
+                            PrimeEngine engine) {
+        this(minValue, maxValue, parallelism, chunkTimer, deadline, engine, DEFAULT_ARENA);
+    }
+
+    PrimeCalculationContext(long minValue, long maxValue, int parallelism, Timer chunkTimer, Deadline deadline,
+                            PrimeEngine engine, DirectBufferArena arena) {
+        this(minValue, maxValue, parallelism, chunkTimer, deadline, engine, arena, null);
+    }
+
+    /**
+     * @param prefixConsumer - receives the completed chunks at the start of the range, or null to keep them for
+     *                       {@link #getConsolidatedResult}.
+     */
+    PrimeCalculationContext(long minValue, long maxValue, int parallelism, Timer chunkTimer, Deadline deadline,
+                            PrimeEngine engine, DirectBufferArena arena, PrefixConsumer prefixConsumer) {
+        //The number of chunks would overflow beyond it, and the result could never be held anyway.
+        if (maxValue - minValue >= MAX_RANGE_SIZE || maxValue - minValue < 0L) {
+            throw new InvalidInputException(maxValue);
+        }
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.chunkTimer = chunkTimer;
+        this.deadline = deadline;
+        this.engine = engine;
+        this.arena = arena;
+        this.prefixConsumer = prefixConsumer;
+        this.parallelism = parallelism;
+        final long rangeSize = maxValue - minValue + 1L;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE,
+                rangeSize / ((long) parallelism * CHUNKS_PER_WORKER)));
+        final int chunks = (int) ((rangeSize - 1L) / chunkSize + 1L);
+        this.chunkBitmaps = new DirectBufferArena.Lease[chunks];
+        this.maxLeasedChunks = (int) Math.min(chunks, (long) parallelism * LEASED_CHUNKS_PER_WORKER);
+        this.chunkPrimeCounts = new int[chunks];
+        Arrays.fill(chunkPrimeCounts, -1);
+    }
+
+    /**
+     * Calculates all the chunks on the pool wave by wave and waits for them to complete, or on the caller's thread if
+     * the parallelism is 1. The waves after a chunk which did not complete are skipped.
+     * The tasks of the pool never complete abruptly, so that no chunk is still written when a failure is thrown and
+     * the context is closed.
+     *
+     * @param pool - shared pool of workers.
+     */
+    void execute(ForkJoinPool pool) {
+        benchmarkStartTime = System.currentTimeMillis();
+        for (int firstChunk = 0; firstChunk < chunkBitmaps.length; firstChunk += maxLeasedChunks) {
+            final int lastChunk = Math.min(chunkBitmaps.length, firstChunk + maxLeasedChunks);
+            if (parallelism > 1) {
+                pool.invoke(new ChunkTask(firstChunk, lastChunk));
+                final Throwable error = failure.get();
+                if (error instanceof Error) {
+                    throw (Error) error;
+                }
+                if (error != null) {
+                    throw (RuntimeException) error;
+                }
+            } else {
+                for (int chunk = firstChunk; chunk < lastChunk && !deadline.isExpired(); chunk++) {
+                    calculateChunk(chunk);
+                }
+            }
+            if (lastChunk == chunkBitmaps.length || getCompletedChunks() < lastChunk) {
+                break;
+            }
+            mergeCompletedChunks();
+        }
+        benchmarkEndTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Merges the bitmaps of the chunks. It is read from them once and kept, so it must be read before the context is
+     * closed.
+     *
+     * @return PrimeSequence - the prime numbers of the completed chunks at the start of the range, in its order.
+     */
+    synchronized PrimeSequence getConsolidatedResult() {
+        if (consolidatedResult != null) {
+            return consolidatedResult;
+        }
+        if (prefixConsumer != null) {
+            throw new IllegalStateException("The primes are passed to the consumer");
+        }
+        final int completedChunks = getCompletedChunks();
+        PrimeSequenceBuilder consolidatedPrimeResult = mergedPrimes;
+        if (consolidatedPrimeResult == null) {
+            int size = 0;
+            for (int chunk = mergedChunks; chunk < completedChunks; chunk++) {
+                size += chunkPrimeCounts[chunk];
+            }
+            consolidatedPrimeResult = new PrimeSequenceBuilder(size);
+        }
+        readChunks(mergedChunks, completedChunks, consolidatedPrimeResult);
+        consolidatedResult = consolidatedPrimeResult.build();
+        return consolidatedResult;
+    }
+
+    /**
+     * Passes the completed chunks at the start of the range which were not merged yet to the {@link PrefixConsumer},
+     * straight from the bitmaps, so that their primes are never held on the heap. It is called once the workers are
+     * done.
+     */
+    synchronized void mergeCompletedChunks() {
+        final int completedChunks = getCompletedChunks();
+        if (completedChunks == mergedChunks) {
+            return;
+        }
+        final int firstChunk = mergedChunks;
+        final long completedLimit = getChunkEnd(getChunkStart(completedChunks - 1));
+        if (prefixConsumer != null) {
+            prefixConsumer.accept(completedLimit, consumer -> readChunks(firstChunk, completedChunks, consumer));
+        } else {
+            if (mergedPrimes == null) {
+                mergedPrimes = new PrimeSequenceBuilder();
+            }
+            readChunks(firstChunk, completedChunks, mergedPrimes);
+        }
+        for (int chunk = firstChunk; chunk < completedChunks; chunk++) {
+            chunkBitmaps[chunk].close();
+            chunkBitmaps[chunk] = null;
+        }
+        mergedChunks = completedChunks;
+    }
+
+    /**
+     * Returns the bitmaps of the chunks to the arena. It is called once the workers are done.
+     */
+    @Override
+    public synchronized void close() {
+        for (int chunk = 0; chunk < chunkBitmaps.length; chunk++) {
+            if (chunkBitmaps[chunk] != null) {
+                chunkBitmaps[chunk].close();
+                chunkBitmaps[chunk] = null;
+            }
+        }
+    }
+
+    /**
+     * @return boolean - whether all the chunks completed before the deadline.
+     */
+    boolean isComplete() {
+        return getCompletedChunks() == chunkBitmaps.length;
+    }
+
+    /**
+     * @return long - the largest value up to which the range is calculated without gaps, or minValue - 1 if no chunk
+     * at its start completed.
+     */
+    long getCompletedLimit() {
+        final int completedChunks = getCompletedChunks();
+        if (completedChunks == chunkBitmaps.length) {
+            return maxValue;
+        }
+        return minValue + completedChunks * chunkSize - 1L;
+    }
+
+    long getMinValue() {
+        return minValue;
+    }
+
+    int getNumberOfChunks() {
+        return chunkBitmaps.length;
+    }
+
+    PrimeEngine getEngine() {
+        return engine;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    long getCalculatedValues() {
+        return calculatedValues.sum();
+    }
+
+    long getChunkNanos() {
+        return chunkNanos.sum();
+    }
+
+    long getExecutionTime() {
+        return benchmarkEndTime - benchmarkStartTime;
+    }
+
+    /**
+     * Calculates one chunk into its bitmap, unless the deadline expires first.
+     */
+    private void calculateChunk(int chunk) {
+        final long startRange = getChunkStart(chunk);
+        final long endRange = getChunkEnd(startRange);
+        final long start = System.nanoTime();
+        final long oddBase = startRange | 1L;
+        //One bit for every odd value of the chunk, in whole longs.
+        final int words = endRange < oddBase ? 0 : (int) (((endRange - oddBase) / 2L) / Long.SIZE + 1L);
+        chunkBitmaps[chunk] = arena.acquire(words * Long.BYTES);
+        final ChunkBitmapWriter writer = new ChunkBitmapWriter(chunkBitmaps[chunk].getBuffer(), oddBase);
+        try {
+            engine.forEachPrime(startRange, endRange, writer, deadline);
+        } catch (DeadlineExceededException e) {
+            //The chunk stays incomplete; nothing is thrown across the workers of the pool.
+            return;
+        }
+        writer.finish(words);
+        chunkPrimeCounts[chunk] = writer.count;
+        final long elapsed = System.nanoTime() - start;
+        chunkTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        chunkNanos.add(elapsed);
+        calculatedValues.add(endRange - startRange + 1L);
+    }
+
+    private long getChunkStart(int chunk) {
+        return minValue + chunk * chunkSize;
+    }
+
+    private long getChunkEnd(long startRange) {
+        return maxValue - startRange < chunkSize ? maxValue : startRange + chunkSize - 1L;
+    }
+
+    /**
+     * Adds the prime numbers of the completed chunks from firstChunk to lastChunk, exclusive, to the result.
+     */
+    private void readChunks(int firstChunk, int lastChunk, LongConsumer result) {
+        for (int chunk = firstChunk; chunk < lastChunk; chunk++) {
+            if (chunkBitmaps[chunk] == null) {
+                throw new IllegalStateException("The context is closed");
+            }
+            readChunk(chunk, chunkBitmaps[chunk].getBuffer(), result);
+        }
+    }
+
+    /**
+     * Adds the prime numbers of a completed chunk to the result.
+     */
+    private void readChunk(int chunk, ByteBuffer bitmap, LongConsumer result) {
+        final long startRange = getChunkStart(chunk);
+        if (startRange <= 2L && getChunkEnd(startRange) >= 2L) {
+            result.accept(2L);
+        }
+        final long oddBase = startRange | 1L;
+        for (int word = 0; word < bitmap.limit() / Long.BYTES; word++) {
+            long bits = bitmap.getLong(word * Long.BYTES);
+            while (bits != 0L) {
+                result.accept(oddBase + 2L * ((long) word * Long.SIZE + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1L;
+            }
+        }
+    }
+
+    private int getCompletedChunks() {
+        int chunk = mergedChunks;
+        while (chunk < chunkPrimeCounts.length && chunkPrimeCounts[chunk] >= 0) {
+            chunk++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Receives the prime numbers of the completed chunks at the start of the range, wave by wave in its order, e.g. to
+     * append them to the {@link com.primeservice.cache.PrimeFrontier}.
+     */
+    @FunctionalInterface
+    interface PrefixConsumer {
+
+        /**
+         * @param completedLimit - the largest value up to which the range is calculated without gaps so far.
+         * @param primes         - passes the prime numbers after the previous completed limit to its consumer.
+         */
+        void accept(long completedLimit, Consumer<LongConsumer> primes);
+    }
+
+    /**
+     * Sets the bits of the prime numbers of a chunk, which arrive in ascending order. Every word of the bitmap is
+     * written once, so that a leased buffer does not have to be cleared first.
+     */
+    private static final class ChunkBitmapWriter implements LongConsumer {
+
+        private final ByteBuffer bitmap;
+
+        private final long oddBase;
+
+        private int count;
+
+        private int word;
+
+        private long bits;
+
+        private ChunkBitmapWriter(ByteBuffer bitmap, long oddBase) {
+            this.bitmap = bitmap;
+            this.oddBase = oddBase;
+        }
+
+        @Override
+        public void accept(long prime) {
+            count++;
+            if (prime == 2L) {
+                //The only even prime is implied by the start of the chunk.
+                return;
+            }
+            final long bit = (prime - oddBase) >>> 1;
+            final int primeWord = (int) (bit >>> 6);
+            while (word < primeWord) {
+                bitmap.putLong(word++ * Long.BYTES, bits);
+                bits = 0L;
+            }
+            bits |= 1L << bit;
+        }
+
+        /**
+         * Writes the rest of the words of the bitmap.
+         */
+        private void finish(int words) {
+            while (word < words) {
+                bitmap.putLong(word++ * Long.BYTES, bits);
+                bits = 0L;
+            }
+        }
+    }
+
+    /**
+     * Sieves the chunks from firstChunk to lastChunk, exclusive. Larger spans are split in halves, so that idle
+     * workers can steal one half.
+     */
+    private final class ChunkTask extends RecursiveAction {
+
+        private final int firstChunk;
+
+        private final int lastChunk;
+
+        private ChunkTask(int firstChunk, int lastChunk) {
+            this.firstChunk = firstChunk;
+            this.lastChunk = lastChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (lastChunk - firstChunk > 1) {
+                final int middle = (firstChunk + lastChunk) >>> 1;
+                invokeAll(new ChunkTask(firstChunk, middle), new ChunkTask(middle, lastChunk));
+                return;
+            }
+            if (deadline.isExpired() || failure.get() != null) {
+                return;
+            }
+            try {
+                calculateChunk(firstChunk);
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+}
@@ -1,16 +1,18 @@
 package com.primeservice;
 
 
-import com.primeservice.util.PrimeNumberUtil;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
+import com.primeservice.util.SegmentedSieve;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Prime calculator thread checks if a range number are prime or not.
+ * Prime calculator thread finds the prime numbers in a range using the {@link SegmentedSieve}.
  * At the endRange of processing, thread populates the prime numbers in the outputMap.
  */
 public class PrimeCalculatorThread extends Thread {
@@ -54,19 +56,24 @@ public class PrimeCalculatorThread extends Thread {
         //Validate input data.
         validateInputData();
 
-        //Use local arraylist to contain the result of PrimeNumbers within a range.
-        final ArrayList<Long> primeList = new ArrayList<>();
-
-        //Loop through the start and end range and if a number is prime, then add it to the output map.
-        for (long primeCandidate = startRange; primeCandidate <= endRange; primeCandidate++) {
-            if (PrimeNumberUtil.isPrime(primeCandidate)) {
-                primeList.add(primeCandidate);
-            }
+        //Sieve the start and end range segment by segment into a primitive sequence, and stop between segments if
+        //the thread is interrupted.
+        final PrimeSequenceBuilder primeSequenceBuilder = new PrimeSequenceBuilder();
+        try {
+            SegmentedSieve.forEachPrime(startRange, endRange, primeSequenceBuilder, () -> {
+                if (isInterrupted()) {
+                    throw new CancellationException();
+                }
+            });
+        } catch (CancellationException e) {
+            LOGGER.info("Thread No: " + threadNumber + " was interrupted.");
+            return;
         }
+        final PrimeSequence primeSequence = primeSequenceBuilder.build();
 
-        //Add the Result back in the outputMap.
-        if (!primeList.isEmpty()) {
-            outputMap.put(threadNumber, primeList);
+        //Add the Result back in the outputMap as a list view of the sequence.
+        if (!primeSequence.isEmpty()) {
+            outputMap.put(threadNumber, primeSequence.asList());
         }
     }
 
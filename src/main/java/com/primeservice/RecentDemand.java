@@ -0,0 +1,38 @@
+package com.primeservice;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers the limits of the latest requests of the {@link MultiThreadedCachedPrimeService}, which the
+ * {@link FrontierWarmer} extends the cache ahead of. Recording is lock-free, so that it costs the requests nothing.
+ */
+final class RecentDemand {
+
+    /**
+     * Number of requests remembered, a power of two.
+     */
+    static final int WINDOW = 1 << 6;
+
+    private final AtomicLongArray limits = new AtomicLongArray(WINDOW);
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param maxValue - largest value of a request.
+     */
+    void record(long maxValue) {
+        limits.set(next.getAndIncrement() & (WINDOW - 1), maxValue);
+    }
+
+    /**
+     * @return long - the largest value of the latest {@link #WINDOW} requests, 0 before the first one.
+     */
+    long getLimit() {
+        long limit = 0L;
+        for (int i = 0; i < WINDOW; i++) {
+            limit = Math.max(limit, limits.get(i));
+        }
+        return limit;
+    }
+}
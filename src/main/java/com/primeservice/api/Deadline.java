@@ -0,0 +1,60 @@
+package com.primeservice.api;
+
+import com.primeservice.exception.DeadlineExceededException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which a request must be answered. Computations check it between sieve segments and stop once it
+ * has expired.
+ */
+public final class Deadline {
+
+    /**
+     * Deadline which never expires.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    /**
+     * Value of {@link System#nanoTime()} at which the deadline expires, or Long.MAX_VALUE if it never does.
+     */
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * @param timeoutMillis - time budget of the request, or 0 if it has none.
+     * @return Deadline - the deadline which expires after the time budget.
+     */
+    public static Deadline after(long timeoutMillis) {
+        if (timeoutMillis <= 0L) {
+            return NONE;
+        }
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos != Long.MAX_VALUE && System.nanoTime() - expiresAtNanos >= 0L;
+    }
+
+    /**
+     * @return long - nanoseconds until the deadline expires, or Long.MAX_VALUE if it never does.
+     */
+    public long remainingNanos() {
+        if (expiresAtNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0L, expiresAtNanos - System.nanoTime());
+    }
+
+    /**
+     * @throws DeadlineExceededException if the deadline has expired.
+     */
+    public void check() {
+        if (isExpired()) {
+            throw new DeadlineExceededException();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.primeservice.api;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.LongStream;
+
+/**
+ * {@link PrimeSequence} backed by a range of a long[]. Its sub-sequences share the array.
+ */
+public final class LongArrayPrimeSequence implements PrimeSequence {
+
+    public static final LongArrayPrimeSequence EMPTY = new LongArrayPrimeSequence(new long[0], 0, 0);
+
+    private final long[] primes;
+
+    private final int fromIndex;
+
+    private final int toIndex;
+
+    /**
+     * @param primes    - prime numbers in ascending order, which must not be changed afterwards.
+     * @param fromIndex - first index of the array, inclusive.
+     * @param toIndex   - last index of the array, exclusive.
+     */
+    public LongArrayPrimeSequence(long[] primes, int fromIndex, int toIndex) {
+        this.primes = primes;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+    }
+
+    @Override
+    public int size() {
+        return toIndex - fromIndex;
+    }
+
+    @Override
+    public long get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        return primes[fromIndex + index];
+    }
+
+    @Override
+    public PrimeSequence subSequence(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+        }
+        return new LongArrayPrimeSequence(primes, this.fromIndex + fromIndex, this.fromIndex + toIndex);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+
+            private int index = fromIndex;
+
+            @Override
+            public boolean hasNext() {
+                return index < toIndex;
+            }
+
+            @Override
+            public long nextLong() {
+                if (index >= toIndex) {
+                    throw new NoSuchElementException();
+                }
+                return primes[index++];
+            }
+        };
+    }
+
+    @Override
+    public LongStream stream() {
+        return Arrays.stream(primes, fromIndex, toIndex);
+    }
+
+    @Override
+    public int lowerBound(long value) {
+        final int index = Arrays.binarySearch(primes, fromIndex, toIndex, value);
+        return (index < 0 ? -index - 1 : index) - fromIndex;
+    }
+
+    /**
+     * Copies the prime numbers into an array at a position.
+     */
+    void copyTo(long[] target, int position) {
+        System.arraycopy(primes, fromIndex, target, position, size());
+    }
+}
@@ -0,0 +1,15 @@
+package com.primeservice.api;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Receives the prime numbers of a {@link PrimeService} one at a time, in ascending order.
+ */
+public interface PrimeConsumer extends LongConsumer {
+
+    /**
+     * Called after the prime numbers of a segment of the range were passed to {@link #accept(long)}.
+     */
+    default void segmentCompleted() {
+    }
+}
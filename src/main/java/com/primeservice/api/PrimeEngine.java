@@ -0,0 +1,66 @@
+package com.primeservice.api;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Strategy which finds the prime numbers of a range. The engines are registered with the
+ * {@link com.primeservice.builder.PrimeServiceBuilder} and chosen per request by their name, or by the one with the
+ * lowest estimated cost for the range with {@link #AUTO}. Every engine finds exactly the prime numbers, so they are
+ * interchangeable and their results are cached alike.
+ */
+public interface PrimeEngine {
+
+    /**
+     * Name which chooses the engine with the lowest estimated cost for every range.
+     */
+    String AUTO = "auto";
+
+    /**
+     * @return String - name which chooses the engine, e.g. with ?engine=.
+     */
+    String getName();
+
+    /**
+     * Passes all the prime numbers from minValue to maxValue, both inclusive, to the consumer in ascending order.
+     *
+     * @param minValue - start of the range.
+     * @param maxValue - end of the range.
+     * @param consumer - receives the prime numbers.
+     * @param deadline - checked regularly while the range is calculated.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline);
+
+    /**
+     * Estimates the time it takes to find the prime numbers from minValue to maxValue. Only the ratios between the
+     * estimates of the engines matter.
+     *
+     * @return double - the estimated time in nanoseconds.
+     */
+    double estimateCost(long minValue, long maxValue);
+
+    /**
+     * @return boolean - whether the engine can calculate the ranges up to maxValue. Every engine can by default.
+     */
+    default boolean supports(long maxValue) {
+        return true;
+    }
+
+    /**
+     * Prepares the state which the chunks of a calculation up to maxValue share, before they are calculated in
+     * parallel.
+     */
+    default void prepare(long maxValue) {
+    }
+
+    /**
+     * Gets all the prime numbers from minValue to maxValue, both inclusive, without boxing them.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    default PrimeSequence getPrimeSequence(long minValue, long maxValue, Deadline deadline) {
+        final PrimeSequenceBuilder builder = new PrimeSequenceBuilder();
+        forEachPrime(minValue, maxValue, builder, deadline);
+        return builder.build();
+    }
+}
@@ -0,0 +1,75 @@
+package com.primeservice.api;
+
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Immutable, ascending sequence of prime numbers without boxing. It is backed by a long[] or by the bitmap of the
+ * cache, and a sub-range of it is a view which shares the backing store.
+ */
+public interface PrimeSequence {
+
+    int size();
+
+    /**
+     * @param index - zero based index.
+     * @return long - the prime number at the index.
+     */
+    long get(int index);
+
+    /**
+     * @param fromIndex - first index, inclusive.
+     * @param toIndex   - last index, exclusive.
+     * @return PrimeSequence - a view of the sequence between the indexes, without copying it.
+     */
+    PrimeSequence subSequence(int fromIndex, int toIndex);
+
+    PrimitiveIterator.OfLong iterator();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    default LongStream stream() {
+        return StreamSupport.longStream(Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED
+                | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    default void forEach(LongConsumer consumer) {
+        iterator().forEachRemaining(consumer);
+    }
+
+    default long[] toArray() {
+        return stream().toArray();
+    }
+
+    /**
+     * @param value - any value.
+     * @return int - the index of the first prime number which is at least the value, or the size if there is none.
+     */
+    default int lowerBound(long value) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (get(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return List - a read-only list view of the sequence, which boxes the prime numbers as they are read.
+     */
+    default List<Long> asList() {
+        return new PrimeSequenceList(this);
+    }
+}
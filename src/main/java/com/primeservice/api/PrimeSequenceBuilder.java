@@ -0,0 +1,62 @@
+package com.primeservice.api;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Collects prime numbers in ascending order into a {@link LongArrayPrimeSequence} without boxing them.
+ */
+public final class PrimeSequenceBuilder implements LongConsumer {
+
+    private long[] primes;
+
+    private int size;
+
+    public PrimeSequenceBuilder() {
+        this(16);
+    }
+
+    public PrimeSequenceBuilder(int initialCapacity) {
+        this.primes = new long[Math.max(1, initialCapacity)];
+    }
+
+    @Override
+    public void accept(long prime) {
+        if (size == primes.length) {
+            grow(size + 1);
+        }
+        primes[size++] = prime;
+    }
+
+    /**
+     * Adds all the prime numbers of a sequence.
+     */
+    public PrimeSequenceBuilder addAll(PrimeSequence sequence) {
+        grow(size + sequence.size());
+        if (sequence instanceof LongArrayPrimeSequence) {
+            ((LongArrayPrimeSequence) sequence).copyTo(primes, size);
+            size += sequence.size();
+        } else {
+            sequence.forEach(this);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return PrimeSequence - the collected prime numbers. The builder must not be used afterwards.
+     */
+    public PrimeSequence build() {
+        return new LongArrayPrimeSequence(primes, 0, size);
+    }
+
+    private void grow(int capacity) {
+        if (capacity > primes.length) {
+            primes = Arrays.copyOf(primes, (int) Math.min(Integer.MAX_VALUE - 8,
+                    Math.max(capacity, 2L * primes.length)));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.primeservice.api;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@link List} adapter of a {@link PrimeSequence}.
+ */
+final class PrimeSequenceList extends AbstractList<Long> implements RandomAccess {
+
+    private final PrimeSequence sequence;
+
+    PrimeSequenceList(PrimeSequence sequence) {
+        this.sequence = sequence;
+    }
+
+    @Override
+    public Long get(int index) {
+        if (index < 0 || index >= sequence.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + sequence.size());
+        }
+        return sequence.get(index);
+    }
+
+    @Override
+    public int size() {
+        return sequence.size();
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        final PrimitiveIterator.OfLong iterator = sequence.iterator();
+        return new Iterator<Long>() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Long next() {
+                return iterator.nextLong();
+            }
+        };
+    }
+
+    @Override
+    public List<Long> subList(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > sequence.size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: "
+                    + sequence.size());
+        }
+        return sequence.subSequence(fromIndex, toIndex).asList();
+    }
+}
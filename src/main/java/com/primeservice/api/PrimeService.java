@@ -11,5 +11,175 @@ import java.util.List;
 @Service
 public interface PrimeService {
 
-    List<Long> getPrimeNumbers(long maxValue);
-}
\ No newline at end of file
+    /**
+     * Largest range whose PrimeNumbers are listed at once, about 4.4e12 values.
+     */
+    long MAX_RANGE_SIZE = 1L << 42;
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value as a list view of {@link #getPrimeSequence(long)}.
+     */
+    default List<Long> getPrimeNumbers(long maxValue) {
+        return getPrimeSequence(maxValue).asList();
+    }
+
+    /**
+     * Gets all the PrimeNumbers from minValue to maxValue, both inclusive, as a list view of
+     * {@link #getPrimeSequence(long, long)}.
+     */
+    default List<Long> getPrimeNumbers(long minValue, long maxValue) {
+        return getPrimeSequence(minValue, maxValue).asList();
+    }
+
+    /**
+     * Gets the first limit PrimeNumbers from minValue to maxValue, both inclusive, as a list view of
+     * {@link #getPrimeSequence(long, long, int)}.
+     */
+    default List<Long> getPrimeNumbers(long minValue, long maxValue, int limit) {
+        return getPrimeSequence(minValue, maxValue, limit).asList();
+    }
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value without boxing them.
+     */
+    default PrimeSequence getPrimeSequence(long maxValue) {
+        return getPrimeSequence(maxValue, Deadline.NONE);
+    }
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value without boxing them, unless the deadline expires first.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException with the prime numbers found so far, if the
+     *                                                              deadline expires.
+     */
+    default PrimeSequence getPrimeSequence(long maxValue, Deadline deadline) {
+        return getPrimeSequence(maxValue, null, deadline);
+    }
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value without boxing them, calculated by the named
+     * {@link PrimeEngine}, unless the deadline expires first.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     * @throws com.primeservice.exception.DeadlineExceededException with the prime numbers found so far, if the
+     *                                                              deadline expires.
+     */
+    PrimeSequence getPrimeSequence(long maxValue, String engine, Deadline deadline);
+
+    /**
+     * Gets all the PrimeNumbers from minValue to maxValue, both inclusive, without boxing them.
+     */
+    default PrimeSequence getPrimeSequence(long minValue, long maxValue) {
+        return getPrimeSequence(minValue, maxValue, Deadline.NONE);
+    }
+
+    /**
+     * Gets all the PrimeNumbers from minValue to maxValue, both inclusive, without boxing them, unless the deadline
+     * expires first.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException with the prime numbers found so far, if the
+     *                                                              deadline expires.
+     */
+    default PrimeSequence getPrimeSequence(long minValue, long maxValue, Deadline deadline) {
+        return getPrimeSequence(minValue, maxValue, null, deadline);
+    }
+
+    /**
+     * Gets all the PrimeNumbers from minValue to maxValue, both inclusive, without boxing them, calculated by the
+     * named {@link PrimeEngine}, unless the deadline expires first.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     * @throws com.primeservice.exception.DeadlineExceededException with the prime numbers found so far, if the
+     *                                                              deadline expires.
+     */
+    PrimeSequence getPrimeSequence(long minValue, long maxValue, String engine, Deadline deadline);
+
+    /**
+     * Gets the first limit PrimeNumbers from minValue to maxValue, both inclusive, without boxing them.
+     */
+    default PrimeSequence getPrimeSequence(long minValue, long maxValue, int limit) {
+        return getPrimeSequence(minValue, maxValue, limit, null);
+    }
+
+    /**
+     * Gets the first limit PrimeNumbers from minValue to maxValue, both inclusive, without boxing them, calculated
+     * by the named {@link PrimeEngine}.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     */
+    default PrimeSequence getPrimeSequence(long minValue, long maxValue, int limit, String engine) {
+        return getPrimeSequence(minValue, maxValue, limit, engine, Deadline.NONE);
+    }
+
+    /**
+     * Gets the first limit PrimeNumbers from minValue to maxValue, both inclusive, without boxing them, calculated
+     * by the named {@link PrimeEngine}, unless the deadline expires first.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    PrimeSequence getPrimeSequence(long minValue, long maxValue, int limit, String engine, Deadline deadline);
+
+    /**
+     * Counts the PrimeNumbers upto a maximum value without listing them.
+     */
+    default long countPrimeNumbers(long maxValue) {
+        return countPrimeNumbers(maxValue, Deadline.NONE);
+    }
+
+    /**
+     * Counts the PrimeNumbers upto a maximum value without listing them, until the deadline expires.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    long countPrimeNumbers(long maxValue, Deadline deadline);
+
+    /**
+     * Finds the n-th PrimeNumber, where the first one is 2, without listing the ones before it.
+     */
+    default long getNthPrimeNumber(long n) {
+        return getNthPrimeNumber(n, Deadline.NONE);
+    }
+
+    /**
+     * Finds the n-th PrimeNumber, where the first one is 2, without listing the ones before it, until the deadline
+     * expires.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    long getNthPrimeNumber(long n, Deadline deadline);
+
+    /**
+     * Passes all the PrimeNumbers upto a maximum value to the consumer as they are found, so that the whole result
+     * never has to be held in memory.
+     */
+    default void forEachPrimeNumber(long maxValue, PrimeConsumer consumer) {
+        forEachPrimeNumber(maxValue, null, Deadline.NONE, consumer);
+    }
+
+    /**
+     * Passes all the PrimeNumbers upto a maximum value to the consumer as they are found, calculated by the named
+     * {@link PrimeEngine}, until the deadline expires.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires, after the consumer
+     *                                                              received the prime numbers found so far.
+     */
+    void forEachPrimeNumber(long maxValue, String engine, Deadline deadline, PrimeConsumer consumer);
+
+    /**
+     * Passes all the PrimeNumbers from minValue to maxValue, both inclusive, to the consumer as they are found,
+     * calculated by the named {@link PrimeEngine}, until the deadline expires.
+     *
+     * @param engine - name of the engine, {@link PrimeEngine#AUTO}, or null for the default engine of the service.
+     * @throws com.primeservice.exception.UnknownEngineException if no engine has the name.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires, after the consumer
+     *                                                              received the prime numbers found so far.
+     */
+    void forEachPrimeNumber(long minValue, long maxValue, String engine, Deadline deadline, PrimeConsumer consumer);
+}
@@ -0,0 +1,66 @@
+package com.primeservice.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Base class of the binary formats. The primes are encoded into a little-endian buffer which is written to the
+ * output after every segment, or when it is full.
+ */
+abstract class BinaryPrimeWriter implements PrimeWriter {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * Largest number of bytes a single prime is encoded in.
+     */
+    private static final int MAX_PRIME_BYTES = 10;
+
+    private final OutputStream outputStream;
+
+    protected final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    BinaryPrimeWriter(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * Encodes the prime into the buffer, which has room for {@link #MAX_PRIME_BYTES} bytes.
+     */
+    protected abstract void encode(long prime);
+
+    @Override
+    public void accept(long prime) {
+        if (buffer.remaining() < MAX_PRIME_BYTES) {
+            writeBuffer();
+        }
+        encode(prime);
+    }
+
+    @Override
+    public void segmentCompleted() {
+        writeBuffer();
+        try {
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        segmentCompleted();
+    }
+
+    private void writeBuffer() {
+        try {
+            outputStream.write(buffer.array(), 0, buffer.position());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
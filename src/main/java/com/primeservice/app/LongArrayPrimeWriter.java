@@ -0,0 +1,20 @@
+package com.primeservice.app;
+
+import java.io.OutputStream;
+
+/**
+ * Writes the prime numbers as a raw array of little-endian 64-bit integers.
+ */
+class LongArrayPrimeWriter extends BinaryPrimeWriter {
+
+    static final String MEDIA_TYPE = "application/x-prime-long-array";
+
+    LongArrayPrimeWriter(OutputStream outputStream) {
+        super(outputStream);
+    }
+
+    @Override
+    protected void encode(long prime) {
+        buffer.putLong(prime);
+    }
+}
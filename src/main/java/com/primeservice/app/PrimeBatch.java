@@ -0,0 +1,168 @@
+package com.primeservice.app;
+
+import com.primeservice.ManagedPrimeService;
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.domainmodel.PrimalityResult;
+import com.primeservice.domainmodel.PrimeBatchRequest;
+import com.primeservice.domainmodel.PrimeBatchResult;
+import com.primeservice.domainmodel.PrimeRangeResult;
+import com.primeservice.domainmodel.PrimeResult;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.util.PrimeNumberUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers a {@link PrimeBatchRequest} with a single pass over the values it needs.
+ * The limits and ranges are sorted and merged into disjoint intervals, the prime numbers of every interval are
+ * computed once, and every answer is sliced out of them. Checks within an interval are looked up, the others are
+ * tested with {@link PrimeNumberUtil#isPrime(long)}.
+ */
+class PrimeBatch {
+
+    /**
+     * Largest number of limits, ranges and checks in a batch.
+     */
+    static final int MAX_REQUESTS = 1000;
+
+    private static final long MIN_PRIME = 2L;
+
+    private final ManagedPrimeService primeService;
+
+    private final PrimeBatchRequest request;
+
+    private final Deadline deadline;
+
+    /**
+     * Disjoint intervals [from, to] in ascending order, which cover all the limits and ranges.
+     */
+    private final long[][] intervals;
+
+    PrimeBatch(ManagedPrimeService primeService, PrimeBatchRequest request) {
+        this(primeService, request, Deadline.NONE);
+    }
+
+    PrimeBatch(ManagedPrimeService primeService, PrimeBatchRequest request, Deadline deadline) {
+        this.primeService = primeService;
+        this.request = request;
+        this.deadline = deadline;
+        final int size = request.getLimits().size() + request.getRanges().size() + request.getChecks().size();
+        if (size > MAX_REQUESTS) {
+            throw new InvalidInputException(size);
+        }
+
+        final List<long[]> wanted = new ArrayList<>();
+        for (Long limit : request.getLimits()) {
+            if (limit == null) {
+                throw new InvalidInputException("null limit");
+            }
+            if (limit <= 0) {
+                throw new InvalidInputException(limit);
+            }
+            wanted.add(new long[]{MIN_PRIME, limit});
+        }
+        for (PrimeBatchRequest.Range range : request.getRanges()) {
+            if (range == null) {
+                throw new InvalidInputException("null range");
+            }
+            if (range.getFrom() < 0) {
+                throw new InvalidInputException(range.getFrom());
+            }
+            if (range.getTo() < range.getFrom()) {
+                throw new InvalidInputException(range.getTo());
+            }
+            wanted.add(new long[]{Math.max(MIN_PRIME, range.getFrom()), range.getTo()});
+        }
+        if (request.getChecks().contains(null)) {
+            throw new InvalidInputException("null check");
+        }
+        wanted.removeIf(interval -> interval[0] > interval[1]);
+        wanted.sort(Comparator.comparingLong(interval -> interval[0]));
+
+        final List<long[]> merged = new ArrayList<>();
+        for (long[] interval : wanted) {
+            final long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            //An interval which ends at Long.MAX_VALUE covers everything after it.
+            if (last != null && (last[1] == Long.MAX_VALUE || interval[0] <= last[1] + 1L)) {
+                last[1] = Math.max(last[1], interval[1]);
+            } else {
+                merged.add(new long[]{interval[0], interval[1]});
+            }
+        }
+        merged.forEach(interval -> primeService.validateRange(interval[0], interval[1], null));
+        this.intervals = merged.toArray(new long[0][]);
+    }
+
+    /**
+     * @return long - the number of values of the batch which are not cached and have to be sieved.
+     */
+    long estimateWork() {
+        long work = 0L;
+        for (long[] interval : intervals) {
+            work += primeService.estimateWork(interval[1]) - primeService.estimateWork(interval[0] - 1L);
+        }
+        return work;
+    }
+
+    PrimeBatchResult execute() {
+        final PrimeSequence[] primeNumbers = new PrimeSequence[intervals.length];
+        for (int i = 0; i < intervals.length; i++) {
+            //An interval from the smallest prime extends the cache, any other one only reads from it.
+            primeNumbers[i] = intervals[i][0] == MIN_PRIME ? primeService.getPrimeSequence(intervals[i][1], deadline)
+                    : primeService.getPrimeSequence(intervals[i][0], intervals[i][1], deadline);
+        }
+
+        final List<PrimeResult> limits = new ArrayList<>();
+        for (long limit : request.getLimits()) {
+            limits.add(new PrimeResult(limit, slice(primeNumbers, MIN_PRIME, limit)));
+        }
+        final List<PrimeRangeResult> ranges = new ArrayList<>();
+        for (PrimeBatchRequest.Range range : request.getRanges()) {
+            ranges.add(new PrimeRangeResult(range.getFrom(), range.getTo(),
+                    slice(primeNumbers, Math.max(MIN_PRIME, range.getFrom()), range.getTo()), null));
+        }
+        final List<PrimalityResult> checks = new ArrayList<>();
+        for (long number : request.getChecks()) {
+            final int index = findInterval(number);
+            final boolean prime;
+            if (index >= 0 && number <= intervals[index][1]) {
+                final PrimeSequence interval = primeNumbers[index];
+                final int position = interval.lowerBound(number);
+                prime = position < interval.size() && interval.get(position) == number;
+            } else {
+                prime = PrimeNumberUtil.isPrime(number);
+            }
+            checks.add(new PrimalityResult(number, prime));
+        }
+        return new PrimeBatchResult(limits, ranges, checks);
+    }
+
+    /**
+     * Gets the prime numbers from "from" to "to" out of the interval which covers them.
+     */
+    private List<Long> slice(PrimeSequence[] primeNumbers, long from, long to) {
+        if (from > to) {
+            return Collections.emptyList();
+        }
+        final PrimeSequence interval = primeNumbers[findInterval(from)];
+        final int end = to == Long.MAX_VALUE ? interval.size() : interval.lowerBound(to + 1L);
+        return interval.subSequence(interval.lowerBound(from), end).asList();
+    }
+
+    /**
+     * @return int - index of the last interval which starts at or before the value, or -1.
+     */
+    private int findInterval(long value) {
+        int index = Arrays.binarySearch(intervals, new long[]{value, value},
+                Comparator.comparingLong(interval -> interval[0]));
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,217 @@
+package com.primeservice.app;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeConsumer;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
+import com.primeservice.exception.DeadlineExceededException;
+import com.primeservice.exception.PeerUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.Closeable;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coordinator which fans a range out to peer instances of the service over HTTP.
+ * The range is split into segments which are requested from the peers in turn as varint gaps, see
+ * {@link PrimeServiceController#getPrimeNumbersInRangeAsVarintGaps}. A few segments per peer are in flight at a time,
+ * and their primes are passed on in the order of the range. A segment which fails on one peer is retried on the
+ * next ones, and the range fails once every peer failed the segment.
+ * Closing the coordinator stops the threads which request the segments.
+ */
+public class PrimeRangeCoordinator implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrimeRangeCoordinator.class);
+
+    /**
+     * Number of segments in flight per peer.
+     */
+    private static final int SEGMENTS_PER_PEER = 2;
+
+    private final List<String> peers;
+
+    private final long segmentSize;
+
+    private final int timeoutMillis;
+
+    private final RestTemplate restTemplate;
+
+    private final ExecutorService executor;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Peer which the next segment is requested from first.
+     */
+    private final AtomicInteger nextPeer = new AtomicInteger();
+
+    /**
+     * @param peers         - base URLs of the peers, e.g. http://localhost:8081.
+     * @param segmentSize   - number of values of every segment.
+     * @param timeoutMillis - time budget of a segment on a peer.
+     * @param meterRegistry - registry of the segment metrics.
+     */
+    public PrimeRangeCoordinator(List<String> peers, long segmentSize, int timeoutMillis, MeterRegistry meterRegistry) {
+        if (peers.isEmpty()) {
+            throw new IllegalArgumentException("A coordinator needs at least one peer");
+        }
+        this.peers = Collections.unmodifiableList(new ArrayList<>(peers));
+        this.segmentSize = segmentSize;
+        this.timeoutMillis = timeoutMillis;
+        this.meterRegistry = meterRegistry;
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(timeoutMillis);
+        requestFactory.setReadTimeout(timeoutMillis);
+        this.restTemplate = new RestTemplate(requestFactory);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(peers.size() * SEGMENTS_PER_PEER, runnable -> {
+            final Thread thread = new Thread(runnable, "prime-fanout-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Passes all the prime numbers from minValue to maxValue, both inclusive, to the consumer in ascending order.
+     * The consumer is notified after every segment.
+     *
+     * @param minValue - start of the range.
+     * @param maxValue - end of the range.
+     * @param consumer - receives the prime numbers.
+     * @throws PeerUnavailableException if a segment failed on every peer.
+     */
+    public void forEachPrime(long minValue, long maxValue, PrimeConsumer consumer) {
+        forEachPrime(minValue, maxValue, Deadline.NONE, consumer);
+    }
+
+    /**
+     * Passes all the prime numbers from minValue to maxValue, both inclusive, to the consumer in ascending order
+     * until the deadline expires. The peers get the time which is left of it as the budget of their segments.
+     *
+     * @param minValue - start of the range.
+     * @param maxValue - end of the range.
+     * @param deadline - deadline of the range.
+     * @param consumer - receives the prime numbers.
+     * @throws PeerUnavailableException  if a segment failed on every peer.
+     * @throws DeadlineExceededException if the deadline expired before the last segment was passed on.
+     */
+    public void forEachPrime(long minValue, long maxValue, Deadline deadline, PrimeConsumer consumer) {
+        final Deque<CompletableFuture<PrimeSequence>> inFlight = new ArrayDeque<>();
+        long next = minValue;
+        boolean dispatched = minValue > maxValue;
+        try {
+            while (!dispatched || !inFlight.isEmpty()) {
+                while (!dispatched && inFlight.size() < peers.size() * SEGMENTS_PER_PEER) {
+                    final long from = next;
+                    final long to = maxValue - from < segmentSize ? maxValue : from + segmentSize - 1L;
+                    final int firstPeer = Math.floorMod(nextPeer.getAndIncrement(), peers.size());
+                    inFlight.add(CompletableFuture.supplyAsync(() -> fetchSegment(from, to, firstPeer, deadline),
+                            executor));
+                    dispatched = to == maxValue;
+                    next = to + 1L;
+                }
+                await(inFlight.poll(), deadline).forEach(consumer);
+                consumer.segmentCompleted();
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } finally {
+            inFlight.forEach(segment -> segment.cancel(false));
+        }
+    }
+
+    /**
+     * Stops the threads which request the segments. Ranges which are in progress fail.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits for a segment until the deadline expires.
+     */
+    private static PrimeSequence await(CompletableFuture<PrimeSequence> segment, Deadline deadline) {
+        if (deadline == Deadline.NONE) {
+            return segment.join();
+        }
+        try {
+            return segment.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DeadlineExceededException();
+        }
+    }
+
+    /**
+     * Gets the primes of a segment from the first peer which answers, starting with firstPeer.
+     */
+    private PrimeSequence fetchSegment(long from, long to, int firstPeer, Deadline deadline) {
+        for (int attempt = 0; attempt < peers.size(); attempt++) {
+            final String peer = peers.get((firstPeer + attempt) % peers.size());
+            //A peer gets no more time than is left of the deadline.
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline.remainingNanos());
+            if (remainingMillis <= 0L) {
+                throw new DeadlineExceededException();
+            }
+            try {
+                final PrimeSequence primes = fetchSegment(peer, from, to, (int) Math.min(timeoutMillis,
+                        remainingMillis));
+                meterRegistry.counter("prime.fanout.segments", "peer", peer, "result", "success").increment();
+                return primes;
+            } catch (RestClientException | UncheckedIOException | IllegalStateException e) {
+                meterRegistry.counter("prime.fanout.segments", "peer", peer, "result", "failure").increment();
+                LOGGER.warn("Segment " + from + " to " + to + " failed on " + peer + ": " + e.getMessage());
+            }
+        }
+        throw new PeerUnavailableException(from, to);
+    }
+
+    private PrimeSequence fetchSegment(String peer, long from, long to, int segmentTimeoutMillis) {
+        final URI uri = UriComponentsBuilder.fromHttpUrl(peer).path("/primes")
+                .queryParam("from", from).queryParam("to", to).build().toUri();
+        final PrimeSequence primes = restTemplate.execute(uri, HttpMethod.GET, request -> {
+            request.getHeaders().setAccept(Collections.singletonList(
+                    MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE)));
+            //The peer stops once the coordinator would not wait for it any more.
+            request.getHeaders().set(PrimeServiceController.TIMEOUT_HEADER, Integer.toString(segmentTimeoutMillis));
+        }, response -> {
+            final PrimeSequenceBuilder builder = new PrimeSequenceBuilder();
+            VarintGapPrimeReader.read(response.getBody(), builder);
+            return builder.build();
+        });
+        if (primes == null || !primes.isEmpty() && (primes.get(0) < from || primes.get(primes.size() - 1) > to)) {
+            throw new IllegalStateException("Peer answered with primes outside of the segment");
+        }
+        return primes;
+    }
+}
@@ -1,30 +1,413 @@
 package com.primeservice.app;
 
+import com.primeservice.BoundedComputeExecutor;
+import com.primeservice.ManagedPrimeService;
+import com.primeservice.api.Deadline;
 import com.primeservice.config.PrimeServiceConfiguration;
-import com.primeservice.api.PrimeService;
+import com.primeservice.domainmodel.FactorizationResult;
+import com.primeservice.domainmodel.NthPrimeResult;
+import com.primeservice.domainmodel.PrimalityResult;
+import com.primeservice.domainmodel.PrimeBatchRequest;
+import com.primeservice.domainmodel.PrimeBatchResult;
+import com.primeservice.domainmodel.PrimeCountResult;
+import com.primeservice.domainmodel.PrimeRangeResult;
 import com.primeservice.domainmodel.PrimeResult;
+import com.primeservice.exception.DeadlineExceededException;
 import com.primeservice.exception.InvalidInputException;
+import com.primeservice.exception.TooManyRequestsException;
+import com.primeservice.util.PrimeFactorizer;
+import com.primeservice.util.PrimeNumberUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @RestController
 @EnableAutoConfiguration
 @Import({PrimeServiceConfiguration.class})
 public class PrimeServiceController {
 
+    /**
+     * Request header with the time budget of a request in milliseconds, which overrides prime.request.timeout-ms.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * Number of primes in a page of a range, if the request does not set a limit.
+     */
+    private static final String DEFAULT_PAGE_LIMIT = "1000";
+
+    /**
+     * Largest number of primes in a page of a range.
+     */
+    private static final int MAX_PAGE_LIMIT = 100000;
+
     @Autowired
-    public PrimeService primeService;
+    public ManagedPrimeService primeService;
+
+    @Autowired
+    public BoundedComputeExecutor computeExecutor;
+
+    /**
+     * Time budget of a request in milliseconds if it does not send the {@link #TIMEOUT_HEADER}, or 0 for none.
+     */
+    @Value("${prime.request.timeout-ms:30000}")
+    public long defaultTimeoutMillis;
+
+    /**
+     * Coordinator of the peers, if prime.cluster.peers is set.
+     */
+    @Autowired(required = false)
+    public PrimeRangeCoordinator rangeCoordinator;
 
+    /**
+     * Gets the prime numbers without blocking a request thread. Cache hits are answered right away, other requests
+     * are computed on the {@link BoundedComputeExecutor} or rejected with 429 if too much work is queued.
+     * A computation which runs out of the time budget of the request stops. It is answered with 503, or with the
+     * primes found so far and complete=false if partial is true.
+     * The engine chooses the {@link com.primeservice.api.PrimeEngine} of the values which are not cached, or auto for
+     * the cheapest one.
+     */
     @RequestMapping(value = "/primes/{maxNumber}", method = RequestMethod.GET)
     @ResponseBody
-    public PrimeResult getPrimeNumbers(@PathVariable("maxNumber") long maxNumber) {
-        final List<Long> primeNumbers = primeService.getPrimeNumbers(maxNumber);
-        return new PrimeResult(maxNumber, primeNumbers);
+    public CompletableFuture<PrimeResult> getPrimeNumbers(@PathVariable("maxNumber") long maxNumber,
+                                                          @RequestParam(value = "partial", defaultValue = "false")
+                                                                  boolean partial,
+                                                          @RequestParam(value = "engine", required = false)
+                                                                  String engine,
+                                                          @RequestHeader(value = TIMEOUT_HEADER, required = false)
+                                                                  Long timeoutMillis) {
+        primeService.validateRange(0L, maxNumber, engine);
+        return getPrimeNumbers(maxNumber, partial, engine, getDeadline(timeoutMillis));
+    }
+
+    /**
+     * Streams the prime numbers with chunked transfer encoding while they are found, so that the memory of a
+     * request stays bounded however large maxNumber is.
+     * A stream which fails, e.g. at the deadline of the request, is answered with 503 if nothing was sent yet.
+     * Otherwise the response is aborted without completing the body, so that it is not mistaken for a shorter result.
+     */
+    @RequestMapping(value = "/primes/{maxNumber}", params = "stream=true", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> streamPrimeNumbers(@PathVariable("maxNumber") long maxNumber,
+                                                                    @RequestParam(value = "engine", required = false)
+                                                                            String engine,
+                                                                    @RequestHeader(value = TIMEOUT_HEADER,
+                                                                            required = false) Long timeoutMillis) {
+        return streamPrimeNumbers(maxNumber, engine, timeoutMillis, MediaType.APPLICATION_JSON,
+                outputStream -> new StreamingPrimeResultWriter(maxNumber, outputStream));
+    }
+
+    /**
+     * Streams the gaps between the prime numbers as varints, see {@link VarintGapPrimeWriter}.
+     */
+    @RequestMapping(value = "/primes/{maxNumber}", produces = VarintGapPrimeWriter.MEDIA_TYPE,
+            method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getPrimeNumbersAsVarintGaps(
+            @PathVariable("maxNumber") long maxNumber,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        return streamPrimeNumbers(maxNumber, engine, timeoutMillis,
+                MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE), VarintGapPrimeWriter::new);
+    }
+
+    /**
+     * Streams the prime numbers as little-endian 64-bit integers, see {@link LongArrayPrimeWriter}.
+     */
+    @RequestMapping(value = "/primes/{maxNumber}", produces = LongArrayPrimeWriter.MEDIA_TYPE,
+            method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getPrimeNumbersAsLongArray(
+            @PathVariable("maxNumber") long maxNumber,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        return streamPrimeNumbers(maxNumber, engine, timeoutMillis,
+                MediaType.parseMediaType(LongArrayPrimeWriter.MEDIA_TYPE), LongArrayPrimeWriter::new);
+    }
+
+    /**
+     * Counts the prime numbers upto maxNumber. A count which is not cached is computed on the
+     * {@link BoundedComputeExecutor} within the time budget of the request, see {@link #getPrimeNumbers}.
+     */
+    @RequestMapping(value = "/primes/{maxNumber}/count", method = RequestMethod.GET)
+    public CompletableFuture<PrimeCountResult> countPrimeNumbers(@PathVariable("maxNumber") long maxNumber,
+                                                                 @RequestHeader(value = TIMEOUT_HEADER,
+                                                                         required = false) Long timeoutMillis) {
+        final Deadline deadline = getDeadline(timeoutMillis);
+        return computeExecutor.submit(primeService.estimateCountWork(maxNumber),
+                () -> new PrimeCountResult(maxNumber, primeService.countPrimeNumbers(maxNumber, deadline)));
+    }
+
+    /**
+     * Gets the n-th prime number, where the first one is 2. A prime which is not cached is found on the
+     * {@link BoundedComputeExecutor} within the time budget of the request.
+     */
+    @RequestMapping(value = "/primes/nth/{n}", method = RequestMethod.GET)
+    public CompletableFuture<NthPrimeResult> getNthPrimeNumber(@PathVariable("n") long n,
+                                                               @RequestHeader(value = TIMEOUT_HEADER,
+                                                                       required = false) Long timeoutMillis) {
+        final Deadline deadline = getDeadline(timeoutMillis);
+        return computeExecutor.submit(primeService.estimateNthPrimeWork(n),
+                () -> new NthPrimeResult(n, primeService.getNthPrimeNumber(n, deadline)));
+    }
+
+    /**
+     * Gets the first count prime numbers. They are the prime numbers upto the count-th prime, which is found first
+     * so that exactly the values up to it are computed, see {@link #getPrimeNumbers}. Both steps are admitted by the
+     * {@link BoundedComputeExecutor} and share the time budget of the request.
+     */
+    @RequestMapping(value = "/primes/first/{count}", method = RequestMethod.GET)
+    @ResponseBody
+    public CompletableFuture<PrimeResult> getFirstPrimeNumbers(@PathVariable("count") int count,
+                                                               @RequestParam(value = "partial", defaultValue = "false")
+                                                                       boolean partial,
+                                                               @RequestParam(value = "engine", required = false)
+                                                                       String engine,
+                                                               @RequestHeader(value = TIMEOUT_HEADER, required = false)
+                                                                       Long timeoutMillis) {
+        if (count <= 0) {
+            throw new InvalidInputException(count);
+        }
+        primeService.validateEngine(engine);
+        final Deadline deadline = getDeadline(timeoutMillis);
+        return computeExecutor.submit(primeService.estimateNthPrimeWork(count),
+                () -> primeService.getNthPrimeNumber(count, deadline))
+                .thenCompose(maxNumber -> getPrimeNumbers(maxNumber, partial, engine, deadline));
+    }
+
+    /**
+     * Gets a page of the prime numbers from "from" to "to", both inclusive.
+     * The cursor of a page is the value the next page starts from; it is null on the last page.
+     * A page is computed on the {@link BoundedComputeExecutor} within the time budget of the request.
+     */
+    @RequestMapping(value = "/primes", method = RequestMethod.GET)
+    public CompletableFuture<PrimeRangeResult> getPrimeNumbersInRange(
+            @RequestParam("from") long from, @RequestParam("to") long to,
+            @RequestParam(value = "limit", defaultValue = DEFAULT_PAGE_LIMIT) int limit,
+            @RequestParam(value = "cursor", required = false) Long cursor,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        validateRange(from, to);
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new InvalidInputException(limit);
+        }
+        final long pageStart = cursor == null ? from : cursor;
+        if (pageStart < from || pageStart > to) {
+            throw new InvalidInputException(pageStart);
+        }
+        primeService.validateEngine(engine);
+        final Deadline deadline = getDeadline(timeoutMillis);
+        return computeExecutor.submit(primeService.estimateWork(pageStart, to, limit), () -> {
+            final List<Long> primeNumbers = primeService.getPrimeSequence(pageStart, to, limit, engine, deadline)
+                    .asList();
+
+            String nextCursor = null;
+            if (primeNumbers.size() == limit) {
+                final long lastPrime = primeNumbers.get(primeNumbers.size() - 1);
+                if (lastPrime < to) {
+                    nextCursor = Long.toString(lastPrime + 1L);
+                }
+            }
+            return new PrimeRangeResult(from, to, primeNumbers, nextCursor);
+        });
+    }
+
+    /**
+     * Streams all the prime numbers from "from" to "to", both inclusive, as varint gaps without paging.
+     * The peers of a {@link PrimeRangeCoordinator} answer its segments with it. The primes are written segment by
+     * segment while they are found, so that a request only holds one segment in memory.
+     */
+    @RequestMapping(value = "/primes", produces = VarintGapPrimeWriter.MEDIA_TYPE, method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getPrimeNumbersInRangeAsVarintGaps(
+            @RequestParam("from") long from, @RequestParam("to") long to,
+            @RequestParam(value = "engine", required = false) String engine,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        primeService.validateRange(from, to, engine);
+        final Deadline deadline = getDeadline(timeoutMillis);
+        final long work = primeService.estimateWork(to) - primeService.estimateWork(from - 1L);
+        computeExecutor.admit(work);
+        final StreamingResponseBody body = outputStream -> {
+            try {
+                writeBody(outputStream, VarintGapPrimeWriter::new,
+                        writer -> primeService.forEachPrimeNumber(from, to, engine, deadline, writer));
+            } finally {
+                computeExecutor.release(work, 0L);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE)).body(body);
+    }
+
+    /**
+     * Streams the prime numbers from "from" to "to", both inclusive, which the peers of the
+     * {@link PrimeRangeCoordinator} calculate. Answers 404 if no peers are configured.
+     * A segment which fails on every peer, or the expiry of the deadline, aborts the response without completing
+     * the body, see {@link #streamPrimeNumbers}.
+     */
+    @RequestMapping(value = "/primes/fanout", method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getPrimeNumbersFromPeers(
+            @RequestParam("from") long from, @RequestParam("to") long to,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        return streamPrimeNumbersFromPeers(from, to, timeoutMillis, MediaType.APPLICATION_JSON,
+                outputStream -> new StreamingPrimeResultWriter(to, outputStream));
+    }
+
+    /**
+     * Streams the prime numbers which the peers calculate as varint gaps, see {@link #getPrimeNumbersFromPeers}.
+     */
+    @RequestMapping(value = "/primes/fanout", produces = VarintGapPrimeWriter.MEDIA_TYPE, method = RequestMethod.GET)
+    public ResponseEntity<StreamingResponseBody> getPrimeNumbersFromPeersAsVarintGaps(
+            @RequestParam("from") long from, @RequestParam("to") long to,
+            @RequestHeader(value = TIMEOUT_HEADER, required = false) Long timeoutMillis) {
+        return streamPrimeNumbersFromPeers(from, to, timeoutMillis,
+                MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE),
+                VarintGapPrimeWriter::new);
+    }
+
+    /**
+     * Answers many limits, ranges and checks with one pass over the values they need, see {@link PrimeBatch}.
+     */
+    @RequestMapping(value = "/primes/batch", method = RequestMethod.POST)
+    public CompletableFuture<PrimeBatchResult> getPrimeNumbersInBatch(@RequestBody PrimeBatchRequest request,
+                                                                      @RequestHeader(value = TIMEOUT_HEADER,
+                                                                              required = false) Long timeoutMillis) {
+        final PrimeBatch batch = new PrimeBatch(primeService, request, getDeadline(timeoutMillis));
+        return computeExecutor.submit(batch.estimateWork(), batch::execute);
+    }
+
+    @RequestMapping(value = "/isprime/{n}", method = RequestMethod.GET)
+    @ResponseBody
+    public PrimalityResult isPrime(@PathVariable("n") long n) {
+        return new PrimalityResult(n, PrimeNumberUtil.isPrime(n));
+    }
+
+    /**
+     * Gets the prime factors of n in ascending order, every factor as many times as it divides n.
+     */
+    @RequestMapping(value = "/factors/{n}", method = RequestMethod.GET)
+    @ResponseBody
+    public FactorizationResult getPrimeFactors(@PathVariable("n") long n) {
+        if (n <= 0) {
+            throw new InvalidInputException(n);
+        }
+        return new FactorizationResult(n, PrimeFactorizer.factorize(n));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<String> tooManyRequests(TooManyRequestsException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    /**
+     * Streams the prime numbers of a range from the peers, segment by segment in the order of the range.
+     * The peers do the calculation, but the values which the coordinator merges are admitted as its work.
+     */
+    private ResponseEntity<StreamingResponseBody> streamPrimeNumbersFromPeers(long from, long to, Long timeoutMillis,
+                                                                              MediaType mediaType,
+                                                                              PrimeWriter.Factory writerFactory) {
+        if (rangeCoordinator == null) {
+            return ResponseEntity.notFound().build();
+        }
+        validateRange(from, to);
+        final Deadline deadline = getDeadline(timeoutMillis);
+        final long work = to - from;
+        computeExecutor.admit(work);
+        final StreamingResponseBody body = outputStream -> {
+            try {
+                writeBody(outputStream, writerFactory,
+                        writer -> rangeCoordinator.forEachPrime(from, to, deadline, writer));
+            } finally {
+                computeExecutor.release(work, 0L);
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
+
+    private static void validateRange(long from, long to) {
+        if (from < 0) {
+            throw new InvalidInputException(from);
+        }
+        if (to < from) {
+            throw new InvalidInputException(to);
+        }
+    }
+
+    /**
+     * Gets the prime numbers upto maxNumber on the {@link BoundedComputeExecutor}, see {@link #getPrimeNumbers}.
+     */
+    private CompletableFuture<PrimeResult> getPrimeNumbers(long maxNumber, boolean partial, String engine,
+                                                           Deadline deadline) {
+        return computeExecutor.submit(primeService.estimateWork(maxNumber), () -> {
+            try {
+                final List<Long> primeNumbers = primeService.getPrimeSequence(maxNumber, engine, deadline).asList();
+                return new PrimeResult(maxNumber, primeNumbers);
+            } catch (DeadlineExceededException e) {
+                if (!partial) {
+                    throw e;
+                }
+                return new PrimeResult(maxNumber, e.getPartialResult().asList(), false);
+            }
+        });
+    }
+
+    /**
+     * @param timeoutMillis - time budget from the {@link #TIMEOUT_HEADER}, or null to use the configured one.
+     * @return Deadline - the deadline of the request, which starts before it waits for the executor.
+     */
+    private Deadline getDeadline(Long timeoutMillis) {
+        if (timeoutMillis != null && timeoutMillis < 0) {
+            throw new InvalidInputException(timeoutMillis);
+        }
+        return Deadline.after(timeoutMillis == null ? defaultTimeoutMillis : timeoutMillis);
+    }
+
+    /**
+     * Streams the prime numbers upto maxNumber straight from the engine, without boxing them.
+     * The work is admitted by the {@link BoundedComputeExecutor} before the response starts.
+     */
+    private ResponseEntity<StreamingResponseBody> streamPrimeNumbers(long maxNumber, String engine,
+                                                                     Long timeoutMillis, MediaType mediaType,
+                                                                     PrimeWriter.Factory writerFactory) {
+        if (maxNumber <= 0) {
+            throw new InvalidInputException(maxNumber);
+        }
+        primeService.validateEngine(engine);
+        final Deadline deadline = getDeadline(timeoutMillis);
+        final long work = primeService.estimateWork(maxNumber);
+        computeExecutor.admit(work);
+        final StreamingResponseBody body = outputStream -> {
+            try {
+                writeBody(outputStream, writerFactory,
+                        writer -> primeService.forEachPrimeNumber(maxNumber, engine, deadline, writer));
+            } finally {
+                //The time of a stream depends on the client, so it is not a measure of the throughput.
+                computeExecutor.release(work, 0L);
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
+    }
 
+    /**
+     * Writes the prime numbers of a body and completes it by closing the writer. If they fail, the writer is not
+     * closed and the failure is rethrown, so that the server aborts the response instead of ending a shorter body
+     * which looks complete.
+     */
+    private static void writeBody(OutputStream outputStream, PrimeWriter.Factory writerFactory,
+                                  Consumer<PrimeWriter> primes) throws IOException {
+        final PrimeWriter writer = writerFactory.create(outputStream);
+        primes.accept(writer);
+        writer.close();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.primeservice.app;
+
+import com.primeservice.api.PrimeConsumer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the prime numbers to a response body while they are found, in one of the formats of the service.
+ * Closing the writer completes the body, so a writer whose primes failed is not closed.
+ */
+interface PrimeWriter extends PrimeConsumer, Closeable {
+
+    /**
+     * Creates a writer on the output stream of a response.
+     */
+    interface Factory {
+
+        PrimeWriter create(OutputStream outputStream) throws IOException;
+    }
+}
@@ -0,0 +1,56 @@
+package com.primeservice.app;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.primeservice.domainmodel.PrimeResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the prime numbers as the JSON of a {@link PrimeResult} while they are found.
+ * The output is flushed after every segment, so only the current segment is buffered.
+ */
+class StreamingPrimeResultWriter implements PrimeWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final JsonGenerator generator;
+
+    StreamingPrimeResultWriter(long initialVal, OutputStream outputStream) throws IOException {
+        this.generator = JSON_FACTORY.createGenerator(outputStream);
+        generator.writeStartObject();
+        generator.writeNumberField("initialVal", initialVal);
+        generator.writeArrayFieldStart("primies");
+    }
+
+    @Override
+    public void accept(long prime) {
+        try {
+            generator.writeNumber(prime);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void segmentCompleted() {
+        try {
+            generator.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Completes the JSON document.
+     */
+    @Override
+    public void close() throws IOException {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.primeservice.app;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads the prime numbers written by a {@link VarintGapPrimeWriter}.
+ */
+final class VarintGapPrimeReader {
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private VarintGapPrimeReader() {
+    }
+
+    /**
+     * Passes every prime number of the stream to the consumer, until the end of the stream.
+     *
+     * @param inputStream - varint gaps.
+     * @param consumer    - receives the prime numbers.
+     * @throws EOFException if the stream ends within a varint.
+     */
+    static void read(InputStream inputStream, LongConsumer consumer) throws IOException {
+        final byte[] buffer = new byte[BUFFER_BYTES];
+        long prime = 0L;
+        long gap = 0L;
+        int shift = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                final byte b = buffer[i];
+                gap |= (b & 0x7FL) << shift;
+                shift += 7;
+                if (b >= 0) {
+                    prime += gap;
+                    consumer.accept(prime);
+                    gap = 0L;
+                    shift = 0;
+                }
+            }
+        }
+        if (shift != 0) {
+            throw new EOFException("Stream ended within a varint");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.primeservice.app;
+
+import java.io.OutputStream;
+
+/**
+ * Writes the gaps between the prime numbers as unsigned LEB128 varints. The first gap is the first prime itself.
+ * Gaps below 128 take a single byte, which covers almost every gap of the primes a service returns.
+ */
+class VarintGapPrimeWriter extends BinaryPrimeWriter {
+
+    static final String MEDIA_TYPE = "application/x-prime-varint-gaps";
+
+    private long previousPrime;
+
+    VarintGapPrimeWriter(OutputStream outputStream) {
+        super(outputStream);
+    }
+
+    @Override
+    protected void encode(long prime) {
+        long gap = prime - previousPrime;
+        previousPrime = prime;
+        while ((gap & ~0x7FL) != 0L) {
+            buffer.put((byte) (gap | 0x80L));
+            gap >>>= 7;
+        }
+        buffer.put((byte) gap);
+    }
+}
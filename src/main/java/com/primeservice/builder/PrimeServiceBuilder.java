@@ -1,7 +1,22 @@
 package com.primeservice.builder;
 
+import com.primeservice.ManagedPrimeService;
 import com.primeservice.MultiThreadedCachedPrimeService;
+import com.primeservice.api.PrimeEngine;
 import com.primeservice.api.PrimeService;
+import com.primeservice.cache.PrimeFrontier;
+import com.primeservice.cache.PrimeSegmentCache;
+import com.primeservice.engine.PrimeEngineSelector;
+import com.primeservice.engine.SegmentedSieveEngine;
+import com.primeservice.util.DirectBufferArena;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Builder class for {@link PrimeService}
@@ -12,17 +27,88 @@ public class PrimeServiceBuilder {
 
     private int noOfParallelThreads = 1;
 
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Path snapshotFile;
+
+    private long maxCacheSizeInBytes = PrimeFrontier.DEFAULT_MAX_SIZE_IN_BYTES;
+
+    private final List<PrimeEngine> engines = new ArrayList<>(PrimeEngineSelector.getBuiltInEngines());
+
+    private String defaultEngine = SegmentedSieveEngine.NAME;
+
+    private long maxPooledBytes = DirectBufferArena.DEFAULT_MAX_POOLED_BYTES;
+
     public PrimeServiceBuilder withCacheEnabled() {
         this.cacheEnabled = true;
         return this;
     }
 
+    /**
+     * Sizes the pool of workers. Every calculation uses as many of them as its range is worth.
+     */
     public PrimeServiceBuilder withMultiThreadedEnabled(int noOfParallelThreads) {
         this.noOfParallelThreads = noOfParallelThreads;
         return this;
     }
 
-    public PrimeService build() {
-        return new MultiThreadedCachedPrimeService(cacheEnabled, noOfParallelThreads);
+    public PrimeServiceBuilder withMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        return this;
+    }
+
+    /**
+     * Persists the cache in a memory-mapped snapshot file, so that it survives restarts.
+     */
+    public PrimeServiceBuilder withSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        return this;
+    }
+
+    /**
+     * Bounds the memory used by the cache, see {@link PrimeFrontier} and {@link PrimeSegmentCache}.
+     */
+    public PrimeServiceBuilder withMaxCacheSize(long maxCacheSizeInBytes) {
+        this.maxCacheSizeInBytes = maxCacheSizeInBytes;
+        return this;
+    }
+
+    /**
+     * Registers an engine next to the built-in ones, see {@link PrimeEngineSelector#getBuiltInEngines()}. It replaces
+     * a built-in engine of the same name.
+     */
+    public PrimeServiceBuilder withEngine(PrimeEngine engine) {
+        this.engines.add(engine);
+        return this;
+    }
+
+    /**
+     * Sets the engine of the requests which do not name one, or {@link PrimeEngine#AUTO} for the one with the lowest
+     * estimated cost for every range. The segmented sieve by default.
+     */
+    public PrimeServiceBuilder withDefaultEngine(String defaultEngine) {
+        this.defaultEngine = defaultEngine;
+        return this;
+    }
+
+    /**
+     * Bounds the idle off-heap buffers which are kept for the next calculations, see {@link DirectBufferArena}.
+     */
+    public PrimeServiceBuilder withMaxPooledBytes(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        return this;
+    }
+
+    public ManagedPrimeService build() {
+        PrimeFrontier primeFrontier = new PrimeFrontier(maxCacheSizeInBytes);
+        if (cacheEnabled && snapshotFile != null) {
+            try {
+                primeFrontier = PrimeFrontier.open(snapshotFile, maxCacheSizeInBytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open the prime snapshot " + snapshotFile, e);
+            }
+        }
+        return new MultiThreadedCachedPrimeService(cacheEnabled, noOfParallelThreads, meterRegistry, primeFrontier,
+                new PrimeEngineSelector(engines, defaultEngine), new DirectBufferArena(maxPooledBytes));
     }
 }
@@ -0,0 +1,79 @@
+package com.primeservice.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of the bitmap of a {@link PrimeFrontier}.
+ * The frontier only writes bytes after its limit, and commits a new limit once all the bytes up to it are written.
+ */
+interface FrontierStorage extends Closeable {
+
+    /**
+     * @return long - the limit which was committed when the storage was opened.
+     */
+    long getLimit();
+
+    /**
+     * @return ByteBuffer - the bitmap, addressed with absolute indexes from 0.
+     */
+    ByteBuffer getBits();
+
+    /**
+     * Grows the bitmap. Buffers returned before stay readable.
+     *
+     * @param capacity - the number of bytes required.
+     * @return ByteBuffer - a bitmap of at least capacity bytes with the contents of the current one.
+     */
+    ByteBuffer grow(int capacity) throws IOException;
+
+    /**
+     * Makes the bitmap up to the new limit durable.
+     *
+     * @param newLimit - the new limit of the frontier.
+     */
+    void commit(long newLimit) throws IOException;
+
+    /**
+     * Storage which keeps the bitmap in a direct buffer off the heap and does not persist it. The buffers are not
+     * pooled, since the snapshots of the frontier keep reading the previous one after it grows.
+     */
+    final class Direct implements FrontierStorage {
+
+        private ByteBuffer bits;
+
+        Direct(int capacity) {
+            this.bits = ByteBuffer.allocateDirect(capacity);
+        }
+
+        @Override
+        public long getLimit() {
+            return 1L;
+        }
+
+        @Override
+        public ByteBuffer getBits() {
+            return bits;
+        }
+
+        @Override
+        public ByteBuffer grow(int capacity) {
+            final ByteBuffer source = bits.duplicate();
+            source.clear();
+            final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+            grown.put(source);
+            grown.clear();
+            bits = grown;
+            return grown;
+        }
+
+        @Override
+        public void commit(long newLimit) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.primeservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Storage of a frontier in a memory-mapped file, so that the primes survive a restart and are read straight from the
+ * page cache.
+ * The file starts with a header of {@link #HEADER_BYTES} bytes:
+ * <pre>
+ *  0: int  magic "PRMF"
+ *  4: int  version
+ *  8: long limit
+ * 16: long CRC-32 of the complete bitmap bytes, i.e. the bytes which only cover values up to the limit
+ * </pre>
+ * and is followed by the bitmap. The checksum is continued on every commit, so only the new bytes are read. Every
+ * commit forces the mapping of the bitmap, which only writes its dirty pages, i.e. the new bytes, and then the header.
+ * The bitmap is only mapped again when it grows, which the frontier does geometrically.
+ * A file which fails the checks is discarded and the frontier starts empty. The file is kept open until the storage is
+ * closed.
+ */
+final class MappedFrontierFile implements FrontierStorage {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedFrontierFile.class);
+
+    static final int HEADER_BYTES = 64;
+
+    static final int MAGIC = 0x50524D46;
+
+    static final int VERSION = 1;
+
+    private static final int LIMIT_OFFSET = 8;
+
+    private static final int CHECKSUM_OFFSET = 16;
+
+    private static final int[] CRC_TABLE = new int[256];
+
+    static {
+        for (int n = 0; n < CRC_TABLE.length; n++) {
+            int crc = n;
+            for (int k = 0; k < 8; k++) {
+                crc = (crc & 1) != 0 ? 0xEDB88320 ^ (crc >>> 1) : crc >>> 1;
+            }
+            CRC_TABLE[n] = crc;
+        }
+    }
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    /**
+     * Mapping of the header, which is forced on its own.
+     */
+    private MappedByteBuffer header;
+
+    private MappedByteBuffer bits;
+
+    private long limit;
+
+    private long checksum;
+
+    private MappedFrontierFile(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the file, or creates it if it does not exist.
+     *
+     * @param file            - the file of the frontier.
+     * @param initialCapacity - the number of bitmap bytes to map at least.
+     * @return MappedFrontierFile - the storage with the limit and the bitmap read from the file.
+     */
+    static MappedFrontierFile open(Path file, int initialCapacity) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final MappedFrontierFile storage = new MappedFrontierFile(file, channel);
+        try {
+            storage.load(initialCapacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return storage;
+    }
+
+    private void load(int initialCapacity) throws IOException {
+        long completeBytes = 0L;
+        if (channel.size() >= HEADER_BYTES) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0L);
+            final long storedLimit = header.getLong(LIMIT_OFFSET);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                LOGGER.warn("Discarding prime snapshot " + file + " of an unknown format");
+            } else if (storedLimit < 1L || storedLimit > PrimeFrontier.MAX_LIMIT
+                    || channel.size() < HEADER_BYTES + (storedLimit + 1L) / 30L) {
+                LOGGER.warn("Discarding prime snapshot " + file + " with an invalid limit " + storedLimit);
+            } else {
+                completeBytes = (storedLimit + 1L) / 30L;
+                checksum = header.getLong(CHECKSUM_OFFSET);
+            }
+        }
+
+        //Bytes after the complete ones are not covered by the checksum, and may hold bits of an unfinished append.
+        channel.truncate(HEADER_BYTES + completeBytes);
+        map((int) Math.max(initialCapacity, completeBytes + 1L));
+        if (completeBytes > 0L && updateChecksum(0L, bits, 0, (int) completeBytes) != checksum) {
+            LOGGER.warn("Discarding prime snapshot " + file + " with a wrong checksum");
+            channel.truncate(HEADER_BYTES);
+            map(initialCapacity);
+            completeBytes = 0L;
+        }
+        if (completeBytes == 0L) {
+            checksum = 0L;
+        }
+        limit = Math.max(1L, 30L * completeBytes - 1L);
+        writeHeader();
+        LOGGER.info("Opened prime snapshot " + file + " with limit " + limit);
+    }
+
+    /**
+     * Maps the bitmap. The mapping is replaced when the bitmap grows.
+     */
+    private void map(int capacity) throws IOException {
+        if (header == null) {
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0L, HEADER_BYTES);
+        }
+        bits = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, capacity);
+    }
+
+    private void writeHeader() {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(LIMIT_OFFSET, limit);
+        header.putLong(CHECKSUM_OFFSET, checksum);
+    }
+
+    @Override
+    public long getLimit() {
+        return limit;
+    }
+
+    @Override
+    public ByteBuffer getBits() {
+        return bits;
+    }
+
+    @Override
+    public ByteBuffer grow(int capacity) throws IOException {
+        //The old mapping stays valid for the snapshots which still read it.
+        map(capacity);
+        return bits;
+    }
+
+    @Override
+    public void commit(long newLimit) throws IOException {
+        //The mappings outlive the channel, but nothing is made durable once the file is closed.
+        if (!channel.isOpen()) {
+            throw new ClosedChannelException();
+        }
+        final int completeBytes = (int) ((limit + 1L) / 30L);
+        final int newCompleteBytes = (int) ((newLimit + 1L) / 30L);
+        checksum = updateChecksum(checksum, bits, completeBytes, newCompleteBytes);
+        //The bitmap is flushed before the header, so that a header never covers bytes which were not written. The
+        //pages before the new bytes were forced by the previous commits, so they are clean and not written again.
+        if (newCompleteBytes > completeBytes) {
+            bits.force();
+        }
+        limit = newLimit;
+        writeHeader();
+        header.force();
+    }
+
+    /**
+     * Closes the file. The bitmaps which were mapped stay readable.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Continues a CRC-32 with the bytes from to to, exclusive. It matches {@link java.util.zip.CRC32}.
+     */
+    static long updateChecksum(long checksum, ByteBuffer bytes, int from, int to) {
+        int crc = ~(int) checksum;
+        for (int i = from; i < to; i++) {
+            crc = CRC_TABLE[(crc ^ bytes.get(i)) & 0xFF] ^ (crc >>> 8);
+        }
+        return ~crc & 0xFFFFFFFFL;
+    }
+}
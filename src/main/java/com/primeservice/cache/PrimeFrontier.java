@@ -0,0 +1,524 @@
+package com.primeservice.cache;
+
+import com.primeservice.api.PrimeSequence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * A single, monotonically growing frontier of the prime numbers from 2 to a limit.
+ * The primes are stored in a mod-30 wheel compressed bitmap: every byte covers 30 integers and has one bit for each
+ * of the 8 residues which are coprime to 30. The primes 2, 3 and 5 are not part of the bitmap.
+ * Any maxValue at or below the limit is answered as a {@link PrimeSequence} view of the bitmap without copying it.
+ * The bitmap is kept in a direct buffer off the heap, or in a memory-mapped snapshot file which survives restarts,
+ * see {@link #open}.
+ * The bitmap and its index never grow beyond a maximum size in bytes, which bounds the limit, see {@link #getMaxLimit}.
+ */
+public class PrimeFrontier implements Closeable {
+
+    /**
+     * Largest limit which can be addressed by the bitmap.
+     */
+    public static final long MAX_LIMIT = 30L * (Integer.MAX_VALUE - 1024) - 1L;
+
+    /**
+     * Maximum size of a frontier, unless another one is given.
+     */
+    public static final long DEFAULT_MAX_SIZE_IN_BYTES = 1L << 28;
+
+    /**
+     * Number of bitmap bytes covered by one entry of the prime count index.
+     */
+    static final int BLOCK_BYTES = 64;
+
+    /**
+     * Number of bitmap bytes after which {@link #forEachPrime} notifies its segment listener.
+     */
+    static final int SEGMENT_BYTES = 1 << 13;
+
+    private static final long[] SMALL_PRIMES = {2L, 3L, 5L};
+
+    private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+    /**
+     * Bit of every residue mod 30, or -1 if the residue is not coprime to 30.
+     */
+    private static final int[] RESIDUE_BIT = new int[30];
+
+    /**
+     * Mask of the bits with a residue smaller than or equal to every residue mod 30.
+     */
+    private static final int[] RESIDUE_PREFIX_MASK = new int[30];
+
+    static {
+        Arrays.fill(RESIDUE_BIT, -1);
+        for (int bit = 0; bit < RESIDUES.length; bit++) {
+            RESIDUE_BIT[RESIDUES[bit]] = bit;
+        }
+        int mask = 0;
+        for (int residue = 0; residue < 30; residue++) {
+            if (RESIDUE_BIT[residue] >= 0) {
+                mask |= 1 << RESIDUE_BIT[residue];
+            }
+            RESIDUE_PREFIX_MASK[residue] = mask;
+        }
+    }
+
+    /**
+     * Storage of the bitmap.
+     */
+    private final FrontierStorage storage;
+
+    /**
+     * Largest number of bytes the bitmap and its index may use.
+     */
+    private final long maxSizeInBytes;
+
+    /**
+     * Largest number of bytes of the bitmap, so that it stays within maxSizeInBytes together with its index.
+     */
+    private final int maxCapacity;
+
+    /**
+     * Current state of the frontier. It is replaced on every append.
+     */
+    private volatile Snapshot snapshot;
+
+    public PrimeFrontier() {
+        this(DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    /**
+     * @param maxSizeInBytes - largest number of bytes the frontier may use.
+     */
+    public PrimeFrontier(long maxSizeInBytes) {
+        this(new FrontierStorage.Direct(BLOCK_BYTES), maxSizeInBytes);
+    }
+
+    PrimeFrontier(FrontierStorage storage, long maxSizeInBytes) {
+        this.storage = storage;
+        this.maxSizeInBytes = maxSizeInBytes;
+        //The index takes 8 bytes for every block and 2 more entries.
+        final long capacity = Math.max(0L, maxSizeInBytes - 16L) / (BLOCK_BYTES + 8L) * BLOCK_BYTES;
+        this.maxCapacity = (int) Math.max(BLOCK_BYTES, Math.min(capacity, MAX_LIMIT / 30L + 1L));
+        final ByteBuffer bits = storage.getBits();
+        final long limit = storage.getLimit();
+        final int lastBlock = (int) (limit / 30L) / BLOCK_BYTES + 1;
+        this.snapshot = new Snapshot(bits, indexBlocks(new long[lastBlock + 1], bits, 0, lastBlock), limit);
+    }
+
+    /**
+     * Opens a frontier which is persisted in a memory-mapped snapshot file. The primes already in the file are
+     * served from the page cache, and every append is flushed to the file.
+     *
+     * @param file - the snapshot file, which is created if it does not exist.
+     * @return PrimeFrontier - the frontier with the primes of the file.
+     */
+    public static PrimeFrontier open(Path file) throws IOException {
+        return open(file, DEFAULT_MAX_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Opens a frontier which is persisted in a memory-mapped snapshot file, see {@link #open(Path)}.
+     *
+     * @param file           - the snapshot file, which is created if it does not exist.
+     * @param maxSizeInBytes - largest number of bytes the frontier may use.
+     * @return PrimeFrontier - the frontier with the primes of the file.
+     */
+    public static PrimeFrontier open(Path file, long maxSizeInBytes) throws IOException {
+        return new PrimeFrontier(MappedFrontierFile.open(file, SEGMENT_BYTES), maxSizeInBytes);
+    }
+
+    /**
+     * @return long - the largest value for which all the prime numbers are known.
+     */
+    public long getLimit() {
+        return snapshot.limit;
+    }
+
+    /**
+     * @return long - the largest limit the frontier may be extended to within its maximum size.
+     */
+    public long getMaxLimit() {
+        return 30L * maxCapacity - 1L;
+    }
+
+    public long getMaxSizeInBytes() {
+        return maxSizeInBytes;
+    }
+
+    /**
+     * Closes the snapshot file, if the frontier has one. The primes which were appended stay readable, but no more
+     * can be appended.
+     */
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    /**
+     * @return long - the number of bytes used by the bitmap and its index.
+     */
+    public long getSizeInBytes() {
+        final Snapshot current = snapshot;
+        return current.bits.capacity() + 8L * current.blockCounts.length;
+    }
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value as a read-only view of the frontier.
+     *
+     * @param maxValue - must not be larger than the limit of the frontier.
+     * @return List - prime numbers up to maxValue in ascending order.
+     */
+    public List<Long> getPrimeNumbers(long maxValue) {
+        return getPrimeSequence(maxValue).asList();
+    }
+
+    /**
+     * Gets all the PrimeNumbers upto a maximum value as a view of the frontier without boxing them.
+     *
+     * @param maxValue - must not be larger than the limit of the frontier.
+     * @return PrimeSequence - prime numbers up to maxValue in ascending order.
+     */
+    public PrimeSequence getPrimeSequence(long maxValue) {
+        final Snapshot current = snapshot;
+        checkCovered(current, maxValue);
+        return new BitmapSequence(current, 0, Math.toIntExact(current.count(maxValue)));
+    }
+
+    /**
+     * Counts the prime numbers upto a maximum value.
+     *
+     * @param maxValue - must not be larger than the limit of the frontier.
+     * @return long - the number of primes smaller than or equal to maxValue.
+     */
+    public long countPrimeNumbers(long maxValue) {
+        final Snapshot current = snapshot;
+        checkCovered(current, maxValue);
+        return current.count(maxValue);
+    }
+
+    /**
+     * Gets the n-th prime number out of the frontier.
+     *
+     * @param n - index of the prime, where the first prime is 2. Must not be larger than the number of primes upto
+     *          the limit of the frontier.
+     * @return long - the n-th prime.
+     */
+    public long getNthPrime(long n) {
+        final Snapshot current = snapshot;
+        if (n < 1L || n > current.count(current.limit)) {
+            throw new IllegalArgumentException("Prime " + n + " is beyond the frontier " + current.limit);
+        }
+        if (n <= SMALL_PRIMES.length) {
+            return SMALL_PRIMES[(int) n - 1];
+        }
+        return current.select(n - 1L - SMALL_PRIMES.length);
+    }
+
+    /**
+     * Passes the prime numbers from minValue to maxValue, both inclusive, to the consumer in ascending order without
+     * boxing them. The segmentListener is notified after every {@link #SEGMENT_BYTES} bytes of the bitmap.
+     *
+     * @param minValue        - start of the range.
+     * @param maxValue        - end of the range, must not be larger than the limit of the frontier.
+     * @param consumer        - receives the prime numbers.
+     * @param segmentListener - notified after every segment.
+     */
+    public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Runnable segmentListener) {
+        final Snapshot current = snapshot;
+        checkCovered(current, maxValue);
+        for (long smallPrime : SMALL_PRIMES) {
+            if (smallPrime >= minValue && smallPrime <= maxValue) {
+                consumer.accept(smallPrime);
+            }
+        }
+        if (maxValue >= 7L) {
+            final int lastByte = (int) (maxValue / 30L);
+            for (int i = (int) (Math.max(0L, minValue) / 30L); i <= lastByte; i++) {
+                int bitmap = current.bits.get(i) & 0xFF;
+                while (bitmap != 0) {
+                    final long prime = 30L * i + RESIDUES[Integer.numberOfTrailingZeros(bitmap)];
+                    if (prime > maxValue) {
+                        break;
+                    }
+                    if (prime >= minValue) {
+                        consumer.accept(prime);
+                    }
+                    bitmap &= bitmap - 1;
+                }
+                if ((i + 1) % SEGMENT_BYTES == 0) {
+                    segmentListener.run();
+                }
+            }
+        }
+        segmentListener.run();
+    }
+
+    /**
+     * Appends the prime numbers between the current limit and the new limit to the frontier.
+     *
+     * @param newLimit - the new limit of the frontier.
+     * @param primes   - all the prime numbers after the current limit up to the new limit, in any order.
+     */
+    public void append(long newLimit, Iterable<Long> primes) {
+        appendPrimes(newLimit, consumer -> primes.forEach(consumer::accept));
+    }
+
+    /**
+     * Appends the prime numbers between the current limit and the new limit to the frontier without boxing them.
+     *
+     * @param newLimit - the new limit of the frontier.
+     * @param primes   - all the prime numbers after the current limit up to the new limit.
+     */
+    public void append(long newLimit, PrimeSequence primes) {
+        appendPrimes(newLimit, primes::forEach);
+    }
+
+    /**
+     * Appends the prime numbers between the current limit and the new limit to the frontier from a source which
+     * passes them to a consumer, e.g. straight from the bitmaps of a calculation, without holding them in between.
+     *
+     * @param newLimit - the new limit of the frontier.
+     * @param primes   - passes all the prime numbers after the current limit up to the new limit to its consumer.
+     */
+    public synchronized void appendPrimes(long newLimit, Consumer<LongConsumer> primes) {
+        final Snapshot current = snapshot;
+        if (newLimit <= current.limit) {
+            return;
+        }
+        if (newLimit > getMaxLimit()) {
+            throw new IllegalArgumentException("Frontier limit " + newLimit + " is larger than " + getMaxLimit());
+        }
+        final int lastByte = (int) (newLimit / 30L);
+        final ByteBuffer bits;
+        try {
+            if (lastByte >= current.bits.capacity()) {
+                bits = storage.grow(Math.max(lastByte + 1, (int) Math.min(maxCapacity, 2L * current.bits.capacity())));
+            } else {
+                bits = current.bits;
+            }
+
+            //Only the bits after the current limit are written, so existing views never observe a change.
+            primes.accept(prime -> {
+                if (prime > current.limit && prime <= newLimit && prime > 5L) {
+                    final int index = (int) (prime / 30L);
+                    bits.put(index, (byte) (bits.get(index) | 1 << RESIDUE_BIT[(int) (prime % 30L)]));
+                }
+            });
+            storage.commit(newLimit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        //Extend the count index from the block which contained the old limit.
+        final int firstBlock = (int) (current.limit / 30L) / BLOCK_BYTES;
+        final int lastBlock = lastByte / BLOCK_BYTES + 1;
+        long[] blockCounts = current.blockCounts;
+        if (lastBlock >= blockCounts.length) {
+            final int maxBlocks = maxCapacity / BLOCK_BYTES + 2;
+            blockCounts = Arrays.copyOf(blockCounts, Math.max(lastBlock + 1,
+                    (int) Math.min(maxBlocks, 2L * blockCounts.length)));
+        }
+        snapshot = new Snapshot(bits, indexBlocks(blockCounts, bits, firstBlock, lastBlock), newLimit);
+    }
+
+    /**
+     * Fills the prime counts of the blocks after firstBlock up to lastBlock.
+     */
+    private static long[] indexBlocks(long[] blockCounts, ByteBuffer bits, int firstBlock, int lastBlock) {
+        for (int block = firstBlock; block < lastBlock; block++) {
+            blockCounts[block + 1] = blockCounts[block] + popCount(bits, block * BLOCK_BYTES,
+                    Math.min(bits.capacity(), (block + 1) * BLOCK_BYTES));
+        }
+        return blockCounts;
+    }
+
+    private static void checkCovered(Snapshot current, long maxValue) {
+        if (maxValue > current.limit) {
+            throw new IllegalArgumentException("Max value " + maxValue + " is beyond the frontier " + current.limit);
+        }
+    }
+
+    private static long popCount(ByteBuffer bits, int from, int to) {
+        long count = 0L;
+        for (int i = from; i < to; i++) {
+            count += Integer.bitCount(bits.get(i) & 0xFF);
+        }
+        return count;
+    }
+
+    /**
+     * Immutable state of the frontier. Bytes after the limit may be written by a later append.
+     */
+    private static final class Snapshot {
+
+        private final ByteBuffer bits;
+
+        /**
+         * Number of primes in the bitmap before every block of {@link #BLOCK_BYTES} bytes.
+         */
+        private final long[] blockCounts;
+
+        private final long limit;
+
+        private Snapshot(ByteBuffer bits, long[] blockCounts, long limit) {
+            this.bits = bits;
+            this.blockCounts = blockCounts;
+            this.limit = limit;
+        }
+
+        private long count(long maxValue) {
+            long count = 0L;
+            for (long smallPrime : SMALL_PRIMES) {
+                if (smallPrime <= maxValue) {
+                    count++;
+                }
+            }
+            if (maxValue < 7L) {
+                return count;
+            }
+            final int lastByte = (int) (maxValue / 30L);
+            final int block = lastByte / BLOCK_BYTES;
+            count += blockCounts[block] + popCount(bits, block * BLOCK_BYTES, lastByte);
+            return count + Integer.bitCount(bits.get(lastByte) & RESIDUE_PREFIX_MASK[(int) (maxValue % 30L)]);
+        }
+
+        /**
+         * Gets the prime with the given zero based rank in the bitmap.
+         */
+        private long select(long rank) {
+            //Largest block which starts with fewer primes than the rank.
+            int low = 0;
+            int high = (int) (limit / 30L) / BLOCK_BYTES;
+            while (low < high) {
+                final int mid = (low + high + 1) >>> 1;
+                if (blockCounts[mid] <= rank) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            long remaining = rank - blockCounts[low];
+            for (int i = low * BLOCK_BYTES; ; i++) {
+                int bitmap = bits.get(i) & 0xFF;
+                final int count = Integer.bitCount(bitmap);
+                if (remaining < count) {
+                    for (; remaining > 0; remaining--) {
+                        bitmap &= bitmap - 1;
+                    }
+                    return 30L * i + RESIDUES[Integer.numberOfTrailingZeros(bitmap)];
+                }
+                remaining -= count;
+            }
+        }
+    }
+
+    /**
+     * Sequence of the primes of a snapshot from fromIndex to toIndex, exclusive, where the indexes count the primes
+     * of the whole frontier.
+     */
+    private static final class BitmapSequence implements PrimeSequence {
+
+        private final Snapshot snapshot;
+
+        private final int fromIndex;
+
+        private final int toIndex;
+
+        private BitmapSequence(Snapshot snapshot, int fromIndex, int toIndex) {
+            this.snapshot = snapshot;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        public int size() {
+            return toIndex - fromIndex;
+        }
+
+        @Override
+        public long get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return select(fromIndex + index);
+        }
+
+        @Override
+        public PrimeSequence subSequence(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+            }
+            return new BitmapSequence(snapshot, this.fromIndex + fromIndex, this.fromIndex + toIndex);
+        }
+
+        /**
+         * The index of a value is the number of primes below it, read from the count index of the snapshot.
+         */
+        @Override
+        public int lowerBound(long value) {
+            if (value - 1L > snapshot.limit) {
+                return size();
+            }
+            final long index = snapshot.count(value - 1L) - fromIndex;
+            return (int) Math.max(0L, Math.min(size(), index));
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+            return new PrimitiveIterator.OfLong() {
+
+                private int next = fromIndex;
+
+                private int byteIndex;
+
+                private int bitmap = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next < toIndex;
+                }
+
+                @Override
+                public long nextLong() {
+                    if (next >= toIndex) {
+                        throw new NoSuchElementException();
+                    }
+                    if (next < SMALL_PRIMES.length) {
+                        return SMALL_PRIMES[next++];
+                    }
+                    if (bitmap == -1) {
+                        //Start at the byte of the first prime, without the bits of the primes before it.
+                        final long first = select(next);
+                        byteIndex = (int) (first / 30L);
+                        bitmap = snapshot.bits.get(byteIndex) & 0xFF & -(1 << RESIDUE_BIT[(int) (first % 30L)]);
+                    }
+                    while (bitmap == 0) {
+                        bitmap = snapshot.bits.get(++byteIndex) & 0xFF;
+                    }
+                    final long prime = 30L * byteIndex + RESIDUES[Integer.numberOfTrailingZeros(bitmap)];
+                    bitmap &= bitmap - 1;
+                    next++;
+                    return prime;
+                }
+            };
+        }
+
+        private long select(int index) {
+            if (index < SMALL_PRIMES.length) {
+                return SMALL_PRIMES[index];
+            }
+            return snapshot.select(index - SMALL_PRIMES.length);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.primeservice.cache;
+
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Memory-bounded cache of the prime numbers of the aligned segments beyond a {@link PrimeFrontier}.
+ * Segment n holds the primes from n * {@link #SEGMENT_SIZE} to (n + 1) * {@link #SEGMENT_SIZE} - 1 as a long[].
+ * The segments share the maximum size of the frontier with it, and the frontier comes first: the segments only get
+ * what the frontier does not use. Segments which the frontier has grown over are evicted first, since they can be
+ * read from the frontier, and then the least recently used ones until the segments fit.
+ */
+public class PrimeSegmentCache {
+
+    /**
+     * Number of values of every segment.
+     */
+    public static final long SEGMENT_SIZE = 1L << 22;
+
+    /**
+     * Bytes used by a cached segment besides its primes.
+     */
+    private static final long SEGMENT_OVERHEAD_BYTES = 64L;
+
+    private final PrimeFrontier primeFrontier;
+
+    /**
+     * Cached segments by their number, from the least to the most recently used. Guarded by this.
+     */
+    private final LinkedHashMap<Long, PrimeSequence> segments = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Bytes used by the cached segments. Guarded by this.
+     */
+    private long sizeInBytes;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private final Counter coveredEvictions;
+
+    private final Counter leastRecentlyUsedEvictions;
+
+    /**
+     * @param primeFrontier - the frontier which shares its maximum size with the segments.
+     * @param meterRegistry - registry of the cache statistics.
+     */
+    public PrimeSegmentCache(PrimeFrontier primeFrontier, MeterRegistry meterRegistry) {
+        this.primeFrontier = primeFrontier;
+        this.hits = meterRegistry.counter("prime.segment.requests", "result", "hit");
+        this.misses = meterRegistry.counter("prime.segment.requests", "result", "miss");
+        this.coveredEvictions = meterRegistry.counter("prime.segment.evictions", "reason", "covered");
+        this.leastRecentlyUsedEvictions = meterRegistry.counter("prime.segment.evictions", "reason", "lru");
+        Gauge.builder("prime.segment.size", this, PrimeSegmentCache::getSizeInBytes).baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("prime.segment.count", this, PrimeSegmentCache::getSegmentCount).register(meterRegistry);
+    }
+
+    /**
+     * @param segment - number of the segment.
+     * @return PrimeSequence - the primes of the segment, or null if it is not cached.
+     */
+    public synchronized PrimeSequence get(long segment) {
+        final PrimeSequence primes = segments.get(segment);
+        if (primes == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return primes;
+    }
+
+    /**
+     * Caches the primes of a segment as a compact copy, and evicts segments if the cache is over its size.
+     *
+     * @param segment - number of the segment.
+     * @param primes  - all the primes of the segment.
+     */
+    public synchronized void put(long segment, PrimeSequence primes) {
+        final PrimeSequence copy = new PrimeSequenceBuilder(primes.size()).addAll(primes).build();
+        final PrimeSequence previous = segments.put(segment, copy);
+        if (previous != null) {
+            sizeInBytes -= sizeOf(previous);
+        }
+        sizeInBytes += sizeOf(copy);
+        evict();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Evicts the segments covered by the frontier, then the least recently used ones while the segments do not fit
+     * next to the frontier.
+     */
+    private void evict() {
+        final long frontierLimit = primeFrontier.getLimit();
+        final Iterator<Map.Entry<Long, PrimeSequence>> covered = segments.entrySet().iterator();
+        while (covered.hasNext()) {
+            final Map.Entry<Long, PrimeSequence> entry = covered.next();
+            if ((entry.getKey() + 1L) * SEGMENT_SIZE - 1L <= frontierLimit) {
+                sizeInBytes -= sizeOf(entry.getValue());
+                covered.remove();
+                coveredEvictions.increment();
+            }
+        }
+
+        final long maxSizeInBytes = primeFrontier.getMaxSizeInBytes() - primeFrontier.getSizeInBytes();
+        final Iterator<Map.Entry<Long, PrimeSequence>> leastRecentlyUsed = segments.entrySet().iterator();
+        while (sizeInBytes > maxSizeInBytes && leastRecentlyUsed.hasNext()) {
+            sizeInBytes -= sizeOf(leastRecentlyUsed.next().getValue());
+            leastRecentlyUsed.remove();
+            leastRecentlyUsedEvictions.increment();
+        }
+    }
+
+    private static long sizeOf(PrimeSequence primes) {
+        return 8L * primes.size() + SEGMENT_OVERHEAD_BYTES;
+    }
+}
@@ -1,10 +1,20 @@
 package com.primeservice.config;
 
-import com.primeservice.api.PrimeService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.primeservice.BoundedComputeExecutor;
+import com.primeservice.FrontierWarmer;
+import com.primeservice.ManagedPrimeService;
+import com.primeservice.app.PrimeRangeCoordinator;
 import com.primeservice.builder.PrimeServiceBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+
 /**
  * Configuration class for Prime Service App.
  */
@@ -17,17 +27,105 @@ public class PrimeServiceConfiguration {
     private static final boolean IS_CACHE_ENABLED = true;
 
     /**
-     * Defines the number of parallel threads to execute.
+     * @param snapshotFile        - file the cache is persisted in, from the property prime.snapshot.file. The cache
+     *                            is only kept in memory if it is empty.
+     * @param maxCacheSizeInBytes - memory the cache may use, from the property prime.cache.max-bytes.
+     * @param maxParallelism      - most workers of a calculation, from the property prime.compute.max-parallelism.
+     *                            The available processors if it is 0. Every request gets as many of them as its
+     *                            range is worth.
+     * @param defaultEngine       - engine of the requests which do not name one, from the property
+     *                            prime.engine.default. With auto, the cheapest engine for every range.
+     * @param maxPooledBytes      - idle off-heap buffers kept for the next calculations, from the property
+     *                            prime.arena.max-pooled-bytes.
      */
-    private static final int NO_OF_PARALLEL_THREADS = 10;
-
     @Bean
-    public PrimeService primeService() {
-        final PrimeServiceBuilder primeServiceBuilder = new PrimeServiceBuilder();
+    public ManagedPrimeService primeService(MeterRegistry meterRegistry,
+                                     @Value("${prime.snapshot.file:}") String snapshotFile,
+                                     @Value("${prime.cache.max-bytes:268435456}") long maxCacheSizeInBytes,
+                                     @Value("${prime.compute.max-parallelism:0}") int maxParallelism,
+                                     @Value("${prime.engine.default:auto}") String defaultEngine,
+                                     @Value("${prime.arena.max-pooled-bytes:67108864}") long maxPooledBytes) {
+        final PrimeServiceBuilder primeServiceBuilder = new PrimeServiceBuilder().withMeterRegistry(meterRegistry)
+                .withMaxCacheSize(maxCacheSizeInBytes).withDefaultEngine(defaultEngine)
+                .withMaxPooledBytes(maxPooledBytes);
         if (IS_CACHE_ENABLED) {
             primeServiceBuilder.withCacheEnabled();
         }
-        primeServiceBuilder.withMultiThreadedEnabled(NO_OF_PARALLEL_THREADS);
+        if (!snapshotFile.isEmpty()) {
+            primeServiceBuilder.withSnapshotFile(Paths.get(snapshotFile));
+        }
+        primeServiceBuilder.withMultiThreadedEnabled(maxParallelism > 0 ? maxParallelism
+                : Runtime.getRuntime().availableProcessors());
         return primeServiceBuilder.build();
     }
+
+    /**
+     * Executor of the computations of the requests.
+     *
+     * @param threads       - number of compute threads, from the property prime.compute.threads.
+     * @param queueCapacity - number of queued computations, from the property prime.compute.queue-capacity.
+     * @param workBudget    - number of values which may be queued to be sieved, from the property
+     *                      prime.admission.work-budget. Requests beyond it are rejected with 429.
+     */
+    @Bean
+    public BoundedComputeExecutor boundedComputeExecutor(MeterRegistry meterRegistry,
+                                                         @Value("${prime.compute.threads:4}") int threads,
+                                                         @Value("${prime.compute.queue-capacity:64}")
+                                                                 int queueCapacity,
+                                                         @Value("${prime.admission.work-budget:10000000000}")
+                                                                 long workBudget) {
+        return new BoundedComputeExecutor(threads, queueCapacity, workBudget, meterRegistry);
+    }
+
+    /**
+     * Background stage which fills the cache at start and ahead of the requests while the service is idle.
+     *
+     * @param warmUpLimit         - largest value cached at start, from the property prime.warmup.limit, or 0 for
+     *                            none.
+     * @param speculative         - whether the cache is extended ahead of the requests, from the property
+     *                            prime.warmup.speculative.
+     * @param maxParallelism      - most workers of the stage, from the property prime.warmup.max-parallelism.
+     * @param maxCacheSizeInBytes - memory of the cache up to which it is extended ahead of the requests, from the
+     *                            property prime.warmup.max-bytes.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public FrontierWarmer frontierWarmer(ManagedPrimeService primeService, BoundedComputeExecutor computeExecutor,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${prime.warmup.limit:0}") long warmUpLimit,
+                                         @Value("${prime.warmup.speculative:false}") boolean speculative,
+                                         @Value("${prime.warmup.max-parallelism:1}") int maxParallelism,
+                                         @Value("${prime.warmup.max-bytes:67108864}") long maxCacheSizeInBytes) {
+        return new FrontierWarmer(primeService, computeExecutor, warmUpLimit, speculative, maxParallelism,
+                maxCacheSizeInBytes, meterRegistry);
+    }
+
+    /**
+     * Coordinator which fans /primes/fanout out to other instances of the service. It is only created if
+     * prime.cluster.peers is set.
+     *
+     * @param peers         - comma separated base URLs of the peers, from the property prime.cluster.peers.
+     * @param segmentSize   - number of values a peer calculates at a time, from the property
+     *                      prime.cluster.segment-size.
+     * @param timeoutMillis - time budget of a segment on a peer, from the property prime.cluster.timeout-ms.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("!'${prime.cluster.peers:}'.isEmpty()")
+    public PrimeRangeCoordinator primeRangeCoordinator(MeterRegistry meterRegistry,
+                                                       @Value("${prime.cluster.peers}") String peers,
+                                                       @Value("${prime.cluster.segment-size:67108864}")
+                                                               long segmentSize,
+                                                       @Value("${prime.cluster.timeout-ms:60000}")
+                                                               int timeoutMillis) {
+        return new PrimeRangeCoordinator(Arrays.asList(peers.trim().split("\\s*,\\s*")), segmentSize,
+                timeoutMillis, meterRegistry);
+    }
+
+    /**
+     * JSON converter which records the time spent on serializing the responses.
+     */
+    @Bean
+    public TimedJsonHttpMessageConverter timedJsonHttpMessageConverter(ObjectMapper objectMapper,
+                                                                       MeterRegistry meterRegistry) {
+        return new TimedJsonHttpMessageConverter(objectMapper, meterRegistry);
+    }
 }
@@ -0,0 +1,23 @@
+package com.primeservice.domainmodel;
+
+/**
+ * Domain model for the prime factors of a number.
+ */
+public class FactorizationResult {
+    private final long number;
+
+    private final long[] factors;
+
+    public FactorizationResult(long number, long[] factors) {
+        this.number = number;
+        this.factors = factors;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long[] getFactors() {
+        return factors;
+    }
+}
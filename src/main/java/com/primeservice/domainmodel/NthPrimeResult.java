@@ -0,0 +1,23 @@
+package com.primeservice.domainmodel;
+
+/**
+ * Domain model for the n-th Prime number.
+ */
+public class NthPrimeResult {
+    private final long n;
+
+    private final long prime;
+
+    public NthPrimeResult(long n, long prime) {
+        this.n = n;
+        this.prime = prime;
+    }
+
+    public long getN() {
+        return n;
+    }
+
+    public long getPrime() {
+        return prime;
+    }
+}
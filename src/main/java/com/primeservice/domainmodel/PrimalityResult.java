@@ -0,0 +1,23 @@
+package com.primeservice.domainmodel;
+
+/**
+ * Domain model for the result of a primality check.
+ */
+public class PrimalityResult {
+    private final long number;
+
+    private final boolean prime;
+
+    public PrimalityResult(long number, boolean prime) {
+        this.number = number;
+        this.prime = prime;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public boolean isPrime() {
+        return prime;
+    }
+}
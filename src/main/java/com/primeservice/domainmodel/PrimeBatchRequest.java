@@ -0,0 +1,62 @@
+package com.primeservice.domainmodel;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Domain model for a batch of requests: limits to get all the Prime numbers up to, ranges to get the Prime numbers
+ * of and numbers to check. Missing lists are empty.
+ */
+public class PrimeBatchRequest {
+    private final List<Long> limits;
+
+    private final List<Range> ranges;
+
+    private final List<Long> checks;
+
+    @JsonCreator
+    public PrimeBatchRequest(@JsonProperty("limits") List<Long> limits, @JsonProperty("ranges") List<Range> ranges,
+                             @JsonProperty("checks") List<Long> checks) {
+        this.limits = limits == null ? Collections.emptyList() : limits;
+        this.ranges = ranges == null ? Collections.emptyList() : ranges;
+        this.checks = checks == null ? Collections.emptyList() : checks;
+    }
+
+    public List<Long> getLimits() {
+        return limits;
+    }
+
+    public List<Range> getRanges() {
+        return ranges;
+    }
+
+    public List<Long> getChecks() {
+        return checks;
+    }
+
+    /**
+     * A range of the batch, both ends inclusive.
+     */
+    public static class Range {
+        private final long from;
+
+        private final long to;
+
+        @JsonCreator
+        public Range(@JsonProperty("from") long from, @JsonProperty("to") long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public long getFrom() {
+            return from;
+        }
+
+        public long getTo() {
+            return to;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.primeservice.domainmodel;
+
+import java.util.List;
+
+/**
+ * Domain model for the answers of a batch, in the order of its requests.
+ */
+public class PrimeBatchResult {
+    private final List<PrimeResult> limits;
+
+    private final List<PrimeRangeResult> ranges;
+
+    private final List<PrimalityResult> checks;
+
+    public PrimeBatchResult(List<PrimeResult> limits, List<PrimeRangeResult> ranges, List<PrimalityResult> checks) {
+        this.limits = limits;
+        this.ranges = ranges;
+        this.checks = checks;
+    }
+
+    public List<PrimeResult> getLimits() {
+        return limits;
+    }
+
+    public List<PrimeRangeResult> getRanges() {
+        return ranges;
+    }
+
+    public List<PrimalityResult> getChecks() {
+        return checks;
+    }
+}
@@ -0,0 +1,23 @@
+package com.primeservice.domainmodel;
+
+/**
+ * Domain model for the count of the Prime numbers upto a maximum value.
+ */
+public class PrimeCountResult {
+    private final long initialVal;
+
+    private final long count;
+
+    public PrimeCountResult(long initialVal, long count) {
+        this.initialVal = initialVal;
+        this.count = count;
+    }
+
+    public long getInitialVal() {
+        return initialVal;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,42 @@
+package com.primeservice.domainmodel;
+
+import java.util.List;
+
+/**
+ * Domain model for a page of the Prime numbers in a range.
+ */
+public class PrimeRangeResult {
+    private final long from;
+
+    private final long to;
+
+    private final List<Long> primes;
+
+    /**
+     * Cursor of the next page, or null if this is the last page of the range.
+     */
+    private final String nextCursor;
+
+    public PrimeRangeResult(long from, long to, List<Long> primes, String nextCursor) {
+        this.from = from;
+        this.to = to;
+        this.primes = primes;
+        this.nextCursor = nextCursor;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public List<Long> getPrimes() {
+        return primes;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -1,18 +1,31 @@
 package com.primeservice.domainmodel;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 /**
  * Domain model for the Prime number results.
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PrimeResult {
     private final long initialVal;
 
     private final List<Long> primies;
 
+    /**
+     * False if the primes are only the ones found before the deadline of the request, else null.
+     */
+    private final Boolean complete;
+
     public PrimeResult(long initialVal, List<Long> primies) {
+        this(initialVal, primies, true);
+    }
+
+    public PrimeResult(long initialVal, List<Long> primies, boolean complete) {
         this.initialVal = initialVal;
         this.primies = primies;
+        this.complete = complete ? null : Boolean.FALSE;
     }
 
     public List<Long> getPrimies() {
@@ -23,5 +36,8 @@ public class PrimeResult {
         return initialVal;
     }
 
+    public Boolean getComplete() {
+        return complete;
+    }
 
 }
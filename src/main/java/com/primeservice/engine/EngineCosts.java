@@ -0,0 +1,44 @@
+package com.primeservice.engine;
+
+import com.primeservice.util.PrimeNumberUtil;
+import com.primeservice.util.SegmentedSieve;
+
+/**
+ * Estimates shared by the cost models of the engines.
+ */
+final class EngineCosts {
+
+    /**
+     * Measured nanoseconds per value of the sieve of the base primes.
+     */
+    private static final double NANOS_PER_BASE_PRIME_VALUE = 2.0;
+
+    private EngineCosts() {
+    }
+
+    /**
+     * @return double - the approximate number of primes up to the square root of maxValue, by the density of the
+     * primes x / ln(x).
+     */
+    static double countBasePrimes(long maxValue) {
+        final double squareRoot = Math.sqrt((double) maxValue);
+        return squareRoot < 3.0 ? 1.0 : squareRoot / Math.log(squareRoot);
+    }
+
+    /**
+     * @return double - the estimated time of sieving the base primes up to the square root of maxValue which are not
+     * computed yet. The sieves share them, so they are only computed once.
+     */
+    static double estimateBasePrimesCost(long maxValue) {
+        final long missing = PrimeNumberUtil.getFlooredSquareRoot(maxValue) - SegmentedSieve.getBasePrimesLimit();
+        return missing > 0L ? missing * NANOS_PER_BASE_PRIME_VALUE : 0.0;
+    }
+
+    /**
+     * @return double - the approximate number of primes from minValue to maxValue, by the density 1 / ln(x) at their
+     * end.
+     */
+    static double countPrimes(long minValue, long maxValue) {
+        return ((double) maxValue - minValue + 1.0) / Math.log(Math.max(3.0, (double) maxValue));
+    }
+}
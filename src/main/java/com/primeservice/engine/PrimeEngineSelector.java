@@ -0,0 +1,106 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.exception.UnknownEngineException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the {@link PrimeEngine}s of a service, which chooses the engine of every calculation. A request names an
+ * engine, {@link PrimeEngine#AUTO} for the one with the lowest estimated cost for the range, or none for the default
+ * engine of the service.
+ */
+public class PrimeEngineSelector {
+
+    private final Map<String, PrimeEngine> engines = new LinkedHashMap<>();
+
+    private final String defaultEngine;
+
+    /**
+     * @param engines       - the engines, of which a later one replaces an earlier one of the same name.
+     * @param defaultEngine - name of the engine of the requests which do not name one, or {@link PrimeEngine#AUTO}.
+     */
+    public PrimeEngineSelector(List<PrimeEngine> engines, String defaultEngine) {
+        if (engines.isEmpty()) {
+            throw new IllegalArgumentException("A selector needs at least one engine");
+        }
+        engines.forEach(engine -> this.engines.put(engine.getName(), engine));
+        this.defaultEngine = defaultEngine;
+        validate(defaultEngine);
+    }
+
+    /**
+     * @return List - the engines which come with the service.
+     */
+    public static List<PrimeEngine> getBuiltInEngines() {
+        return Arrays.asList(new SegmentedSieveEngine(), new WheelSieveEngine(), new ProbabilisticEngine(),
+                new TrialDivisionEngine());
+    }
+
+    /**
+     * @param engine - name of an engine, {@link PrimeEngine#AUTO} or null for the default one.
+     * @throws UnknownEngineException if no engine has the name.
+     */
+    public void validate(String engine) {
+        if (engine != null && !PrimeEngine.AUTO.equals(engine) && !engines.containsKey(engine)) {
+            throw new UnknownEngineException(engine);
+        }
+    }
+
+    /**
+     * Chooses the engine which calculates the range from minValue to maxValue. If the default engine does not support
+     * the range, the cheapest engine which does is chosen instead.
+     *
+     * @param engine   - name of an engine, {@link PrimeEngine#AUTO} or null for the default one.
+     * @param minValue - start of the range.
+     * @param maxValue - end of the range.
+     * @return PrimeEngine - the named engine, or the one with the lowest estimated cost for the range.
+     * @throws UnknownEngineException if no engine has the name.
+     * @throws InvalidInputException   if the named engine, or every engine, does not support the range.
+     */
+    public PrimeEngine select(String engine, long minValue, long maxValue) {
+        final String name = engine == null ? defaultEngine : engine;
+        if (!PrimeEngine.AUTO.equals(name)) {
+            final PrimeEngine named = engines.get(name);
+            if (named == null) {
+                throw new UnknownEngineException(name);
+            }
+            if (named.supports(maxValue)) {
+                return named;
+            }
+            if (engine != null) {
+                throw new InvalidInputException(maxValue);
+            }
+        }
+        PrimeEngine cheapest = null;
+        double cheapestCost = Double.POSITIVE_INFINITY;
+        for (PrimeEngine candidate : engines.values()) {
+            if (!candidate.supports(maxValue)) {
+                continue;
+            }
+            final double cost = candidate.estimateCost(minValue, maxValue);
+            if (cheapest == null || cost < cheapestCost) {
+                cheapest = candidate;
+                cheapestCost = cost;
+            }
+        }
+        if (cheapest == null) {
+            throw new InvalidInputException(maxValue);
+        }
+        return cheapest;
+    }
+
+    public Collection<String> getEngineNames() {
+        return Collections.unmodifiableCollection(engines.keySet());
+    }
+
+    public String getDefaultEngine() {
+        return defaultEngine;
+    }
+}
@@ -0,0 +1,85 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.util.PrimeNumberUtil;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Tests every value of the range which is coprime to 30 with {@link PrimeNumberUtil#isPrime(long)}, a Miller-Rabin
+ * test whose witnesses make it exact for every long. It needs no base primes, so its cost only grows with the size
+ * of the range and barely with its magnitude: it answers short ranges of large values, where a sieve would first
+ * have to find every prime up to their square root.
+ */
+public class ProbabilisticEngine implements PrimeEngine {
+
+    public static final String NAME = "probabilistic";
+
+    /**
+     * Number of values between the checks of the deadline.
+     */
+    private static final long DEADLINE_INTERVAL = 1L << 12;
+
+    private static final long[] WHEEL_PRIMES = {2L, 3L, 5L};
+
+    /**
+     * Whether a residue mod 30 is coprime to 30.
+     */
+    private static final boolean[] COPRIME = new boolean[30];
+
+    static {
+        for (int residue : new int[]{1, 7, 11, 13, 17, 19, 23, 29}) {
+            COPRIME[residue] = true;
+        }
+    }
+
+    /**
+     * Measured nanoseconds per value of the range, for skipping the values which are not coprime to 30.
+     */
+    private static final double NANOS_PER_VALUE = 2.0;
+
+    /**
+     * Measured nanoseconds per candidate, most of which are composites found by the small primes.
+     */
+    private static final double NANOS_PER_CANDIDATE = 40.0;
+
+    /**
+     * Measured nanoseconds per Montgomery squaring of the Miller-Rabin test of a prime, for each of its 7 witnesses.
+     */
+    private static final double NANOS_PER_SQUARING = 7 * 20.0;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+        for (long smallPrime : WHEEL_PRIMES) {
+            if (smallPrime >= minValue && smallPrime <= maxValue) {
+                consumer.accept(smallPrime);
+            }
+        }
+        final long from = Math.max(7L, minValue);
+        for (long value = from; value <= maxValue; value++) {
+            if ((value - from) % DEADLINE_INTERVAL == 0L) {
+                deadline.check();
+            }
+            if (COPRIME[(int) (value % 30L)] && PrimeNumberUtil.isPrime(value)) {
+                consumer.accept(value);
+            }
+            if (value == Long.MAX_VALUE) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public double estimateCost(long minValue, long maxValue) {
+        final double values = (double) maxValue - minValue + 1.0;
+        final double bits = Long.SIZE - Long.numberOfLeadingZeros(Math.max(1L, maxValue));
+        return values * NANOS_PER_VALUE + values * 8.0 / 30.0 * NANOS_PER_CANDIDATE
+                + EngineCosts.countPrimes(minValue, maxValue) * bits * NANOS_PER_SQUARING;
+    }
+}
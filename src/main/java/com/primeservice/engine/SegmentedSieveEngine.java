@@ -0,0 +1,72 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.util.PrimeNumberUtil;
+import com.primeservice.util.SegmentedSieve;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Engine of the odd-only {@link SegmentedSieve}. Its cost grows with the size of the range and, for every segment of
+ * it, with the number of base primes up to the square root of its end.
+ */
+public class SegmentedSieveEngine implements PrimeEngine {
+
+    public static final String NAME = "segmented-sieve";
+
+    /**
+     * Measured nanoseconds per value of the range.
+     */
+    private static final double NANOS_PER_VALUE = 2.5;
+
+    /**
+     * Measured nanoseconds per base prime and segment, for finding its first multiple in the segment.
+     */
+    private static final double NANOS_PER_BASE_PRIME = 22.0;
+
+    /**
+     * Values of a segment of the sieve.
+     */
+    private static final double SEGMENT_VALUES = 1 << 19;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+        SegmentedSieve.forEachPrime(minValue, maxValue, consumer, deadline::check);
+    }
+
+    @Override
+    public PrimeSequence getPrimeSequence(long minValue, long maxValue, Deadline deadline) {
+        return SegmentedSieve.getPrimeSequence(minValue, maxValue, deadline);
+    }
+
+    /**
+     * Computes the base primes up to the square root of maxValue, which the chunks share.
+     */
+    @Override
+    public void prepare(long maxValue) {
+        SegmentedSieve.getBasePrimes(PrimeNumberUtil.getFlooredSquareRoot(maxValue));
+    }
+
+    /**
+     * The sieve needs the base primes up to the square root of maxValue, which are bounded.
+     */
+    @Override
+    public boolean supports(long maxValue) {
+        return maxValue <= SegmentedSieve.MAX_VALUE;
+    }
+
+    @Override
+    public double estimateCost(long minValue, long maxValue) {
+        final double values = (double) maxValue - minValue + 1.0;
+        final double segments = Math.ceil(values / SEGMENT_VALUES);
+        return values * NANOS_PER_VALUE + segments * EngineCosts.countBasePrimes(maxValue) * NANOS_PER_BASE_PRIME
+                + EngineCosts.estimateBasePrimesCost(maxValue);
+    }
+}
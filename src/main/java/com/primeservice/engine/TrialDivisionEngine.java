@@ -0,0 +1,59 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.util.PrimeNumberUtil;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Checks every value of the range by trial division with {@link PrimeNumberUtil#isPrimeByTrialDivision(long)}.
+ * Every prime costs a division by each value up to its square root, so it only pays off for a few small values.
+ */
+public class TrialDivisionEngine implements PrimeEngine {
+
+    public static final String NAME = "trial-division";
+
+    /**
+     * Number of values between the checks of the deadline.
+     */
+    private static final long DEADLINE_INTERVAL = 1L << 12;
+
+    /**
+     * Measured nanoseconds per value of the range, most of which are composites with a small factor.
+     */
+    private static final double NANOS_PER_VALUE = 10.0;
+
+    /**
+     * Measured nanoseconds per trial division of a prime.
+     */
+    private static final double NANOS_PER_DIVISION = 4.0;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+        final long from = Math.max(2L, minValue);
+        for (long value = from; value <= maxValue; value++) {
+            if ((value - from) % DEADLINE_INTERVAL == 0L) {
+                deadline.check();
+            }
+            if (PrimeNumberUtil.isPrimeByTrialDivision(value)) {
+                consumer.accept(value);
+            }
+            if (value == Long.MAX_VALUE) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public double estimateCost(long minValue, long maxValue) {
+        final double values = (double) maxValue - minValue + 1.0;
+        return values * NANOS_PER_VALUE
+                + EngineCosts.countPrimes(minValue, maxValue) * Math.sqrt((double) maxValue) * NANOS_PER_DIVISION;
+    }
+}
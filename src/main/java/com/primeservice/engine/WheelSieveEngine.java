@@ -0,0 +1,143 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.util.PrimeNumberUtil;
+import com.primeservice.util.SegmentedSieve;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Segmented sieve on the mod-30 wheel. Every byte of a segment represents 30 values by the 8 residues which are
+ * coprime to 30, so that it holds 8 candidates in 30 values instead of the 15 of an odd-only sieve. A base prime p
+ * crosses off its multiples p * k for every residue of k separately, in steps of p bytes. That takes 8 starting
+ * points per base prime and segment, so it pays off on dense ranges with few base primes.
+ */
+public class WheelSieveEngine implements PrimeEngine {
+
+    public static final String NAME = "wheel-sieve";
+
+    /**
+     * Bytes of a segment, which fits the L1/L2 data cache.
+     */
+    static final int SEGMENT_BYTES = 1 << 15;
+
+    /**
+     * Primes of the wheel, which have no residue of their own.
+     */
+    private static final long[] WHEEL_PRIMES = {2L, 3L, 5L};
+
+    private static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+    /**
+     * Bit of every residue in a byte, or -1 for the values which are not coprime to 30.
+     */
+    private static final int[] RESIDUE_BIT = new int[30];
+
+    static {
+        Arrays.fill(RESIDUE_BIT, -1);
+        for (int bit = 0; bit < RESIDUES.length; bit++) {
+            RESIDUE_BIT[RESIDUES[bit]] = bit;
+        }
+    }
+
+    /**
+     * Measured nanoseconds per value of the range.
+     */
+    private static final double NANOS_PER_VALUE = 1.2;
+
+    /**
+     * Measured nanoseconds per base prime and segment, for finding the first multiple of each residue.
+     */
+    private static final double NANOS_PER_BASE_PRIME = 50.0;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+        for (long smallPrime : WHEEL_PRIMES) {
+            if (smallPrime >= minValue && smallPrime <= maxValue) {
+                consumer.accept(smallPrime);
+            }
+        }
+        final long from = Math.max(7L, minValue);
+        if (from > maxValue) {
+            return;
+        }
+        final long[] basePrimes = SegmentedSieve.getBasePrimes(PrimeNumberUtil.getFlooredSquareRoot(maxValue));
+        final long lastByte = maxValue / 30L;
+        final byte[] segment = new byte[(int) Math.min(SEGMENT_BYTES, lastByte - from / 30L + 1L)];
+
+        for (long firstByte = from / 30L; firstByte <= lastByte; firstByte += SEGMENT_BYTES) {
+            deadline.check();
+            final int bytes = (int) Math.min(SEGMENT_BYTES, lastByte - firstByte + 1L);
+            sieveSegment(firstByte, bytes, basePrimes, segment);
+            for (int i = 0; i < bytes; i++) {
+                int candidates = segment[i] & 0xFF;
+                while (candidates != 0) {
+                    final long value = 30L * (firstByte + i) + RESIDUES[Integer.numberOfTrailingZeros(candidates)];
+                    if (value >= from && value <= maxValue) {
+                        consumer.accept(value);
+                    }
+                    candidates &= candidates - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Crosses the multiples of the base primes from 7 on off the bytes from firstByte on.
+     */
+    private static void sieveSegment(long firstByte, int bytes, long[] basePrimes, byte[] segment) {
+        Arrays.fill(segment, 0, bytes, (byte) 0xFF);
+        final long segmentStart = 30L * firstByte;
+        final long segmentEnd = segmentStart + 30L * bytes - 1L;
+        for (long prime : basePrimes) {
+            if (prime < 7L) {
+                continue;
+            }
+            if (prime > segmentEnd / prime) {
+                break;
+            }
+            //Multiples below p^2 have a smaller prime factor. Beyond that, start at the first one in the segment.
+            final long firstFactor = Math.max(prime, (segmentStart + prime - 1L) / prime);
+            for (int residue : RESIDUES) {
+                //Smallest factor k >= firstFactor with k = residue (mod 30).
+                final long factor = firstFactor + Math.floorMod(residue - firstFactor, 30L);
+                final long multiple = prime * factor;
+                final int mask = ~(1 << RESIDUE_BIT[(int) (multiple % 30L)]);
+                for (long index = multiple / 30L - firstByte; index < bytes; index += prime) {
+                    segment[(int) index] &= mask;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the base primes up to the square root of maxValue, which the chunks share.
+     */
+    @Override
+    public void prepare(long maxValue) {
+        SegmentedSieve.getBasePrimes(PrimeNumberUtil.getFlooredSquareRoot(maxValue));
+    }
+
+    /**
+     * The sieve needs the base primes up to the square root of maxValue, which are bounded.
+     */
+    @Override
+    public boolean supports(long maxValue) {
+        return maxValue <= SegmentedSieve.MAX_VALUE;
+    }
+
+    @Override
+    public double estimateCost(long minValue, long maxValue) {
+        final double values = (double) maxValue - minValue + 1.0;
+        final double segments = Math.ceil(values / (30.0 * SEGMENT_BYTES));
+        return values * NANOS_PER_VALUE + segments * EngineCosts.countBasePrimes(maxValue) * NANOS_PER_BASE_PRIME
+                + EngineCosts.estimateBasePrimesCost(maxValue);
+    }
+}
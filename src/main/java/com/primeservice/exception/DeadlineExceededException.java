@@ -0,0 +1,29 @@
+package com.primeservice.exception;
+
+import com.primeservice.api.LongArrayPrimeSequence;
+import com.primeservice.api.PrimeSequence;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when the time budget of a request expires before its computation completes. It carries the prime numbers
+ * which were found, in order and without gaps, from the start of the request.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class DeadlineExceededException extends RuntimeException {
+
+    private final PrimeSequence partialResult;
+
+    public DeadlineExceededException() {
+        this(LongArrayPrimeSequence.EMPTY);
+    }
+
+    public DeadlineExceededException(PrimeSequence partialResult) {
+        super("Deadline exceeded after " + partialResult.size() + " prime numbers");
+        this.partialResult = partialResult;
+    }
+
+    public PrimeSequence getPartialResult() {
+        return partialResult;
+    }
+}
@@ -11,4 +11,8 @@ public class InvalidInputException extends RuntimeException {
     public InvalidInputException(long inputParam) {
         super("Invalid input: " + inputParam);
     }
+
+    public InvalidInputException(String inputParam) {
+        super("Invalid input: " + inputParam);
+    }
 }
@@ -0,0 +1,15 @@
+package com.primeservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a segment of a range which is fanned out to the peers failed on every peer.
+ */
+@ResponseStatus(HttpStatus.BAD_GATEWAY)
+public class PeerUnavailableException extends RuntimeException {
+
+    public PeerUnavailableException(long from, long to) {
+        super("No peer answered the segment " + from + " to " + to);
+    }
+}
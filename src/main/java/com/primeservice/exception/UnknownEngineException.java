@@ -0,0 +1,15 @@
+package com.primeservice.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a request names an engine which is not registered.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class UnknownEngineException extends RuntimeException {
+
+    public UnknownEngineException(String engine) {
+        super("Unknown engine: " + engine);
+    }
+}
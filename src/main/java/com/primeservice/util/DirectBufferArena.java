@@ -0,0 +1,132 @@
+package com.primeservice.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct {@link ByteBuffer}s, which keeps the large buffers of the calculations off the heap and reuses them
+ * across requests. Buffers are leased in power-of-two size classes and returned to the pool when the {@link Lease} is
+ * closed, so that a calculation releases its memory deterministically with try-with-resources instead of waiting for
+ * a garbage collection. Released buffers beyond the pooled maximum are dropped, since a direct buffer cannot be freed
+ * explicitly on every supported JVM. Their memory is only returned once the collector finds them unreachable, and it
+ * counts against -XX:MaxDirectMemorySize until then; the JVM collects before it fails an allocation of direct memory.
+ * The leased buffers are bounded by their users instead, e.g. a calculation leases the buffers of one wave of chunks
+ * at a time.
+ */
+public final class DirectBufferArena {
+
+    /**
+     * Pooled bytes of the arenas which are not configured.
+     */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 1L << 26;
+
+    /**
+     * Capacity of the smallest buffer.
+     */
+    static final int MIN_BUFFER_BYTES = 1 << 12;
+
+    private final long maxPooledBytes;
+
+    /**
+     * Idle buffers by the log2 of their capacity.
+     */
+    private final List<Deque<ByteBuffer>> pools = new ArrayList<>(Integer.SIZE);
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    private final AtomicLong leasedBytes = new AtomicLong();
+
+    /**
+     * @param maxPooledBytes - most bytes of idle buffers which are kept for reuse.
+     */
+    public DirectBufferArena(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+        for (int sizeClass = 0; sizeClass < Integer.SIZE; sizeClass++) {
+            pools.add(new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    /**
+     * Leases a buffer of at least the given size. Its contents are undefined.
+     *
+     * @param bytes - number of bytes required, at most 2^30.
+     * @return Lease - the buffer, in the native byte order with its limit at bytes.
+     */
+    public Lease acquire(int bytes) {
+        if (bytes < 0 || bytes > 1 << 30) {
+            throw new IllegalArgumentException("Buffers hold 0 to 2^30 bytes: " + bytes);
+        }
+        final int sizeClass = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(MIN_BUFFER_BYTES, bytes) - 1);
+        ByteBuffer buffer = pools.get(sizeClass).pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(1 << sizeClass).order(ByteOrder.nativeOrder());
+        } else {
+            pooledBytes.addAndGet(-buffer.capacity());
+        }
+        leasedBytes.addAndGet(buffer.capacity());
+        buffer.clear();
+        buffer.limit(bytes);
+        return new Lease(buffer, sizeClass);
+    }
+
+    /**
+     * @return long - bytes of the buffers which are leased.
+     */
+    public long getLeasedBytes() {
+        return leasedBytes.get();
+    }
+
+    /**
+     * @return long - bytes of the idle buffers which are kept for reuse.
+     */
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private void release(ByteBuffer buffer, int sizeClass) {
+        leasedBytes.addAndGet(-buffer.capacity());
+        if (pooledBytes.addAndGet(buffer.capacity()) <= maxPooledBytes) {
+            //Most recently used first, since it is the most likely to still be in the cache.
+            pools.get(sizeClass).offerFirst(buffer);
+        } else {
+            pooledBytes.addAndGet(-buffer.capacity());
+        }
+    }
+
+    /**
+     * A leased buffer, which must not be used after it is closed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final ByteBuffer buffer;
+
+        private final int sizeClass;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(ByteBuffer buffer, int sizeClass) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+        }
+
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Returns the buffer to the arena. Closing a lease again does nothing.
+         */
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(buffer, sizeClass);
+            }
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.primeservice.util;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeSequence;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Counts the prime numbers upto a maximum value, pi(x), without enumerating them.
+ * It uses the Meissel-Lehmer method: pi(x) = phi(x, a) + a - 1 - P2(x, a) with a = pi(cube-root(x)).
+ * phi(x, a) is expanded recursively down to a wheel table of the first primes, and every small pi(v) is looked up in
+ * a shared table of prime counts. The terms of the outermost phi(x, a) are expanded in parallel on a given pool, or
+ * on the common pool if none is given.
+ */
+public final class PrimeCounter {
+
+    /**
+     * Largest value which can be counted in a reasonable time.
+     */
+    public static final long MAX_VALUE = 100000000000000L;
+
+    /**
+     * Largest n whose n-th prime can be found, pi({@link #MAX_VALUE}).
+     */
+    public static final long MAX_NTH = 3204941750802L;
+
+    /**
+     * Number of values sieved at a time while walking from the estimate of the n-th prime to it.
+     */
+    private static final long NTH_WINDOW = 1L << 22;
+
+    /**
+     * Euler-Mascheroni constant, the constant term of the series of li(x).
+     */
+    private static final double EULER_GAMMA = 0.5772156649015329;
+
+    /**
+     * Largest value covered by the table of prime counts.
+     */
+    private static final long MAX_TABLE_LIMIT = 100000000L;
+
+    /**
+     * Primes of the wheel which phi(x, WHEEL_PRIMES.length) is read from.
+     */
+    private static final int[] WHEEL_PRIMES = {2, 3, 5, 7, 11, 13};
+
+    private static final int PRIMORIAL = 30030;
+
+    private static final int TOTIENT = 5760;
+
+    /**
+     * phi(x, 6) for every x from 0 to the primorial.
+     */
+    private static final int[] WHEEL_PHI = new int[PRIMORIAL + 1];
+
+    static {
+        for (int x = 1; x <= PRIMORIAL; x++) {
+            boolean coprime = true;
+            for (int prime : WHEEL_PRIMES) {
+                coprime &= x % prime != 0;
+            }
+            WHEEL_PHI[x] = WHEEL_PHI[x - 1] + (coprime ? 1 : 0);
+        }
+    }
+
+    /**
+     * Shared table of prime counts. It is only ever replaced by a larger table.
+     */
+    private static volatile PrimeCountTable countTable = PrimeCountTable.upTo(1L << 16);
+
+    private PrimeCounter() {
+    }
+
+    /**
+     * Counts the prime numbers upto a maximum value.
+     *
+     * @param maxValue - largest value, at most {@link #MAX_VALUE}.
+     * @return long - the number of primes smaller than or equal to maxValue.
+     */
+    public static long countPrimeNumbers(long maxValue) {
+        return countPrimeNumbers(maxValue, Deadline.NONE);
+    }
+
+    /**
+     * Counts the prime numbers upto a maximum value until the deadline expires. The deadline is checked between the
+     * terms of the recursion.
+     *
+     * @param maxValue - largest value, at most {@link #MAX_VALUE}.
+     * @return long - the number of primes smaller than or equal to maxValue.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    public static long countPrimeNumbers(long maxValue, Deadline deadline) {
+        return countPrimeNumbers(maxValue, deadline, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Counts the prime numbers upto a maximum value until the deadline expires, with the terms of the recursion
+     * expanded in parallel on the pool.
+     *
+     * @param maxValue - largest value, at most {@link #MAX_VALUE}.
+     * @param pool     - pool which the terms are expanded on.
+     * @return long - the number of primes smaller than or equal to maxValue.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    public static long countPrimeNumbers(long maxValue, Deadline deadline, ForkJoinPool pool) {
+        if (maxValue > MAX_VALUE) {
+            throw new IllegalArgumentException("Max value " + maxValue + " is larger than " + MAX_VALUE);
+        }
+        if (maxValue < 2L) {
+            return 0L;
+        }
+        //Small values are looked up. Larger values have a table of about x^(2/3) / 4, which balances the time
+        //spent on sieving the table against the time spent on the recursion.
+        final long cubeRoot = getFlooredCubeRoot(maxValue);
+        final PrimeCountTable table = getCountTable(Math.min(MAX_TABLE_LIMIT, Math.max(1L << 16,
+                cubeRoot * cubeRoot / 4L)));
+        if (maxValue <= table.limit) {
+            return table.pi(maxValue);
+        }
+        return new Counter(table, PrimeNumberUtil.getFlooredSquareRoot(maxValue), deadline, pool).pi(maxValue, true);
+    }
+
+    /**
+     * Estimates the work of counting the prime numbers upto a maximum value as x^(2/3), the order of the values
+     * which are sieved for the table and of the terms of the recursion.
+     */
+    public static long estimateWork(long maxValue) {
+        final long cubeRoot = getFlooredCubeRoot(Math.max(0L, Math.min(MAX_VALUE, maxValue)));
+        return cubeRoot * cubeRoot;
+    }
+
+    /**
+     * Estimates the work of finding the n-th prime as the work of counting upto its upper bound.
+     */
+    public static long estimateNthPrimeWork(long n) {
+        return estimateWork(getNthPrimeUpperBound(Math.max(1L, n)));
+    }
+
+    /**
+     * Finds the n-th prime p_n without enumerating the primes before it. The estimate li^-1(n) is clamped to the
+     * bounds of Dusart on p_n and counted once with {@link #countPrimeNumbers(long)}. The count tells how many primes
+     * lie between the estimate and p_n, which are then sieved away in short windows towards it.
+     *
+     * @param n - index of the prime, where the first prime is 2, at most {@link #MAX_NTH}.
+     * @return long - the n-th prime.
+     */
+    public static long getNthPrime(long n) {
+        return getNthPrime(n, Deadline.NONE);
+    }
+
+    /**
+     * Finds the n-th prime until the deadline expires, see {@link #getNthPrime(long)}.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    public static long getNthPrime(long n, Deadline deadline) {
+        return getNthPrime(n, deadline, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the n-th prime until the deadline expires, with the count expanded in parallel on the pool, see
+     * {@link #countPrimeNumbers(long, Deadline, ForkJoinPool)}.
+     *
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    public static long getNthPrime(long n, Deadline deadline, ForkJoinPool pool) {
+        if (n < 1L || n > MAX_NTH) {
+            throw new IllegalArgumentException("Index " + n + " is not within 1 and " + MAX_NTH);
+        }
+        final long upperBound = Math.min(MAX_VALUE, getNthPrimeUpperBound(n));
+        final long estimate = Math.max(getNthPrimeLowerBound(n), Math.min(upperBound, inverseLogarithmicIntegral(n)));
+        final long count = countPrimeNumbers(estimate, deadline, pool);
+        //About twice the values which hold the primes in between, since the gaps average less than log2(estimate).
+        final long window = Math.min(NTH_WINDOW,
+                64L + 2L * Math.abs(count - n) * (Long.SIZE - Long.numberOfLeadingZeros(estimate)));
+
+        if (count >= n) {
+            //p_n is the (count - n + 1)-th prime counting down from the estimate.
+            long remaining = count - n;
+            for (long end = estimate; ; end -= window) {
+                deadline.check();
+                final PrimeSequence primes = SegmentedSieve.getPrimeSequence(Math.max(2L, end - window + 1L), end);
+                if (primes.size() > remaining) {
+                    return primes.get(primes.size() - 1 - (int) remaining);
+                }
+                remaining -= primes.size();
+            }
+        }
+        //p_n is the (n - count)-th prime after the estimate.
+        long remaining = n - count;
+        for (long start = estimate + 1L; ; start += window) {
+            deadline.check();
+            final PrimeSequence primes = SegmentedSieve.getPrimeSequence(start, start + window - 1L);
+            if (primes.size() >= remaining) {
+                return primes.get((int) remaining - 1);
+            }
+            remaining -= primes.size();
+        }
+    }
+
+    /**
+     * Lower bound on p_n: n (ln n + ln ln n - 1 + (ln ln n - 2.1) / ln n) for n >= 3 (Dusart 2010).
+     */
+    static long getNthPrimeLowerBound(long n) {
+        if (n < 3L) {
+            return n + 1L;
+        }
+        final double logN = Math.log(n);
+        final double logLogN = Math.log(logN);
+        return Math.max(2L, (long) (n * (logN + logLogN - 1.0 + (logLogN - 2.1) / logN)));
+    }
+
+    /**
+     * Upper bound on p_n: n (ln n + ln ln n - 1 + (ln ln n - 2) / ln n) for n >= 688383 (Dusart 2010),
+     * n (ln n + ln ln n) for n >= 6 (Rosser).
+     */
+    static long getNthPrimeUpperBound(long n) {
+        if (n < 6L) {
+            return 11L;
+        }
+        final double logN = Math.log(n);
+        final double logLogN = Math.log(logN);
+        if (n < 688383L) {
+            return (long) Math.ceil(n * (logN + logLogN));
+        }
+        return (long) Math.ceil(n * (logN + logLogN - 1.0 + (logLogN - 2.0) / logN));
+    }
+
+    /**
+     * The x with li(x) = n, found with Newton's method, since li(x) is a close estimate of pi(x).
+     */
+    private static long inverseLogarithmicIntegral(long n) {
+        double x = Math.max(2.0, n * Math.log(Math.max(2.0, n)));
+        for (int i = 0; i < 64; i++) {
+            final double next = Math.max(2.0, x - (logarithmicIntegral(x) - n) * Math.log(x));
+            if (Math.abs(next - x) < 1.0) {
+                return (long) next;
+            }
+            x = next;
+        }
+        return (long) x;
+    }
+
+    /**
+     * li(x) with the series of Ramanujan, for x > 1.
+     */
+    static double logarithmicIntegral(double x) {
+        final double logX = Math.log(x);
+        double sum = 0.0;
+        double term = 1.0;
+        double innerSum = 0.0;
+        for (int k = 1; k < 200; k++) {
+            //term = (-1)^(k-1) (ln x)^k / (k! 2^(k-1)), innerSum = sum of 1 / (2j + 1) for j <= (k - 1) / 2.
+            term *= (k == 1 ? logX : -logX / (2.0 * k));
+            if ((k & 1) == 1) {
+                innerSum += 1.0 / k;
+            }
+            final double next = sum + term * innerSum;
+            if (next == sum) {
+                break;
+            }
+            sum = next;
+        }
+        return EULER_GAMMA + Math.log(logX) + Math.sqrt(x) * sum;
+    }
+
+    private static PrimeCountTable getCountTable(long limit) {
+        PrimeCountTable current = countTable;
+        if (current.limit < limit) {
+            synchronized (PrimeCounter.class) {
+                current = countTable;
+                if (current.limit < limit) {
+                    current = PrimeCountTable.upTo(Math.min(MAX_TABLE_LIMIT, Math.max(limit, current.limit * 2L)));
+                    countTable = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    static long getFlooredCubeRoot(long num) {
+        long cubeRoot = (long) Math.cbrt(num);
+        while (cubeRoot * cubeRoot * cubeRoot > num) {
+            cubeRoot--;
+        }
+        while ((cubeRoot + 1) * (cubeRoot + 1) * (cubeRoot + 1) <= num) {
+            cubeRoot++;
+        }
+        return cubeRoot;
+    }
+
+    /**
+     * Meissel-Lehmer recursion for one call, with the primes up to the square root of its maximum value.
+     */
+    private static final class Counter {
+
+        private final PrimeCountTable table;
+
+        /**
+         * All the primes up to the square root of the maximum value, starting with 2.
+         */
+        private final long[] primes;
+
+        private final Deadline deadline;
+
+        /**
+         * Pool which the terms of the outermost phi(x, a) are expanded on.
+         */
+        private final ForkJoinPool pool;
+
+        private Counter(PrimeCountTable table, long sqrt, Deadline deadline, ForkJoinPool pool) {
+            this.table = table;
+            this.deadline = deadline;
+            this.pool = pool;
+            //There is always a prime between the square root and twice the square root, which ends the loops.
+            final long[] oddPrimes = SegmentedSieve.getBasePrimes(2L * sqrt + 2L);
+            int count = Arrays.binarySearch(oddPrimes, sqrt + 1L);
+            count = (count < 0 ? -count - 1 : count) + 1;
+            this.primes = new long[count + 1];
+            this.primes[0] = 2L;
+            System.arraycopy(oddPrimes, 0, this.primes, 1, count);
+        }
+
+        private long pi(long x, boolean parallel) {
+            if (x <= table.limit) {
+                return table.pi(x);
+            }
+            final int a = (int) pi(getFlooredCubeRoot(x), false);
+            long result = phi(x, a, parallel) + a - 1;
+            //P2(x, a): numbers p * q <= x with p_a < p <= q.
+            for (int i = a; primes[i] * primes[i] <= x; i++) {
+                if (parallel) {
+                    deadline.check();
+                }
+                result -= pi(x / primes[i], false) - i;
+            }
+            return result;
+        }
+
+        /**
+         * phi(x, a): the count of the numbers up to x which are not divisible by any of the first a primes.
+         */
+        private long phi(long x, int a, boolean parallel) {
+            if (a <= WHEEL_PRIMES.length) {
+                return a == WHEEL_PRIMES.length ? (x / PRIMORIAL) * TOTIENT + WHEEL_PHI[(int) (x % PRIMORIAL)]
+                        : smallPhi(x, a);
+            }
+            final long largestPrime = primes[a - 1];
+            if (x <= table.limit && largestPrime * largestPrime >= x / largestPrime) {
+                if (x <= largestPrime) {
+                    return x > 0L ? 1L : 0L;
+                }
+                //Only 1, the primes above p_a and the products of two such primes are left.
+                long result = table.pi(x) - a + 1;
+                for (int i = a; primes[i] * primes[i] <= x; i++) {
+                    result += table.pi(x / primes[i]) - i;
+                }
+                return result;
+            }
+            final long wheelPhi = phi(x, WHEEL_PRIMES.length, false);
+            if (parallel) {
+                //A parallel stream runs on the pool of the task which starts it.
+                return wheelPhi - pool.submit(() -> IntStream.range(WHEEL_PRIMES.length, a).parallel()
+                        .mapToLong(i -> {
+                            deadline.check();
+                            return phi(x / primes[i], i, false);
+                        }).sum()).join();
+            }
+            long result = wheelPhi;
+            for (int i = WHEEL_PRIMES.length; i < a; i++) {
+                final long quotient = x / primes[i];
+                if (quotient < primes[i]) {
+                    //phi(quotient, i) is 1 for every remaining prime.
+                    return result - (a - i);
+                }
+                result -= phi(quotient, i, false);
+            }
+            return result;
+        }
+
+        private long smallPhi(long x, int a) {
+            if (a == 0) {
+                return x;
+            }
+            return smallPhi(x, a - 1) - smallPhi(x / primes[a - 1], a - 1);
+        }
+    }
+
+    /**
+     * Immutable table of pi(x) for every x up to a limit. Every word holds the primality of 64 odd numbers and the
+     * count of the odd primes before it.
+     */
+    private static final class PrimeCountTable {
+
+        private final long limit;
+
+        private final long[] oddPrimeBits;
+
+        private final int[] counts;
+
+        private PrimeCountTable(long limit, long[] oddPrimeBits, int[] counts) {
+            this.limit = limit;
+            this.oddPrimeBits = oddPrimeBits;
+            this.counts = counts;
+        }
+
+        private static PrimeCountTable upTo(long limit) {
+            final int words = (int) (limit >>> 7) + 1;
+            final long[] oddPrimeBits = new long[words];
+            SegmentedSieve.forEachPrime(3L, limit, prime -> oddPrimeBits[(int) (prime >>> 7)] |= 1L << (prime >>> 1));
+            final int[] counts = new int[words];
+            for (int i = 1; i < words; i++) {
+                counts[i] = counts[i - 1] + Long.bitCount(oddPrimeBits[i - 1]);
+            }
+            return new PrimeCountTable(limit, oddPrimeBits, counts);
+        }
+
+        private long pi(long x) {
+            if (x < 2L) {
+                return 0L;
+            }
+            final int word = (int) (x >>> 7);
+            //Odd numbers of the word which are smaller than or equal to x.
+            final int oddNumbers = (int) ((x & 127L) + 1L) >>> 1;
+            final long mask = oddNumbers == 0 ? 0L : -1L >>> (64 - oddNumbers);
+            return 1L + counts[word] + Long.bitCount(oddPrimeBits[word] & mask);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.primeservice.util;
+
+import java.util.Arrays;
+
+/**
+ * Factorizes 64-bit numbers into their prime factors.
+ * The small factors are stripped by trial division with a table of the odd primes below {@link #TRIAL_LIMIT} from the
+ * sieve, where divisibility is tested with a multiplication by the inverse of the prime instead of a division. The
+ * remaining cofactor has no factor below the limit, so it has at most four prime factors. Those are split with
+ * Brent's variant of Pollard-Rho in Montgomery form and confirmed with {@link PrimeNumberUtil#isPrime(long)}.
+ */
+public final class PrimeFactorizer {
+
+    /**
+     * Odd primes below it are stripped by trial division.
+     */
+    static final long TRIAL_LIMIT = 1L << 12;
+
+    /**
+     * Number of Pollard-Rho steps whose differences are multiplied together before one gcd is taken.
+     */
+    private static final int GCD_BATCH = 128;
+
+    private static final long[] TRIAL_PRIMES = SegmentedSieve.getPrimeSequence(3L, TRIAL_LIMIT - 1L).toArray();
+
+    /**
+     * TRIAL_PRIMES[i]^-1 mod 2^64. A number n is divisible by the prime exactly if n * inverse, as an unsigned
+     * number, is at most {@link #TRIAL_QUOTIENT_LIMITS}[i].
+     */
+    private static final long[] TRIAL_INVERSES = new long[TRIAL_PRIMES.length];
+
+    /**
+     * (2^64 - 1) / TRIAL_PRIMES[i], the largest quotient of a multiple of the prime.
+     */
+    private static final long[] TRIAL_QUOTIENT_LIMITS = new long[TRIAL_PRIMES.length];
+
+    static {
+        for (int i = 0; i < TRIAL_PRIMES.length; i++) {
+            TRIAL_INVERSES[i] = inverse(TRIAL_PRIMES[i]);
+            TRIAL_QUOTIENT_LIMITS[i] = Long.divideUnsigned(-1L, TRIAL_PRIMES[i]);
+        }
+    }
+
+    private PrimeFactorizer() {
+    }
+
+    /**
+     * Gets the prime factors of a number, every factor as many times as it divides the number.
+     *
+     * @param num - number to factorize, at least 1.
+     * @return long[] - prime factors in ascending order, which multiply to num. Empty for 1.
+     */
+    public static long[] factorize(long num) {
+        if (num < 1L) {
+            throw new IllegalArgumentException("Only positive numbers have a prime factorization: " + num);
+        }
+        final long[] factors = new long[Long.SIZE];
+        final int twos = Long.numberOfTrailingZeros(num);
+        Arrays.fill(factors, 0, twos, 2L);
+        int size = twos;
+        long cofactor = num >>> twos;
+
+        for (int i = 0; i < TRIAL_PRIMES.length && cofactor > 1L; i++) {
+            final long prime = TRIAL_PRIMES[i];
+            //A cofactor without factors up to its square root is prime.
+            if (prime > cofactor / prime) {
+                factors[size++] = cofactor;
+                return Arrays.copyOf(factors, size);
+            }
+            long quotient = cofactor * TRIAL_INVERSES[i];
+            while (Long.compareUnsigned(quotient, TRIAL_QUOTIENT_LIMITS[i]) <= 0) {
+                factors[size++] = prime;
+                cofactor = quotient;
+                quotient = cofactor * TRIAL_INVERSES[i];
+            }
+        }
+        if (cofactor > 1L) {
+            size = splitCofactor(cofactor, factors, size);
+            Arrays.sort(factors, 0, size);
+        }
+        return Arrays.copyOf(factors, size);
+    }
+
+    /**
+     * Adds the prime factors of an odd cofactor without small factors to the factors.
+     *
+     * @return int - the new number of factors.
+     */
+    private static int splitCofactor(long cofactor, long[] factors, int size) {
+        if (cofactor < TRIAL_LIMIT * TRIAL_LIMIT || PrimeNumberUtil.isPrime(cofactor)) {
+            factors[size] = cofactor;
+            return size + 1;
+        }
+        long divisor = cofactor;
+        for (long increment = 1L; divisor == cofactor; increment++) {
+            divisor = findDivisor(cofactor, increment);
+        }
+        return splitCofactor(cofactor / divisor, factors, splitCofactor(divisor, factors, size));
+    }
+
+    /**
+     * Brent's cycle detection on x -> x^2 + increment modulo an odd composite number. The differences of the
+     * sequence are multiplied in batches, so that one gcd covers {@link #GCD_BATCH} steps; a batch which overshoots
+     * to the number itself is stepped through again one gcd at a time.
+     *
+     * @return long - a divisor larger than 1, which is the number itself if the increment failed.
+     */
+    private static long findDivisor(long num, long increment) {
+        final PrimeNumberUtil.Montgomery montgomery = new PrimeNumberUtil.Montgomery(num);
+        final long c = montgomery.toMontgomery(increment);
+        long y = montgomery.toMontgomery(2L);
+        long x = y;
+        long batchStart = y;
+        long product = montgomery.one;
+        long divisor = 1L;
+        for (long cycle = 1L; divisor == 1L; cycle *= 2L) {
+            x = y;
+            for (long i = 0L; i < cycle; i++) {
+                y = montgomery.addModulo(montgomery.multiply(y, y), c);
+            }
+            for (long step = 0L; step < cycle && divisor == 1L; step += GCD_BATCH) {
+                batchStart = y;
+                final long batch = Math.min(GCD_BATCH, cycle - step);
+                for (long i = 0L; i < batch; i++) {
+                    y = montgomery.addModulo(montgomery.multiply(y, y), c);
+                    product = montgomery.multiply(product, Math.abs(x - y));
+                }
+                divisor = gcd(product, num);
+            }
+        }
+        if (divisor == num) {
+            do {
+                batchStart = montgomery.addModulo(montgomery.multiply(batchStart, batchStart), c);
+                divisor = gcd(Math.abs(x - batchStart), num);
+            } while (divisor == 1L);
+        }
+        return divisor;
+    }
+
+    /**
+     * Binary gcd of two non-negative numbers.
+     */
+    static long gcd(long a, long b) {
+        if (a == 0L || b == 0L) {
+            return a | b;
+        }
+        final int commonTwos = Long.numberOfTrailingZeros(a | b);
+        a >>>= Long.numberOfTrailingZeros(a);
+        while (b != 0L) {
+            b >>>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                final long t = a;
+                a = b;
+                b = t;
+            }
+            b -= a;
+        }
+        return a << commonTwos;
+    }
+
+    /**
+     * Inverse of an odd number modulo 2^64.
+     */
+    private static long inverse(long odd) {
+        //Newton iteration, every step doubles the number of correct low bits.
+        long inverse = odd;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2L - odd * inverse;
+        }
+        return inverse;
+    }
+}
@@ -5,6 +5,44 @@ package com.primeservice.util;
  */
 public class PrimeNumberUtil {
 
+    /**
+     * Primes used to filter out most of the composite numbers before running Miller-Rabin.
+     */
+    private static final long[] SMALL_PRIMES = {2L, 3L, 5L, 7L, 11L, 13L, 17L, 19L, 23L, 29L, 31L, 37L, 41L, 43L,
+            47L, 53L};
+
+    /**
+     * Miller-Rabin witnesses which are deterministic for every 64-bit number.
+     */
+    private static final long[] MILLER_RABIN_WITNESSES = {2L, 325L, 9375L, 28178L, 450775L, 9780504L, 1795265022L};
+
+    private static final long LOW_32_BITS = 0xFFFFFFFFL;
+
+    /**
+     * Checks if the number is prime. The number is checked against the small primes first and then with a
+     * deterministic Miller-Rabin test, which is exact for every long.
+     *
+     * @param num - primeCandidate.
+     * @return boolean - if the number is prime.
+     */
+    public static boolean isPrime(long num) {
+        // 1 is not a prime number
+        if (num < 2L) {
+            return false;
+        }
+        for (long smallPrime : SMALL_PRIMES) {
+            if (num % smallPrime == 0L) {
+                return num == smallPrime;
+            }
+        }
+        //Every composite number has a factor smaller than or equal to its square root.
+        final long largestSmallPrime = SMALL_PRIMES[SMALL_PRIMES.length - 1];
+        if (num < largestSmallPrime * largestSmallPrime) {
+            return true;
+        }
+        return isMillerRabinPrime(num);
+    }
+
     /**
      * Checks if the number is prime. If a number num is not prime one of the factors has to be
      * in the range 2 to square-root(num).
@@ -12,7 +50,7 @@ public class PrimeNumberUtil {
      * @param num - primeCandidate.
      * @return boolean - if the number is prime.
      */
-    public static boolean isPrime(long num) {
+    public static boolean isPrimeByTrialDivision(long num) {
         // 1 is not a prime number
         if (num < 2L) {
             return false;
@@ -30,12 +68,141 @@ public class PrimeNumberUtil {
         return true;
     }
 
+    /**
+     * Deterministic Miller-Rabin test of an odd number larger than the witnesses' small prime factors.
+     * The modular multiplications are done in Montgomery form, so they never overflow.
+     */
+    private static boolean isMillerRabinPrime(long num) {
+        final Montgomery montgomery = new Montgomery(num);
+        final int twos = Long.numberOfTrailingZeros(num - 1L);
+        final long oddPart = (num - 1L) >>> twos;
+        final long minusOne = num - montgomery.one;
+
+        for (long witness : MILLER_RABIN_WITNESSES) {
+            final long base = witness % num;
+            if (base == 0L) {
+                continue;
+            }
+            long x = montgomery.pow(montgomery.toMontgomery(base), oddPart);
+            if (x == montgomery.one || x == minusOne) {
+                continue;
+            }
+            boolean composite = true;
+            for (int i = 1; i < twos && composite; i++) {
+                x = montgomery.multiply(x, x);
+                composite = x != minusOne;
+            }
+            if (composite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * High 64 bits of the unsigned 128-bit product of a and b.
+     */
+    static long unsignedMultiplyHigh(long a, long b) {
+        final long aLow = a & LOW_32_BITS;
+        final long aHigh = a >>> 32;
+        final long bLow = b & LOW_32_BITS;
+        final long bHigh = b >>> 32;
+        final long middle = aHigh * bLow + ((aLow * bLow) >>> 32);
+        final long carry = (middle & LOW_32_BITS) + aLow * bHigh;
+        return aHigh * bHigh + (middle >>> 32) + (carry >>> 32);
+    }
+
+    /**
+     * Montgomery arithmetic modulo an odd modulus smaller than 2^63, with R = 2^64.
+     */
+    static final class Montgomery {
+
+        private final long modulus;
+
+        /**
+         * -modulus^-1 mod 2^64.
+         */
+        private final long negativeInverse;
+
+        /**
+         * R^2 mod modulus.
+         */
+        private final long rSquared;
+
+        /**
+         * R mod modulus, which is 1 in Montgomery form.
+         */
+        final long one;
+
+        Montgomery(long modulus) {
+            this.modulus = modulus;
+            //Newton iteration, every step doubles the number of correct low bits.
+            long inverse = modulus;
+            for (int i = 0; i < 5; i++) {
+                inverse *= 2L - modulus * inverse;
+            }
+            this.negativeInverse = -inverse;
+            this.one = Long.remainderUnsigned(-modulus, modulus);
+            long r = one;
+            for (int i = 0; i < 64; i++) {
+                r = addModulo(r, r);
+            }
+            this.rSquared = r;
+        }
+
+        long toMontgomery(long value) {
+            return multiply(value, rSquared);
+        }
+
+        long multiply(long a, long b) {
+            return reduce(unsignedMultiplyHigh(a, b), a * b);
+        }
+
+        long pow(long base, long exponent) {
+            long result = one;
+            while (exponent != 0L) {
+                if ((exponent & 1L) == 1L) {
+                    result = multiply(result, base);
+                }
+                base = multiply(base, base);
+                exponent >>>= 1;
+            }
+            return result;
+        }
+
+        long addModulo(long a, long b) {
+            final long sum = a + b;
+            return Long.compareUnsigned(sum, modulus) >= 0 ? sum - modulus : sum;
+        }
+
+        /**
+         * Montgomery reduction of the 128-bit value (high, low), which is smaller than modulus * R.
+         */
+        private long reduce(long high, long low) {
+            final long m = low * negativeInverse;
+            final long carry = low != 0L ? 1L : 0L;
+            final long result = high + unsignedMultiplyHigh(m, modulus) + carry;
+            return Long.compareUnsigned(result, modulus) >= 0 ? result - modulus : result;
+        }
+    }
+
     /**
      * Utility method to get the floored square root of a long.
      * @param num - input number
      * @return long - floor of square root of a number.
      */
     public static long getFlooredSquareRoot(long num) {
-        return (long) Math.floor(Math.sqrt(num));
+        if (num <= 0L) {
+            return 0L;
+        }
+        long sqrt = (long) Math.floor(Math.sqrt(num));
+        //Math.sqrt works on doubles, which can be off by one for large longs.
+        while (sqrt > num / sqrt) {
+            sqrt--;
+        }
+        while (sqrt + 1L <= num / (sqrt + 1L)) {
+            sqrt++;
+        }
+        return sqrt;
     }
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package com.primeservice.util;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.api.PrimeSequenceBuilder;
+import com.primeservice.exception.InvalidInputException;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A segmented, odd-only Sieve of Eratosthenes.
+ * A range [startRange, endRange] is sieved in cache-sized segments, where every bit of a segment represents an odd
+ * candidate. The base primes up to square-root(endRange) are computed once and shared by all the callers, up to
+ * {@link #MAX_SHARED_BASE_PRIME_LIMIT}. Larger base primes are sieved for the callers which need them and only kept
+ * while the heap has room, and ranges beyond {@link #MAX_VALUE} are rejected.
+ */
+public final class SegmentedSieve {
+
+    /**
+     * Number of odd candidates per segment. 2^18 bits is a 32 KB bitmap which fits the L1/L2 data cache.
+     */
+    static final int SEGMENT_BITS = 1 << 18;
+
+    /**
+     * Largest capacity which is allocated up front for the primes of a range. Larger results grow as they are found.
+     */
+    private static final int MAX_INITIAL_CAPACITY = 1 << 20;
+
+    /**
+     * Limit of the base primes which are sieved without segments, which the larger ones are sieved with.
+     */
+    private static final long BOOTSTRAP_LIMIT = 1L << 16;
+
+    /**
+     * Largest limit of the shared base primes, about 300K primes in 2.4 MB which cover the ranges up to 1.7e13.
+     */
+    static final long MAX_SHARED_BASE_PRIME_LIMIT = 1L << 22;
+
+    /**
+     * Largest limit of the base primes of a range, about 2M primes in 16 MB.
+     */
+    static final long MAX_BASE_PRIME_LIMIT = 1L << 25;
+
+    /**
+     * Largest end of a range which can be sieved, about 1.1e15.
+     */
+    public static final long MAX_VALUE = MAX_BASE_PRIME_LIMIT * MAX_BASE_PRIME_LIMIT - 1L;
+
+    /**
+     * Shared table of the base primes. It is only ever replaced by a larger table, up to
+     * {@link #MAX_SHARED_BASE_PRIME_LIMIT}.
+     */
+    private static volatile BasePrimes basePrimes = BasePrimes.sieve(BOOTSTRAP_LIMIT);
+
+    /**
+     * The latest base primes beyond the shared ones, which the chunks of a large range reuse. The collector frees
+     * them when the heap runs short.
+     */
+    private static volatile SoftReference<BasePrimes> largeBasePrimes = new SoftReference<>(null);
+
+    private SegmentedSieve() {
+    }
+
+    /**
+     * Gets all the PrimeNumbers in the range startRange to endRange, both inclusive.
+     *
+     * @param startRange - start of the range.
+     * @param endRange   - end of the range.
+     * @return List - prime numbers in the range in ascending order.
+     */
+    public static List<Long> getPrimeNumbers(long startRange, long endRange) {
+        return getPrimeSequence(startRange, endRange).asList();
+    }
+
+    /**
+     * Gets all the PrimeNumbers in the range startRange to endRange, both inclusive, without boxing them.
+     *
+     * @param startRange - start of the range.
+     * @param endRange   - end of the range.
+     * @return PrimeSequence - prime numbers in the range in ascending order.
+     */
+    public static PrimeSequence getPrimeSequence(long startRange, long endRange) {
+        return getPrimeSequence(startRange, endRange, Deadline.NONE);
+    }
+
+    /**
+     * Gets all the PrimeNumbers in the range startRange to endRange, both inclusive, without boxing them. The
+     * deadline is checked after every sieve segment.
+     *
+     * @param startRange - start of the range.
+     * @param endRange   - end of the range.
+     * @param deadline   - deadline of the request.
+     * @return PrimeSequence - prime numbers in the range in ascending order.
+     * @throws com.primeservice.exception.DeadlineExceededException if the deadline expires.
+     */
+    public static PrimeSequence getPrimeSequence(long startRange, long endRange, Deadline deadline) {
+        final PrimeSequenceBuilder builder = new PrimeSequenceBuilder(estimateCount(startRange, endRange));
+        forEachPrime(startRange, endRange, builder, deadline::check);
+        return builder.build();
+    }
+
+    /**
+     * Passes every prime number in the range startRange to endRange, both inclusive, to the consumer in ascending
+     * order.
+     *
+     * @param startRange - start of the range.
+     * @param endRange   - end of the range.
+     * @param consumer   - receives the prime numbers.
+     */
+    public static void forEachPrime(long startRange, long endRange, LongConsumer consumer) {
+        forEachPrime(startRange, endRange, consumer, () -> {
+        });
+    }
+
+    /**
+     * Passes every prime number in the range startRange to endRange, both inclusive, to the consumer in ascending
+     * order. The segmentListener is notified after the primes of every sieve segment were passed to the consumer.
+     *
+     * @param startRange      - start of the range.
+     * @param endRange        - end of the range.
+     * @param consumer        - receives the prime numbers.
+     * @param segmentListener - notified after every segment.
+     * @throws InvalidInputException if endRange is beyond {@link #MAX_VALUE}.
+     */
+    public static void forEachPrime(long startRange, long endRange, LongConsumer consumer, Runnable segmentListener) {
+        if (endRange < 2L || endRange < startRange) {
+            return;
+        }
+        if (endRange > MAX_VALUE) {
+            throw new InvalidInputException(endRange);
+        }
+        if (startRange <= 2L) {
+            consumer.accept(2L);
+        }
+        //First odd candidate which is at least 3.
+        long low = Math.max(3L, startRange | 1L);
+        if (low > endRange) {
+            segmentListener.run();
+            return;
+        }
+
+        final long[] primes = getBasePrimes(PrimeNumberUtil.getFlooredSquareRoot(endRange));
+        final long[] segment = new long[SEGMENT_BITS >>> 6];
+
+        while (true) {
+            //Number of odd candidates in this segment, computed without overflowing near Long.MAX_VALUE.
+            final long remaining = (endRange - low) / 2L + 1L;
+            final int bits = (int) Math.min(SEGMENT_BITS, remaining);
+            final long high = low + 2L * (bits - 1);
+
+            sieveSegment(low, high, bits, primes, segment);
+
+            for (int word = 0; word <= (bits - 1) >>> 6; word++) {
+                long candidates = ~segment[word];
+                while (candidates != 0L) {
+                    final int bit = (word << 6) + Long.numberOfTrailingZeros(candidates);
+                    if (bit >= bits) {
+                        break;
+                    }
+                    consumer.accept(low + 2L * bit);
+                    candidates &= candidates - 1L;
+                }
+            }
+
+            segmentListener.run();
+            if (high >= endRange - 1L) {
+                return;
+            }
+            low = high + 2L;
+        }
+    }
+
+    /**
+     * @return long - the limit up to which the shared base primes are computed already.
+     */
+    public static long getBasePrimesLimit() {
+        return basePrimes.limit;
+    }
+
+    /**
+     * Gets the odd base primes up to the limit. The returned array may contain primes larger than the limit.
+     *
+     * @param limit - largest base prime required, at most {@link #MAX_BASE_PRIME_LIMIT}.
+     * @return long[] - odd base primes in ascending order.
+     * @throws InvalidInputException if the limit is beyond {@link #MAX_BASE_PRIME_LIMIT}.
+     */
+    public static long[] getBasePrimes(long limit) {
+        BasePrimes current = basePrimes;
+        if (current.limit >= limit) {
+            return current.primes;
+        }
+        if (limit > MAX_SHARED_BASE_PRIME_LIMIT) {
+            return getLargeBasePrimes(limit);
+        }
+        synchronized (SegmentedSieve.class) {
+            current = basePrimes;
+            if (current.limit < limit) {
+                current = BasePrimes.upTo(Math.min(MAX_SHARED_BASE_PRIME_LIMIT, Math.max(limit, current.limit * 2L)));
+                basePrimes = current;
+            }
+        }
+        return current.primes;
+    }
+
+    /**
+     * Gets the base primes beyond the shared ones, which are not kept in the shared table.
+     */
+    private static long[] getLargeBasePrimes(long limit) {
+        if (limit > MAX_BASE_PRIME_LIMIT) {
+            throw new InvalidInputException(limit);
+        }
+        BasePrimes large = largeBasePrimes.get();
+        if (large == null || large.limit < limit) {
+            //Rounded up, so that the ranges close to each other share them.
+            large = BasePrimes.upTo(Math.min(MAX_BASE_PRIME_LIMIT, Long.highestOneBit(limit - 1L) << 1));
+            largeBasePrimes = new SoftReference<>(large);
+        }
+        return large.primes;
+    }
+
+    /**
+     * Estimates the number of primes in the range from the density 1 / ln(x), slightly above the real count.
+     */
+    static int estimateCount(long startRange, long endRange) {
+        if (endRange < startRange || endRange < 2L) {
+            return 0;
+        }
+        final double count = 1.1 * (endRange - startRange + 1.0) / Math.log(Math.max(endRange, 3L)) + 16.0;
+        return (int) Math.min(MAX_INITIAL_CAPACITY, count);
+    }
+
+    /**
+     * Marks the odd multiples of the base primes in the segment [low, high].
+     */
+    private static void sieveSegment(long low, long high, int bits, long[] primes, long[] segment) {
+        Arrays.fill(segment, 0, ((bits - 1) >>> 6) + 1, 0L);
+        for (long prime : primes) {
+            if (prime > high / prime) {
+                break;
+            }
+            //Distance from low to the first odd multiple of the prime which is not the prime itself.
+            long offset;
+            if (prime * prime >= low) {
+                offset = prime * prime - low;
+            } else {
+                offset = (prime - low % prime) % prime;
+                if ((offset & 1L) == 1L) {
+                    offset += prime;
+                }
+            }
+            for (long index = offset >>> 1; index < bits; index += prime) {
+                segment[(int) (index >>> 6)] |= 1L << index;
+            }
+        }
+    }
+
+    /**
+     * Immutable table of the odd primes up to a limit.
+     */
+    private static final class BasePrimes {
+
+        private final long limit;
+
+        private final long[] primes;
+
+        private BasePrimes(long limit, long[] primes) {
+            this.limit = limit;
+            this.primes = primes;
+        }
+
+        /**
+         * Segmented sieve of the odd primes from 3 to limit, whose own base primes are at most the square root of
+         * {@link #MAX_BASE_PRIME_LIMIT}, so that they are always shared.
+         */
+        private static BasePrimes upTo(long limit) {
+            final PrimeSequenceBuilder primes = new PrimeSequenceBuilder(estimateCount(3L, limit));
+            forEachPrime(3L, limit, primes);
+            return new BasePrimes(limit, primes.build().toArray());
+        }
+
+        /**
+         * Simple odd-only sieve of the primes from 3 to limit, which the shared table starts with.
+         */
+        private static BasePrimes sieve(long limit) {
+            final int size = (int) (limit / 2L);
+            final boolean[] composite = new boolean[size + 1];
+            long[] primes = new long[64];
+            int count = 0;
+            for (int i = 1; i <= size; i++) {
+                if (composite[i]) {
+                    continue;
+                }
+                final long prime = 2L * i + 1L;
+                if (prime > limit) {
+                    break;
+                }
+                if (count == primes.length) {
+                    primes = Arrays.copyOf(primes, count * 2);
+                }
+                primes[count++] = prime;
+                for (long j = (prime * prime) >>> 1; j <= size; j += prime) {
+                    composite[(int) j] = true;
+                }
+            }
+            return new BasePrimes(limit, Arrays.copyOf(primes, count));
+        }
+    }
+}
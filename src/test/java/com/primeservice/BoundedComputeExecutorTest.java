@@ -0,0 +1,134 @@
+package com.primeservice;
+
+import com.primeservice.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link BoundedComputeExecutor}
+ */
+public class BoundedComputeExecutorTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void submitRunsTaskAndReleasesWork() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(2, 4, 1000, meterRegistry);
+
+        //When
+        final CompletableFuture<String> result = executor.submit(500, () -> "done");
+
+        //Then
+        assertThat(result.get(10, TimeUnit.SECONDS), is("done"));
+        assertThat(executor.getAdmittedWork(), is(0L));
+    }
+
+    @Test
+    public void workWithoutCostRunsInline() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(1, 1, 1000, meterRegistry);
+        executor.admit(1000000);
+
+        //When
+        final CompletableFuture<String> result = executor.submit(0, () -> Thread.currentThread().getName());
+
+        //Then
+        assertThat(result.isDone(), is(true));
+        assertThat(result.get(), is(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void workLargerThanBudgetIsAdmittedAlone() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(1, 1, 1000, meterRegistry);
+
+        //When
+        executor.admit(5000);
+
+        //Then
+        assertThat(executor.getAdmittedWork(), is(5000L));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void workOverBudgetIsRejected() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(1, 1, 1000, meterRegistry);
+        executor.admit(800);
+
+        //When
+        try {
+            executor.submit(300, () -> "never");
+            fail("Should not execute this");
+        } catch (TooManyRequestsException ex) {
+            //Then
+            assertThat(ex.getRetryAfterSeconds(), is(1L));
+            assertThat(executor.getAdmittedWork(), is(800L));
+            assertThat(meterRegistry.counter("prime.admission.rejected").count(), is(1.0));
+        }
+    }
+
+    @Test
+    public void hugeWorkDoesNotOverflowAdmittedWork() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(1, 1, 1000, meterRegistry);
+        executor.admit(800);
+
+        //When
+        try {
+            executor.admit(Long.MAX_VALUE);
+            fail("Should not execute this");
+        } catch (TooManyRequestsException ex) {
+            //Then
+            assertThat(executor.getAdmittedWork(), is(800L));
+        }
+        try {
+            executor.admit(300);
+            fail("Should not execute this");
+        } catch (TooManyRequestsException ex) {
+            assertThat(executor.getAdmittedWork(), is(800L));
+        }
+    }
+
+    @Test
+    public void fullQueueIsRejected() throws Exception {
+        //Given
+        final BoundedComputeExecutor executor = new BoundedComputeExecutor(1, 1, Long.MAX_VALUE, meterRegistry);
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<Boolean> first = executor.submit(1, () -> {
+            running.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        running.await(10, TimeUnit.SECONDS);
+        final CompletableFuture<Boolean> queued = executor.submit(1, () -> true);
+
+        //When
+        try {
+            executor.submit(1, () -> true);
+            fail("Should not execute this");
+        } catch (TooManyRequestsException ex) {
+            //Then
+            assertThat(executor.getAdmittedWork(), is(2L));
+        } finally {
+            release.countDown();
+        }
+        assertThat(first.get(10, TimeUnit.SECONDS), is(true));
+        assertThat(queued.get(10, TimeUnit.SECONDS), is(true));
+    }
+    //region end
+}
@@ -0,0 +1,160 @@
+package com.primeservice;
+
+import com.primeservice.cache.PrimeFrontier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link FrontierWarmer}
+ */
+public class FrontierWarmerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MultiThreadedCachedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2,
+            meterRegistry);
+
+    private final BoundedComputeExecutor computeExecutor = new BoundedComputeExecutor(1, 1, 1000000000L,
+            meterRegistry);
+
+    private FrontierWarmer frontierWarmer;
+
+    @After
+    public void stopWarmer() {
+        frontierWarmer.close();
+    }
+
+    @Test
+    public void warmUpCachesUpToTheLimit() throws Exception {
+        //Given
+        frontierWarmer = new FrontierWarmer(primeService, computeExecutor, 40000000L, false, 1, Long.MAX_VALUE,
+                meterRegistry);
+        final long initialLimit = primeService.getCacheLimit();
+
+        //When
+        frontierWarmer.start();
+
+        //Then
+        awaitValues("startup", 40000000L - initialLimit);
+        primeService.getPrimeNumbers(40000000L);
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "hit").count(), is(1.0));
+        assertThat(primeService.estimateWork(40000001L), is(1L));
+    }
+
+    @Test
+    public void speculationExtendsAheadOfTheRequests() throws Exception {
+        //Given
+        frontierWarmer = new FrontierWarmer(primeService, computeExecutor, 0L, true, 1, Long.MAX_VALUE,
+                meterRegistry);
+        primeService.getPrimeNumbers(300000L);
+
+        //When
+        frontierWarmer.start();
+
+        //Then
+        awaitValues("speculative", (FrontierWarmer.SPECULATION_FACTOR - 1L) * 300000L);
+        assertThat(primeService.estimateWork(FrontierWarmer.SPECULATION_FACTOR * 300000L + 1L), is(1L));
+    }
+
+    @Test
+    public void speculationWaitsForIdleTime() throws Exception {
+        //Given
+        frontierWarmer = new FrontierWarmer(primeService, computeExecutor, 0L, true, 1, Long.MAX_VALUE,
+                meterRegistry);
+        primeService.getPrimeNumbers(300000L);
+        computeExecutor.admit(1000L);
+
+        //When
+        frontierWarmer.start();
+        Thread.sleep(500L);
+
+        //Then
+        assertThat(primeService.estimateWork(600000L), is(300000L));
+        computeExecutor.release(1000L, 0L);
+        awaitValues("speculative", 300000L);
+        assertThat(primeService.estimateWork(600000L), is(0L));
+    }
+
+    @Test
+    public void speculationStopsAtTheMemoryBudget() throws Exception {
+        //Given
+        final long maxCacheSizeInBytes = 1L << 16;
+        frontierWarmer = new FrontierWarmer(primeService, computeExecutor, 0L, true, 1, maxCacheSizeInBytes,
+                meterRegistry);
+        primeService.getPrimeNumbers(200000000L);
+
+        //When
+        frontierWarmer.start();
+        Thread.sleep(500L);
+
+        //Then
+        assertThat(primeService.getCacheSizeInBytes() > maxCacheSizeInBytes, is(true));
+        assertThat(primeService.estimateWork(200000001L), is(1L));
+        assertThat(meterRegistry.counter("prime.warmup.values", "phase", "speculative").count(), is(0.0));
+    }
+
+    @Test
+    public void warmUpStopsAtTheBoundOfTheCache() throws Exception {
+        //Given
+        final MultiThreadedCachedPrimeService boundedService = new MultiThreadedCachedPrimeService(true, 2,
+                meterRegistry, new PrimeFrontier(4096));
+        frontierWarmer = new FrontierWarmer(boundedService, computeExecutor, 1000000000L, false, 1, Long.MAX_VALUE,
+                meterRegistry);
+
+        //When
+        frontierWarmer.start();
+
+        //Then
+        await(() -> meterRegistry.counter("prime.warmup.values", "phase", "startup").count() > 0.0);
+        final long limit = boundedService.getCacheLimit();
+        assertThat(limit, is(boundedService.getMaxCacheLimit()));
+        assertThat(boundedService.precompute(1000000000L, 1), is(limit));
+    }
+
+    @Test
+    public void speculationStopsAtTheBoundOfTheCache() throws Exception {
+        //Given
+        final AtomicInteger precomputations = new AtomicInteger();
+        final MultiThreadedCachedPrimeService boundedService = new MultiThreadedCachedPrimeService(true, 2,
+                meterRegistry, new PrimeFrontier(4096)) {
+            @Override
+            public long precompute(long maxValue, int maxParallelism) {
+                precomputations.incrementAndGet();
+                return super.precompute(maxValue, maxParallelism);
+            }
+        };
+        frontierWarmer = new FrontierWarmer(boundedService, computeExecutor, 0L, true, 1, Long.MAX_VALUE,
+                meterRegistry);
+        //The request fills the cache, and twice its value is beyond the bound.
+        boundedService.getPrimeNumbers(boundedService.getMaxCacheLimit());
+
+        //When
+        frontierWarmer.start();
+        Thread.sleep(500L);
+
+        //Then
+        assertThat(boundedService.getCacheLimit(), is(boundedService.getMaxCacheLimit()));
+        assertThat(precomputations.get(), is(0));
+    }
+
+    private void awaitValues(String phase, long values) throws InterruptedException {
+        await(() -> meterRegistry.counter("prime.warmup.values", "phase", phase).count() >= values);
+        assertThat(meterRegistry.counter("prime.warmup.values", "phase", phase).count(), is((double) values));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 30000L;
+        while (!condition.getAsBoolean()) {
+            assertThat("Timed out", System.currentTimeMillis() < deadline, is(true));
+            Thread.sleep(10L);
+        }
+    }
+}
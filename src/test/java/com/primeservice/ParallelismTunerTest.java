@@ -0,0 +1,71 @@
+package com.primeservice;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link ParallelismTuner}
+ */
+public class ParallelismTunerTest {
+
+    @Test
+    public void smallRangesAreInline() throws Exception {
+        //Given
+        final ParallelismTuner tuner = new ParallelismTuner(8);
+
+        //Then
+        assertThat(tuner.choose(1L), is(1));
+        assertThat(tuner.choose(1000000L), is(1));
+    }
+
+    @Test
+    public void largeRangesUseEveryWorker() throws Exception {
+        //Given
+        final ParallelismTuner tuner = new ParallelismTuner(8);
+
+        //Then
+        assertThat(tuner.choose(4000000L), is(4));
+        assertThat(tuner.choose(1000000000L), is(8));
+        assertThat(tuner.choose(Long.MAX_VALUE), is(8));
+    }
+
+    @Test
+    public void measuredCostChangesTheParallelism() throws Exception {
+        //Given
+        final ParallelismTuner tuner = new ParallelismTuner(64);
+
+        //When
+        for (int i = 0; i < 50; i++) {
+            tuner.record(1000000L, 4000000L);
+        }
+
+        //Then
+        assertThat(Math.abs(tuner.getNanosPerValue() - 4.0) < 0.01, is(true));
+        assertThat(tuner.choose(250000L), is(1));
+        assertThat(tuner.choose(4100000L), is(16));
+
+        //When
+        for (int i = 0; i < 50; i++) {
+            tuner.record(1000000L, 250000L);
+        }
+
+        //Then
+        assertThat(tuner.choose(4000000L), is(1));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void emptyMeasurementIsIgnored() throws Exception {
+        //Given
+        final ParallelismTuner tuner = new ParallelismTuner(4);
+
+        //When
+        tuner.record(0L, 1000L);
+
+        //Then
+        assertThat(tuner.getNanosPerValue(), is(ParallelismTuner.INITIAL_NANOS_PER_VALUE));
+    }
+    //region end
+}
@@ -0,0 +1,355 @@
+package com.primeservice;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.cache.PrimeFrontier;
+import com.primeservice.engine.SegmentedSieveEngine;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.util.DirectBufferArena;
+import com.primeservice.util.PrimeCounter;
+import com.primeservice.util.SegmentedSieve;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link PrimeCalculationContext}
+ */
+public class PrimeCalculationContextTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private final Timer chunkTimer = new SimpleMeterRegistry().timer("prime.chunk");
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void smallRangeIsOneChunk() throws Exception {
+        //Given
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 10L, 4, chunkTimer);
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(context.getNumberOfChunks(), is(1));
+        assertThat(context.getConsolidatedResult().asList().toString(), is("[2, 3, 5, 7]"));
+    }
+
+    @Test
+    public void chunksAreMergedInOrder() throws Exception {
+        //Given
+        final long minValue = 1000003L;
+        final long maxValue = 9999991L;
+        final PrimeCalculationContext context = new PrimeCalculationContext(minValue, maxValue, 4, chunkTimer);
+
+        //When
+        context.execute(POOL);
+        final List<Long> result = context.getConsolidatedResult().asList();
+
+        //Then
+        assertThat(context.getNumberOfChunks() > 4, is(true));
+        assertThat(result, is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+        assertThat(chunkTimer.count(), is((long) context.getNumberOfChunks()));
+    }
+
+    @Test
+    public void singleWorkerRunsInline() throws Exception {
+        //Given
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 3000000L, 1, chunkTimer);
+        final ForkJoinPool unusedPool = new ForkJoinPool(1);
+        unusedPool.shutdown();
+
+        //When
+        context.execute(unusedPool);
+
+        //Then
+        assertThat(context.getParallelism(), is(1));
+        assertThat(context.getConsolidatedResult().asList(), is(SegmentedSieve.getPrimeNumbers(2L, 3000000L)));
+        assertThat(context.getCalculatedValues(), is(2999999L));
+        assertThat(context.getChunkNanos() > 0, is(true));
+    }
+
+    @Test
+    public void chunkSizeIsBounded() throws Exception {
+        //Given
+        final long rangeSize = 1L << 30;
+
+        //When
+        final PrimeCalculationContext single = new PrimeCalculationContext(1L, rangeSize, 1, chunkTimer);
+        final PrimeCalculationContext many = new PrimeCalculationContext(1L, rangeSize, 100000, chunkTimer);
+
+        //Then
+        assertThat(single.getNumberOfChunks(), is((int) (rangeSize / PrimeCalculationContext.MAX_CHUNK_SIZE)));
+        assertThat(many.getNumberOfChunks(), is((int) (rangeSize / PrimeCalculationContext.MIN_CHUNK_SIZE)));
+    }
+
+    @Test
+    public void expiredDeadlineSkipsChunks() throws Exception {
+        //Given
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+        final PrimeCalculationContext context = new PrimeCalculationContext(1000L, 100000000L, 4, chunkTimer,
+                deadline);
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(context.isComplete(), is(false));
+        assertThat(context.getCompletedLimit(), is(999L));
+        assertThat(context.getConsolidatedResult().size(), is(0));
+        assertThat(chunkTimer.count(), is(0L));
+    }
+
+    @Test
+    public void completedContextReachesMaxValue() throws Exception {
+        //Given
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 1000000L, 4, chunkTimer,
+                Deadline.after(60000L));
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(context.isComplete(), is(true));
+        assertThat(context.getCompletedLimit(), is(1000000L));
+        assertThat(context.getConsolidatedResult().size(), is(78498));
+    }
+
+    @Test
+    public void closeReturnsTheBuffersToTheArena() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(Long.MAX_VALUE);
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 10000000L, 4, chunkTimer,
+                Deadline.NONE, new SegmentedSieveEngine(), arena);
+        context.execute(POOL);
+        final long leasedBytes = arena.getLeasedBytes();
+
+        //When
+        context.close();
+
+        //Then
+        assertThat(leasedBytes > 0L, is(true));
+        assertThat(arena.getLeasedBytes(), is(0L));
+        assertThat(arena.getPooledBytes(), is(leasedBytes));
+    }
+
+    @Test
+    public void resultIsKeptAfterClose() throws Exception {
+        //Given
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 1000000L, 4, chunkTimer);
+        context.execute(POOL);
+        final List<Long> result = context.getConsolidatedResult().asList();
+
+        //When
+        context.close();
+
+        //Then
+        assertThat(context.getConsolidatedResult().asList(), is(result));
+    }
+
+    @Test
+    public void chunksWithEvenStartsAreMergedInOrder() throws Exception {
+        //Given
+        final long minValue = 4000000L;
+        final long maxValue = 4000000L + PrimeCalculationContext.MIN_CHUNK_SIZE * 5L;
+        final PrimeCalculationContext context = new PrimeCalculationContext(minValue, maxValue, 64, chunkTimer);
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(context.getConsolidatedResult().asList(), is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+    }
+
+    @Test
+    public void completedPrimesAreAppendedWithoutCopyOnHeap() throws Exception {
+        //Given
+        final long maxValue = 200000000L;
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        try (PrimeFrontier frontier = new PrimeFrontier();
+             PrimeCalculationContext context = new PrimeCalculationContext(2L, maxValue, 4, chunkTimer,
+                     Deadline.NONE, new SegmentedSieveEngine(), new DirectBufferArena(Long.MAX_VALUE),
+                     frontier::appendPrimes)) {
+            context.execute(POOL);
+
+            //When
+            final long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            context.mergeCompletedChunks();
+            final long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            //Then
+            //A long per prime would be 8 bytes for every one of them.
+            assertThat(frontier.countPrimeNumbers(maxValue), is(11078937L));
+            assertThat(allocated + " bytes", allocated < 11078937L, is(true));
+        }
+    }
+
+    @Test
+    public void largeRangeIsCalculatedInWaves() throws Exception {
+        //Given
+        final int chunks = PrimeCalculationContext.LEASED_CHUNKS_PER_WORKER * 2 + 1;
+        final long maxValue = PrimeCalculationContext.MAX_CHUNK_SIZE * chunks;
+        final DirectBufferArena arena = new DirectBufferArena(Long.MAX_VALUE);
+        final List<Long> completedLimits = new ArrayList<>();
+        final List<Long> leasedBytes = new ArrayList<>();
+        final long[] count = new long[1];
+        try (PrimeCalculationContext context = new PrimeCalculationContext(1L, maxValue, 1, chunkTimer,
+                Deadline.NONE, new SegmentedSieveEngine(), arena, (completedLimit, primes) -> {
+                    completedLimits.add(completedLimit);
+                    leasedBytes.add(arena.getLeasedBytes());
+                    primes.accept(prime -> count[0]++);
+                })) {
+
+            //When
+            context.execute(POOL);
+            context.mergeCompletedChunks();
+
+            //Then
+            assertThat(context.getNumberOfChunks(), is(chunks));
+            assertThat(completedLimits, is(Arrays.asList(PrimeCalculationContext.MAX_CHUNK_SIZE * 16L,
+                    PrimeCalculationContext.MAX_CHUNK_SIZE * 32L, maxValue)));
+            //A chunk holds a bit for every odd value.
+            final long waveBytes = PrimeCalculationContext.LEASED_CHUNKS_PER_WORKER
+                    * PrimeCalculationContext.MAX_CHUNK_SIZE / 16L;
+            assertThat(leasedBytes, is(Arrays.asList(waveBytes, waveBytes, PrimeCalculationContext.MAX_CHUNK_SIZE
+                    / 16L)));
+            assertThat(count[0], is(PrimeCounter.countPrimeNumbers(maxValue)));
+            assertThat(arena.getLeasedBytes(), is(0L));
+        }
+    }
+
+    @Test
+    public void wavesAreMergedIntoTheResult() throws Exception {
+        //Given
+        final long maxValue = PrimeCalculationContext.MAX_CHUNK_SIZE
+                * (PrimeCalculationContext.LEASED_CHUNKS_PER_WORKER + 1L) + 12345L;
+        final DirectBufferArena arena = new DirectBufferArena(Long.MAX_VALUE);
+        final PrimeCalculationContext context = new PrimeCalculationContext(1000L, maxValue, 1, chunkTimer,
+                Deadline.NONE, new SegmentedSieveEngine(), arena);
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(arena.getLeasedBytes() <= 2L * PrimeCalculationContext.MAX_CHUNK_SIZE / 16L, is(true));
+        assertThat(context.getConsolidatedResult().asList(), is(SegmentedSieve.getPrimeNumbers(1000L, maxValue)));
+        context.close();
+        assertThat(arena.getLeasedBytes(), is(0L));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void resultIsNotReadAfterClose() throws Exception {
+        //Given
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, 1000L, 1, chunkTimer);
+        context.execute(POOL);
+
+        //When
+        context.close();
+
+        //Then
+        try {
+            context.getConsolidatedResult();
+            fail("The result was read after the context was closed");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is("The context is closed"));
+        }
+    }
+
+    @Test
+    public void failedChunkIsThrownOnceEveryChunkIsDone() throws Exception {
+        //Given
+        final AtomicInteger runningChunks = new AtomicInteger();
+        final PrimeEngine engine = new SegmentedSieveEngine() {
+            @Override
+            public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+                runningChunks.incrementAndGet();
+                try {
+                    if (minValue == 2L) {
+                        throw new IllegalStateException("Failed chunk");
+                    }
+                    Thread.sleep(100L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    runningChunks.decrementAndGet();
+                }
+            }
+        };
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L,
+                PrimeCalculationContext.MIN_CHUNK_SIZE * 8L, 4, chunkTimer, Deadline.NONE, engine);
+
+        //When
+        try {
+            context.execute(POOL);
+            fail("The failed chunk was not thrown");
+        } catch (IllegalStateException e) {
+            //Then
+            assertThat(e.getMessage(), is("Failed chunk"));
+            assertThat(runningChunks.get(), is(0));
+            assertThat(context.isComplete(), is(false));
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test(expected = InvalidInputException.class)
+    public void rangeBeyondMaxRangeSizeIsRejected() throws Exception {
+        new PrimeCalculationContext(2L, Long.MAX_VALUE, 4, chunkTimer);
+    }
+    //region end
+
+    //region Edge Cases
+    @Test
+    public void rangesAroundTwo() throws Exception {
+        for (long minValue = 0L; minValue <= 4L; minValue++) {
+            for (long maxValue = minValue; maxValue <= 12L; maxValue++) {
+                //Given
+                final PrimeCalculationContext context = new PrimeCalculationContext(minValue, maxValue, 1,
+                        chunkTimer);
+
+                //When
+                context.execute(POOL);
+
+                //Then
+                assertThat(minValue + ".." + maxValue, context.getConsolidatedResult().asList(),
+                        is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+            }
+        }
+    }
+
+    @Test
+    public void lastChunkEndsAtMaxValue() throws Exception {
+        //Given
+        final long maxValue = PrimeCalculationContext.MIN_CHUNK_SIZE * 3L + 17L;
+        final PrimeCalculationContext context = new PrimeCalculationContext(2L, maxValue, 64, chunkTimer);
+
+        //When
+        context.execute(POOL);
+
+        //Then
+        assertThat(context.getNumberOfChunks(), is(4));
+        assertThat(context.getConsolidatedResult().asList(), is(SegmentedSieve.getPrimeNumbers(2L, maxValue)));
+    }
+    //region end
+}
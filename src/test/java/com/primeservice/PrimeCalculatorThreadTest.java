@@ -35,6 +35,27 @@ public class PrimeCalculatorThreadTest {
         assertThat(primeNumbersList.get(threadNumber), hasItems(2L, 3L, 5L, 7L));
     }
 
+    @Test
+    public void interruptedThreadStopsWithoutResult() throws Exception {
+
+        //Given
+        //The range has about 26 million primes, so a thread which is not interrupted puts a result.
+        final ConcurrentHashMap<Integer, List<Long>> primeNumbersList = new ConcurrentHashMap<>();
+        final List<Throwable> errors = new ArrayList<>();
+        primeCalculatorThread = new PrimeCalculatorThread(1, 1, 500000000L, primeNumbersList);
+        primeCalculatorThread.setUncaughtExceptionHandler((thread, error) -> errors.add(error));
+
+        //When
+        primeCalculatorThread.start();
+        primeCalculatorThread.interrupt();
+        primeCalculatorThread.join(10000);
+
+        //Then
+        assertThat(primeCalculatorThread.isAlive(), is(false));
+        assertThat(errors.isEmpty(), is(true));
+        assertThat(primeNumbersList.isEmpty(), is(true));
+    }
+
     //region Negative Test Cases
     @Test
     public void isPrimeNegativeStartRange() throws Exception {
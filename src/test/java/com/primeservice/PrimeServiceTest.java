@@ -1,9 +1,33 @@
 package com.primeservice;
 
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeConsumer;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.cache.PrimeFrontier;
+import com.primeservice.cache.PrimeSegmentCache;
+import com.primeservice.engine.PrimeEngineSelector;
+import com.primeservice.engine.ProbabilisticEngine;
+import com.primeservice.engine.SegmentedSieveEngine;
+import com.primeservice.engine.WheelSieveEngine;
+import com.primeservice.exception.DeadlineExceededException;
 import com.primeservice.exception.InvalidInputException;
+import com.primeservice.exception.UnknownEngineException;
+import com.primeservice.util.SegmentedSieve;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.fail;
 import static org.hamcrest.CoreMatchers.hasItems;
@@ -74,6 +98,18 @@ public class PrimeServiceTest {
         assertThat(primeNumbersList.size(), is(1));
         assertThat(primeNumbersList, hasItems(2L));
 
+    }
+    @Test
+    public void getPrimeNumbersSmallRangeIncludesMaxValue() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 10);
+
+        //When
+        final List<Long> primeNumbersList = primeService.getPrimeNumbers(13);
+
+        //Then
+        assertThat(primeNumbersList, is(Arrays.asList(2L, 3L, 5L, 7L, 11L, 13L)));
+
     }
     //endregion
 
@@ -123,5 +159,529 @@ public class PrimeServiceTest {
         assertThat(primeNumbersList3000.size(), is(430));
 
     }
+
+    @Test
+    public void getPrimeNumbersCachedPrefixMatchesUncached() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        final MultiThreadedCachedPrimeService uncachedPrimeService = new MultiThreadedCachedPrimeService(false, 4);
+
+        //When
+        primeService.getPrimeNumbers(100000);
+        final List<Long> primeNumbersList997 = primeService.getPrimeNumbers(997);
+        final List<Long> primeNumbersList150000 = primeService.getPrimeNumbers(150000);
+
+        //Then
+        assertThat(primeNumbersList997, is(uncachedPrimeService.getPrimeNumbers(997)));
+        assertThat(primeNumbersList150000, is(uncachedPrimeService.getPrimeNumbers(150000)));
+        assertThat(primeNumbersList997.get(167), is(997L));
+
+    }
+
+    @Test
+    public void forEachPrimeNumberMatchesGetPrimeNumbers() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        primeService.getPrimeNumbers(50000);
+        final List<Long> streamed = new ArrayList<>();
+
+        //When
+        primeService.forEachPrimeNumber(3000000, streamed::add);
+
+        //Then
+        assertThat(streamed, is(SegmentedSieve.getPrimeNumbers(2, 3000000)));
+    }
+
+    @Test
+    public void forEachPrimeNumberWithEngine() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 4);
+        final List<Long> streamed = new ArrayList<>();
+        final int[] segments = {0};
+
+        //When
+        primeService.forEachPrimeNumber(3000000, ProbabilisticEngine.NAME, Deadline.NONE, new PrimeConsumer() {
+            @Override
+            public void accept(long prime) {
+                streamed.add(prime);
+            }
+
+            @Override
+            public void segmentCompleted() {
+                segments[0]++;
+            }
+        });
+
+        //Then
+        assertThat(streamed, is(SegmentedSieve.getPrimeNumbers(2, 3000000)));
+        assertThat(segments[0], is(3));
+    }
+
+    @Test
+    public void forEachPrimeNumberInRangeBeyondCache() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        primeService.getPrimeNumbers(20000);
+        final List<Long> streamed = new ArrayList<>();
+
+        //When
+        primeService.forEachPrimeNumber(10000, 2500000, null, Deadline.NONE, streamed::add);
+
+        //Then
+        assertThat(streamed, is(SegmentedSieve.getPrimeNumbers(10000, 2500000)));
+    }
+    //endregion
+
+    //region range test
+    @Test
+    public void getPrimeNumbersInRange() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        primeService.getPrimeNumbers(20000);
+
+        //When
+        final List<Long> belowFrontier = primeService.getPrimeNumbers(100, 15000);
+        final List<Long> acrossFrontier = primeService.getPrimeNumbers(15000, 400000);
+        final List<Long> window = primeService.getPrimeNumbers(1000000000000L, 1000000100000L);
+
+        //Then
+        assertThat(belowFrontier, is(SegmentedSieve.getPrimeNumbers(100, 15000)));
+        assertThat(acrossFrontier, is(SegmentedSieve.getPrimeNumbers(15000, 400000)));
+        assertThat(window, is(SegmentedSieve.getPrimeNumbers(1000000000000L, 1000000100000L)));
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeWithLimit() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 4);
+        final List<Long> expected = SegmentedSieve.getPrimeNumbers(0, 2000000);
+
+        //When
+        final List<Long> firstPage = primeService.getPrimeNumbers(0, 2000000, 10);
+        final List<Long> largePage = primeService.getPrimeNumbers(0, 2000000, 100000);
+        final List<Long> lastPage = primeService.getPrimeNumbers(1999000, 2000000, 1000);
+
+        //Then
+        assertThat(firstPage, is(expected.subList(0, 10)));
+        assertThat(largePage, is(expected.subList(0, 100000)));
+        assertThat(lastPage, is(SegmentedSieve.getPrimeNumbers(1999000, 2000000)));
+    }
+
+    @Test
+    public void getPrimeNumbersInvalidRange() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 1);
+
+        //When
+        try {
+            primeService.getPrimeNumbers(100, 10);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+
+        } catch (Exception e) {
+            fail("Should not throw this exception");
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersInTooLargeRange() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 4);
+
+        //When
+        try {
+            primeService.getPrimeNumbers(2, 10000000000000000L);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+            assertThat(ex.getMessage(), is("Invalid input: 10000000000000000"));
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersBeyondMaxRangeSizeDoesNotGrowCache() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        final long cacheSize = primeService.getCacheSizeInBytes();
+
+        //When
+        try {
+            primeService.getPrimeNumbers(Long.MAX_VALUE);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+            assertThat(ex.getMessage(), is("Invalid input: 9223372036854775807"));
+            assertThat(primeService.getCacheSizeInBytes(), is(cacheSize));
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersBeyondNamedEngine() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+
+        //When
+        try {
+            primeService.getPrimeSequence(SegmentedSieve.MAX_VALUE + 1L, SegmentedSieve.MAX_VALUE + 100L,
+                    SegmentedSieveEngine.NAME, Deadline.NONE);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+            assertThat(ex.getMessage(), is("Invalid input: " + (SegmentedSieve.MAX_VALUE + 100L)));
+        }
+    }
+    //endregion
+
+    //region count test
+    @Test
+    public void countPrimeNumbers() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        primeService.getPrimeNumbers(100000);
+
+        //Then
+        assertThat(primeService.countPrimeNumbers(1), is(0L));
+        assertThat(primeService.countPrimeNumbers(99991), is(9592L));
+        assertThat(primeService.countPrimeNumbers(10000000), is(664579L));
+        assertThat(primeService.countPrimeNumbers(10000000000L), is(455052511L));
+    }
+
+    @Test
+    public void getNthPrimeNumber() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(true, 4, meterRegistry);
+        primeService.getPrimeNumbers(100000);
+
+        //When
+        final long cached = primeService.getNthPrimeNumber(9592);
+        final long computed = primeService.getNthPrimeNumber(664579);
+
+        //Then
+        assertThat(cached, is(99991L));
+        assertThat(computed, is(9999991L));
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "hit").count(), is(1.0));
+    }
+
+    @Test
+    public void getNthPrimeNumberInvalidInput() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+
+        //When
+        try {
+            primeService.getNthPrimeNumber(0);
+            fail("Expected InvalidInputException");
+        } catch (InvalidInputException e) {
+            //Then
+            assertThat(e.getMessage(), is("Invalid input: 0"));
+        }
+    }
+    //endregion
+
+    //region metrics test
+    @Test
+    public void cacheRequestsAreCounted() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(true, 2, meterRegistry);
+
+        //When
+        primeService.getPrimeNumbers(1000);
+        primeService.getPrimeNumbers(100);
+        primeService.getPrimeNumbers(5000);
+        primeService.getPrimeNumbers(4000, 7000);
+        primeService.getPrimeNumbers(8000, 9000);
+
+        //Then
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "hit").count(), is(1.0));
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "partial").count(), is(2.0));
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "miss").count(), is(2.0));
+        assertThat(meterRegistry.get("prime.compute").timer().count(), is(4L));
+        assertThat(meterRegistry.get("prime.frontier.size").gauge().value() > 0, is(true));
+        assertThat(meterRegistry.get("prime.frontier.limit").gauge().value(), is(5000.0));
+    }
+
+    @Test
+    public void parallelismIsChosenPerRequest() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(false, 4, meterRegistry);
+
+        //When
+        primeService.getPrimeNumbers(1000);
+        final double inline = meterRegistry.get("prime.parallelism").summary().max();
+        primeService.getPrimeNumbers(1000000, 200000000);
+
+        //Then
+        assertThat(inline, is(1.0));
+        assertThat(meterRegistry.get("prime.parallelism").summary().max() > 1.0, is(true));
+        assertThat(meterRegistry.get("prime.parallelism").summary().count(), is(2L));
+        assertThat(meterRegistry.get("prime.sieve.cost").tag("engine", SegmentedSieveEngine.NAME).gauge().value() > 0,
+                is(true));
+    }
+
+    @Test
+    public void getPrimeNumbersBeyondBoundedFrontier() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier(4096);
+        primeService = new MultiThreadedCachedPrimeService(true, 2, new SimpleMeterRegistry(), primeFrontier);
+
+        //When
+        final List<Long> primeNumbers = primeService.getPrimeNumbers(200000);
+
+        //Then
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(2, 200000)));
+        assertThat(primeFrontier.getLimit(), is(primeFrontier.getMaxLimit()));
+        assertThat(primeFrontier.getSizeInBytes() <= 4096, is(true));
+        assertThat(primeService.estimateWork(200000), is(200000 - primeFrontier.getMaxLimit()));
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeUsesSegmentCache() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(true, 2, meterRegistry, new PrimeFrontier(1L << 24));
+        final long minValue = 3L * PrimeSegmentCache.SEGMENT_SIZE - 1000L;
+        final long maxValue = 5L * PrimeSegmentCache.SEGMENT_SIZE + 1000L;
+
+        //When
+        final List<Long> first = primeService.getPrimeNumbers(minValue, maxValue);
+        final List<Long> second = primeService.getPrimeNumbers(minValue, maxValue);
+
+        //Then
+        assertThat(first, is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+        assertThat(second, is(first));
+        assertThat(meterRegistry.counter("prime.segment.requests", "result", "miss").count(), is(2.0));
+        assertThat(meterRegistry.counter("prime.segment.requests", "result", "hit").count(), is(2.0));
+        assertThat(meterRegistry.get("prime.segment.count").gauge().value(), is(2.0));
+    }
+    //endregion
+
+    //region deadline test
+    @Test
+    public void expiredDeadlineReturnsCachedPrimes() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+        primeService.getPrimeNumbers(100000);
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+
+        //When
+        try {
+            primeService.getPrimeSequence(100000000L, deadline);
+            fail("Deadline has expired.");
+        } catch (DeadlineExceededException e) {
+            //Then
+            assertThat(e.getPartialResult().asList(), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        }
+        //A later request extends the frontier after the one which ran out of time.
+        assertThat(primeService.getPrimeNumbers(200000), is(SegmentedSieve.getPrimeNumbers(2, 200000)));
+    }
+
+    @Test
+    public void expiredDeadlineOfRangeReturnsPartialPrimes() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 2);
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+
+        //When
+        try {
+            primeService.getPrimeSequence(1000L, 100000000L, deadline);
+            fail("Deadline has expired.");
+        } catch (DeadlineExceededException e) {
+            //Then
+            assertThat(e.getPartialResult().size(), is(0));
+        }
+    }
+
+    @Test
+    public void expiredDeadlineStopsStream() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+        primeService.getPrimeNumbers(100000);
+        final List<Long> streamed = new ArrayList<>();
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+
+        //When
+        try {
+            primeService.forEachPrimeNumber(100000000L, null, deadline, streamed::add);
+            fail("Deadline has expired.");
+        } catch (DeadlineExceededException e) {
+            //Then
+            final List<Long> cached = SegmentedSieve.getPrimeNumbers(2, 100000);
+            assertThat(streamed.size() <= cached.size(), is(true));
+            assertThat(streamed, is(cached.subList(0, streamed.size())));
+        }
+    }
+
+    @Test
+    public void deadlineWhichDoesNotExpire() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+
+        //When
+        final PrimeSequence primeNumbers = primeService.getPrimeSequence(1000000L, Deadline.after(60000L));
+
+        //Then
+        assertThat(primeNumbers.size(), is(78498));
+    }
+    //endregion
+
+    //region concurrent test
+    @Test
+    public void getPrimeNumbersConcurrentRequests() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 4);
+        final long[] maxValues = {10, 1000, 54321, 100000, 7919, 250000, 2, 99991, 500000, 123456};
+        final Map<Long, List<Long>> expected = new HashMap<>();
+        for (long maxValue : maxValues) {
+            expected.put(maxValue, SegmentedSieve.getPrimeNumbers(2, maxValue));
+        }
+        final ExecutorService clients = Executors.newFixedThreadPool(16);
+        final List<Future<Boolean>> results = new ArrayList<>();
+
+        //When
+        for (int i = 0; i < 400; i++) {
+            final long maxValue = maxValues[i % maxValues.length];
+            results.add(clients.submit(() -> expected.get(maxValue).equals(primeService.getPrimeNumbers(maxValue))));
+        }
+
+        //Then
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(60, TimeUnit.SECONDS), is(true));
+        }
+        clients.shutdown();
+    }
+
+    @Test
+    public void getPrimeNumbersBurstOfOverlappingRequests() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final List<Long> expected = SegmentedSieve.getPrimeNumbers(2, 2000000);
+        final ExecutorService clients = Executors.newFixedThreadPool(12);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Boolean>> results = new ArrayList<>();
+
+        //When
+        for (int i = 1; i <= 12; i++) {
+            final long maxValue = 2000000L * (i % 4 + 1) / 4;
+            final int size = (int) expected.stream().filter(prime -> prime <= maxValue).count();
+            results.add(clients.submit(() -> {
+                start.await();
+                return expected.subList(0, size).equals(primeService.getPrimeNumbers(maxValue));
+            }));
+        }
+        start.countDown();
+
+        //Then
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(60, TimeUnit.SECONDS), is(true));
+        }
+        assertThat(primeService.getPrimeNumbers(2000000), is(expected));
+        clients.shutdown();
+    }
+    //endregion
+
+    //region precompute test
+    @Test
+    public void precomputeIsNotCountedAsRequest() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(true, 2, meterRegistry);
+
+        //When
+        final long limit = primeService.precompute(100000, 1);
+
+        //Then
+        assertThat(limit, is(100000L));
+        assertThat(primeService.estimateWork(100000), is(0L));
+        assertThat(primeService.getRecentDemand(), is(0L));
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "hit").count(), is(0.0));
+        assertThat(meterRegistry.counter("prime.cache.requests", "result", "miss").count(), is(0.0));
+        primeService.getPrimeNumbers(5000);
+        primeService.getPrimeNumbers(1000, 7000);
+        assertThat(primeService.getRecentDemand(), is(7000L));
+    }
+
+    @Test
+    public void precomputeWithoutCache() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(false, 2);
+
+        //When
+        final long limit = primeService.precompute(100000, 1);
+
+        //Then
+        assertThat(limit, is(0L));
+        assertThat(primeService.estimateWork(100000), is(99999L));
+    }
+    //endregion
+
+    //region engine test
+    @Test
+    public void getPrimeNumbersWithEveryEngine() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(false, 4, meterRegistry);
+        final List<Long> expected = SegmentedSieve.getPrimeNumbers(990000, 1000000);
+
+        for (PrimeEngine engine : PrimeEngineSelector.getBuiltInEngines()) {
+            //When
+            final PrimeSequence primeNumbers = primeService.getPrimeSequence(990000, 1000000, engine.getName(),
+                    Deadline.NONE);
+
+            //Then
+            assertThat(engine.getName(), primeNumbers.asList(), is(expected));
+            assertThat(meterRegistry.get("prime.engine").tag("engine", engine.getName()).timer().count(), is(1L));
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersWithAutoEngine() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primeService = new MultiThreadedCachedPrimeService(true, 4, meterRegistry);
+        final long minValue = 1000000000000000000L;
+
+        //When
+        final PrimeSequence primeNumbers = primeService.getPrimeSequence(minValue, minValue + 1000L,
+                PrimeEngine.AUTO, Deadline.after(60000L));
+
+        //Then
+        assertThat(primeNumbers.asList(), is(new ProbabilisticEngine().getPrimeSequence(minValue, minValue + 1000L,
+                Deadline.NONE).asList()));
+        assertThat(meterRegistry.get("prime.engine").tag("engine", ProbabilisticEngine.NAME).timer().count(),
+                is(1L));
+    }
+
+    @Test
+    public void getPagedPrimeNumbersWithEngine() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+
+        //When
+        final PrimeSequence primeNumbers = primeService.getPrimeSequence(1000, 100000, 10, WheelSieveEngine.NAME);
+
+        //Then
+        assertThat(primeNumbers.asList(), is(SegmentedSieve.getPrimeNumbers(1000, 1100).subList(0, 10)));
+    }
+
+    @Test
+    public void getPrimeNumbersWithUnknownEngine() throws Exception {
+        //Given
+        primeService = new MultiThreadedCachedPrimeService(true, 2);
+
+        //When
+        try {
+            primeService.getPrimeSequence(1000, "eratosthenes", Deadline.NONE);
+            fail("Expected UnknownEngineException");
+        } catch (UnknownEngineException e) {
+            //Then
+            assertThat(e.getMessage().contains("eratosthenes"), is(true));
+        }
+    }
     //endregion
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.primeservice.api;
+
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link LongArrayPrimeSequence} and {@link PrimeSequenceBuilder}
+ */
+public class LongArrayPrimeSequenceTest {
+
+    @Test
+    public void builderCollectsPrimes() throws Exception {
+        //Given
+        final PrimeSequenceBuilder builder = new PrimeSequenceBuilder(1);
+
+        //When
+        SegmentedSieve.forEachPrime(2, 100000, builder);
+        final PrimeSequence sequence = builder.build();
+
+        //Then
+        assertThat(sequence.size(), is(9592));
+        assertThat(sequence.get(0), is(2L));
+        assertThat(sequence.get(9591), is(99991L));
+        assertThat(sequence.asList(), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        assertThat(sequence.stream().sum(), is(454396537L));
+    }
+
+    @Test
+    public void subSequenceSharesArray() throws Exception {
+        //Given
+        final PrimeSequence sequence = new LongArrayPrimeSequence(new long[]{2L, 3L, 5L, 7L, 11L, 13L}, 1, 6);
+
+        //When
+        final PrimeSequence subSequence = sequence.subSequence(1, 4);
+
+        //Then
+        assertThat(subSequence.toArray(), is(new long[]{5L, 7L, 11L}));
+        assertThat(subSequence.subSequence(1, 2).get(0), is(7L));
+        assertThat(subSequence.lowerBound(7L), is(1));
+        assertThat(subSequence.lowerBound(8L), is(2));
+        assertThat(subSequence.lowerBound(100L), is(3));
+        assertThat(subSequence.asList().subList(1, 3), is(Arrays.asList(7L, 11L)));
+    }
+
+    @Test
+    public void addAllConcatenates() throws Exception {
+        //Given
+        final PrimeSequence first = SegmentedSieve.getPrimeSequence(2, 1000);
+        final PrimeSequence second = SegmentedSieve.getPrimeSequence(1001, 5000);
+
+        //When
+        final PrimeSequence sequence = new PrimeSequenceBuilder().addAll(first).addAll(second.subSequence(0, 10))
+                .build();
+
+        //Then
+        assertThat(sequence.size(), is(first.size() + 10));
+        assertThat(sequence.asList(), is(SegmentedSieve.getPrimeNumbers(2, second.get(9))));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void getOutOfRange() throws Exception {
+        final PrimeSequence sequence = SegmentedSieve.getPrimeSequence(2, 100).subSequence(5, 10);
+        final List<Long> list = sequence.asList();
+        try {
+            sequence.get(5);
+            fail("Index is outside of the sub-sequence.");
+        } catch (IndexOutOfBoundsException e) {
+            //Expected
+        }
+        try {
+            list.get(-1);
+            fail("Index is negative.");
+        } catch (IndexOutOfBoundsException e) {
+            //Expected
+        }
+        try {
+            sequence.subSequence(3, 6);
+            fail("Sub-sequence is larger than the sequence.");
+        } catch (IndexOutOfBoundsException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void listIsReadOnly() throws Exception {
+        final List<Long> list = SegmentedSieve.getPrimeNumbers(2, 100);
+        try {
+            list.add(101L);
+            fail("List view is read-only.");
+        } catch (UnsupportedOperationException e) {
+            //Expected
+        }
+    }
+    //region end
+}
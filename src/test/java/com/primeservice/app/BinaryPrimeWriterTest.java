@@ -0,0 +1,90 @@
+package com.primeservice.app;
+
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link VarintGapPrimeWriter} and {@link LongArrayPrimeWriter}
+ */
+public class BinaryPrimeWriterTest {
+
+    @Test
+    public void varintGapsRoundTrip() throws Exception {
+        //Given
+        final List<Long> primeNumbers = SegmentedSieve.getPrimeNumbers(2, 3000000);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //When
+        try (VarintGapPrimeWriter writer = new VarintGapPrimeWriter(outputStream)) {
+            SegmentedSieve.forEachPrime(2, 3000000, writer, writer::segmentCompleted);
+        }
+
+        //Then
+        final List<Long> decoded = new ArrayList<>();
+        long prime = 0L;
+        long gap = 0L;
+        int shift = 0;
+        for (byte b : outputStream.toByteArray()) {
+            gap |= (b & 0x7FL) << shift;
+            shift += 7;
+            if (b >= 0) {
+                prime += gap;
+                decoded.add(prime);
+                gap = 0L;
+                shift = 0;
+            }
+        }
+        assertThat(decoded, is(primeNumbers));
+        //About one byte per prime instead of seven digits and a comma, only gaps of 128 and more take two.
+        assertThat(outputStream.size() < primeNumbers.size() + 10, is(true));
+    }
+
+    @Test
+    public void varintGapsOfLargeValues() throws Exception {
+        //Given
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //When
+        try (VarintGapPrimeWriter writer = new VarintGapPrimeWriter(outputStream)) {
+            writer.accept(9223372036854775783L);
+        }
+
+        //Then
+        final byte[] bytes = outputStream.toByteArray();
+        assertThat(bytes.length, is(9));
+        long value = 0L;
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            value = (value << 7) | (bytes[i] & 0x7FL);
+        }
+        assertThat(value, is(9223372036854775783L));
+    }
+
+    @Test
+    public void longArrayRoundTrip() throws Exception {
+        //Given
+        final List<Long> primeNumbers = SegmentedSieve.getPrimeNumbers(1000000000000L, 1000000100000L);
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        //When
+        try (LongArrayPrimeWriter writer = new LongArrayPrimeWriter(outputStream)) {
+            primeNumbers.forEach(writer::accept);
+        }
+
+        //Then
+        final ByteBuffer buffer = ByteBuffer.wrap(outputStream.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        final List<Long> decoded = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            decoded.add(buffer.getLong());
+        }
+        assertThat(decoded, is(primeNumbers));
+    }
+}
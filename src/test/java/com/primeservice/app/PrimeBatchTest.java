@@ -0,0 +1,158 @@
+package com.primeservice.app;
+
+import com.primeservice.ManagedPrimeService;
+import com.primeservice.MultiThreadedCachedPrimeService;
+import com.primeservice.domainmodel.PrimeBatchRequest;
+import com.primeservice.domainmodel.PrimeBatchResult;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link PrimeBatch}
+ */
+public class PrimeBatchTest {
+
+    @Test
+    public void answersAreSlicedInRequestOrder() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest request = new PrimeBatchRequest(Arrays.asList(100000L, 10L, 1L),
+                Arrays.asList(new PrimeBatchRequest.Range(1000000, 1000100), new PrimeBatchRequest.Range(0, 20),
+                        new PrimeBatchRequest.Range(99990, 100010)),
+                Arrays.asList(99991L, 1000003L, 1000033L, 9223372036854775783L, 1L));
+
+        //When
+        final PrimeBatch batch = new PrimeBatch(primeService, request);
+        final long work = batch.estimateWork();
+        final PrimeBatchResult result = batch.execute();
+
+        //Then
+        //[2, 100010] and [1000000, 1000100] are sieved.
+        assertThat(work, is(100009L + 101L));
+        assertThat(result.getLimits().get(0).getPrimies(), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        assertThat(result.getLimits().get(1).getPrimies(), is(Arrays.asList(2L, 3L, 5L, 7L)));
+        assertThat(result.getLimits().get(2).getPrimies(), is(Collections.<Long>emptyList()));
+        assertThat(result.getRanges().get(0).getPrimes(), is(SegmentedSieve.getPrimeNumbers(1000000, 1000100)));
+        assertThat(result.getRanges().get(1).getPrimes(), is(Arrays.asList(2L, 3L, 5L, 7L, 11L, 13L, 17L, 19L)));
+        assertThat(result.getRanges().get(2).getPrimes(), is(Arrays.asList(99991L, 100003L)));
+        assertThat(result.getChecks().get(0).isPrime(), is(true));
+        assertThat(result.getChecks().get(1).isPrime(), is(true));
+        assertThat(result.getChecks().get(2).isPrime(), is(true));
+        assertThat(result.getChecks().get(3).isPrime(), is(true));
+        assertThat(result.getChecks().get(4).isPrime(), is(false));
+    }
+
+    @Test
+    public void cachedIntervalsHaveNoWork() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        primeService.getPrimeNumbers(50000);
+        final PrimeBatchRequest request = new PrimeBatchRequest(Arrays.asList(1000L, 40000L),
+                Collections.singletonList(new PrimeBatchRequest.Range(45000, 60000)), null);
+
+        //When
+        final long work = new PrimeBatch(primeService, request).estimateWork();
+
+        //Then
+        assertThat(work, is(10000L));
+    }
+
+    //region Edge Cases
+    @Test
+    public void rangesEndingAtMaxValueAreMerged() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest request = new PrimeBatchRequest(null,
+                Arrays.asList(new PrimeBatchRequest.Range(Long.MAX_VALUE - 100, Long.MAX_VALUE),
+                        new PrimeBatchRequest.Range(Long.MAX_VALUE - 50, Long.MAX_VALUE)), null);
+
+        //When
+        final PrimeBatch batch = new PrimeBatch(primeService, request);
+        final PrimeBatchResult result = batch.execute();
+
+        //Then
+        assertThat(batch.estimateWork(), is(101L));
+        assertThat(result.getRanges().get(0).getPrimes(), is(Arrays.asList(9223372036854775783L)));
+        assertThat(result.getRanges().get(1).getPrimes(), is(Arrays.asList(9223372036854775783L)));
+    }
+    //region end
+
+    //region Negative Test Cases
+    @Test
+    public void nullEntriesAreRejected() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest[] requests = {
+                new PrimeBatchRequest(Collections.singletonList(null), null, null),
+                new PrimeBatchRequest(null, Collections.singletonList(null), null),
+                new PrimeBatchRequest(null, null, Collections.singletonList(null))};
+
+        for (PrimeBatchRequest request : requests) {
+            //When
+            try {
+                new PrimeBatch(primeService, request);
+                fail("Should not execute this");
+            } catch (InvalidInputException ex) {
+                //Then
+            }
+        }
+    }
+
+    @Test
+    public void invalidRangeIsRejected() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest request = new PrimeBatchRequest(null,
+                Collections.singletonList(new PrimeBatchRequest.Range(100, 10)), null);
+
+        //When
+        try {
+            new PrimeBatch(primeService, request);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+        }
+    }
+
+    @Test
+    public void rangeBeyondMaxRangeSizeIsRejected() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest request = new PrimeBatchRequest(Collections.singletonList(Long.MAX_VALUE), null,
+                null);
+
+        //When
+        try {
+            new PrimeBatch(primeService, request);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+            assertThat(ex.getMessage(), is("Invalid input: 9223372036854775807"));
+        }
+    }
+
+    @Test
+    public void tooManyRequestsInBatchAreRejected() throws Exception {
+        //Given
+        final ManagedPrimeService primeService = new MultiThreadedCachedPrimeService(true, 2);
+        final PrimeBatchRequest request = new PrimeBatchRequest(null, null,
+                Collections.nCopies(PrimeBatch.MAX_REQUESTS + 1, 7L));
+
+        //When
+        try {
+            new PrimeBatch(primeService, request);
+            fail("Should not execute this");
+        } catch (InvalidInputException ex) {
+            //Then
+        }
+    }
+    //region end
+}
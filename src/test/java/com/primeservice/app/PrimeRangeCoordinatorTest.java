@@ -0,0 +1,223 @@
+package com.primeservice.app;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeConsumer;
+import com.primeservice.exception.DeadlineExceededException;
+import com.primeservice.exception.PeerUnavailableException;
+import com.primeservice.util.SegmentedSieve;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link PrimeRangeCoordinator} with peers on local ports.
+ */
+public class PrimeRangeCoordinatorTest {
+
+    private final List<HttpServer> peers = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @After
+    public void stopPeers() {
+        peers.forEach(peer -> peer.stop(0));
+    }
+
+    @Test
+    public void forEachPrimeInOrderAcrossPeers() {
+        //Given
+        final AtomicInteger firstPeerSegments = new AtomicInteger();
+        final AtomicInteger secondPeerSegments = new AtomicInteger();
+        final PrimeRangeCoordinator coordinator = new PrimeRangeCoordinator(
+                Arrays.asList(startPeer(firstPeerSegments, false), startPeer(secondPeerSegments, false)),
+                100000L, 10000, meterRegistry);
+        final List<Long> primeNumbers = new ArrayList<>();
+        final AtomicInteger segments = new AtomicInteger();
+
+        //When
+        coordinator.forEachPrime(1000, 1234567, new PrimeConsumer() {
+            @Override
+            public void accept(long prime) {
+                primeNumbers.add(prime);
+            }
+
+            @Override
+            public void segmentCompleted() {
+                segments.incrementAndGet();
+            }
+        });
+
+        //Then
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(1000, 1234567)));
+        assertThat(segments.get(), is(13));
+        assertThat(firstPeerSegments.get() > 0, is(true));
+        assertThat(secondPeerSegments.get() > 0, is(true));
+        assertThat(firstPeerSegments.get() + secondPeerSegments.get(), is(13));
+    }
+
+    @Test
+    public void forEachPrimeRetriesOnAnotherPeer() {
+        //Given
+        final AtomicInteger failedSegments = new AtomicInteger();
+        final AtomicInteger servedSegments = new AtomicInteger();
+        final PrimeRangeCoordinator coordinator = new PrimeRangeCoordinator(
+                Arrays.asList(startPeer(failedSegments, true), startPeer(servedSegments, false)),
+                10000L, 10000, meterRegistry);
+        final List<Long> primeNumbers = new ArrayList<>();
+
+        //When
+        coordinator.forEachPrime(0, 99999, primeNumbers::add);
+
+        //Then
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(0, 99999)));
+        assertThat(servedSegments.get(), is(10));
+        assertThat(meterRegistry.counter("prime.fanout.segments", "peer", url(peers.get(0)), "result", "failure")
+                .count(), is((double) failedSegments.get()));
+        assertThat(meterRegistry.counter("prime.fanout.segments", "peer", url(peers.get(1)), "result", "success")
+                .count(), is(10.0));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void forEachPrimeFailsIfEveryPeerFails() {
+        //Given
+        final PrimeRangeCoordinator coordinator = new PrimeRangeCoordinator(
+                Arrays.asList(startPeer(new AtomicInteger(), true), startPeer(new AtomicInteger(), true)),
+                10000L, 10000, meterRegistry);
+
+        //When
+        try {
+            coordinator.forEachPrime(0, 99999, prime -> {
+            });
+            fail("Expected PeerUnavailableException");
+        } catch (PeerUnavailableException e) {
+            //Then
+            assertThat(e.getMessage().contains("0 to 9999"), is(true));
+        }
+    }
+
+    @Test
+    public void forEachPrimeStopsAtDeadline() {
+        //Given
+        final PrimeRangeCoordinator coordinator = new PrimeRangeCoordinator(
+                Arrays.asList(startSlowPeer(10000L)), 10000L, 60000, meterRegistry);
+        final long start = System.nanoTime();
+
+        //When
+        try {
+            coordinator.forEachPrime(0, 99999, Deadline.after(200L), prime -> {
+            });
+            fail("Expected DeadlineExceededException");
+        } catch (DeadlineExceededException e) {
+            //Then
+            assertThat(System.nanoTime() - start < 5_000_000_000L, is(true));
+        } finally {
+            coordinator.close();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void closedCoordinatorRejectsRanges() {
+        //Given
+        final PrimeRangeCoordinator coordinator = new PrimeRangeCoordinator(
+                Arrays.asList(startPeer(new AtomicInteger(), false)), 10000L, 10000, meterRegistry);
+
+        //When
+        coordinator.close();
+
+        //Then
+        coordinator.forEachPrime(0, 99999, prime -> {
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void coordinatorNeedsPeers() {
+        new PrimeRangeCoordinator(new ArrayList<>(), 10000L, 10000, meterRegistry);
+    }
+    //region end
+
+    /**
+     * Starts a peer on a free local port which answers /primes?from=..&to=.. as varint gaps, or always with 500.
+     *
+     * @return String - base URL of the peer.
+     */
+    private String startPeer(AtomicInteger segments, boolean failing) {
+        try {
+            final HttpServer peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            peer.createContext("/primes", exchange -> {
+                segments.incrementAndGet();
+                if (failing) {
+                    exchange.sendResponseHeaders(500, -1);
+                } else {
+                    sendPrimeNumbers(exchange);
+                }
+                exchange.close();
+            });
+            peer.start();
+            peers.add(peer);
+            return url(peer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts a peer on a free local port which answers every segment only after the delay.
+     *
+     * @return String - base URL of the peer.
+     */
+    private String startSlowPeer(long delayMillis) {
+        try {
+            final HttpServer peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            peer.createContext("/primes", exchange -> {
+                try {
+                    Thread.sleep(delayMillis);
+                    sendPrimeNumbers(exchange);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+            });
+            peer.start();
+            peers.add(peer);
+            return url(peer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sendPrimeNumbers(HttpExchange exchange) throws IOException {
+        final Map<String, String> query = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build()
+                .getQueryParams().toSingleValueMap();
+        final long from = Long.parseLong(query.get("from"));
+        final long to = Long.parseLong(query.get("to"));
+        exchange.getResponseHeaders().set("Content-Type", VarintGapPrimeWriter.MEDIA_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody();
+             VarintGapPrimeWriter writer = new VarintGapPrimeWriter(body)) {
+            SegmentedSieve.getPrimeSequence(from, to).forEach(writer);
+        }
+    }
+
+    private static String url(HttpServer peer) {
+        return "http://localhost:" + peer.getAddress().getPort();
+    }
+}
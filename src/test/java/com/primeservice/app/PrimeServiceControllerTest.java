@@ -1,35 +1,412 @@
 package com.primeservice.app;
 
+import com.primeservice.BoundedComputeExecutor;
+import com.primeservice.exception.DeadlineExceededException;
+import com.primeservice.util.SegmentedSieve;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Test for {@link PrimeServiceController}
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest
+@SpringBootTest(properties = {"prime.warmup.limit=0", "prime.warmup.speculative=false"})
 @AutoConfigureMockMvc
 public class PrimeServiceControllerTest {
 
     @Autowired
     private MockMvc mvc;
 
-    //TODO: Fixme
+    @Autowired
+    private BoundedComputeExecutor computeExecutor;
+
     @Test
     public void getPrimeService() throws Exception {
-        mvc.perform(MockMvcRequestBuilders.get("/primes/10").accept(MediaType.APPLICATION_JSON))
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/10")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"initialVal\":10,\"primies\":[2,3,5,7]}")));
+    }
+
+    @Test
+    public void getPrimeServicePartialAfterDeadline() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/3000000000?partial=true")
+                .header(PrimeServiceController.TIMEOUT_HEADER, "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"complete\":false")));
+    }
+
+    @Test
+    public void getPrimeServiceUnavailableAfterDeadline() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/3000000000")
+                .header(PrimeServiceController.TIMEOUT_HEADER, "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void getPrimeServiceInvalidInput() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/-5").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get("/primes/9223372036854775807").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get("/primes/10").header(PrimeServiceController.TIMEOUT_HEADER, "-1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPrimeServiceRejectedOverBudget() throws Exception {
+        //Work which fills the budget of the executor.
+        computeExecutor.admit(Long.MAX_VALUE / 2);
+        try {
+            mvc.perform(MockMvcRequestBuilders.get("/primes/2000000000").accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"));
+            mvc.perform(MockMvcRequestBuilders.get("/primes/2000000000?stream=true"))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            computeExecutor.release(Long.MAX_VALUE / 2, 0L);
+        }
+    }
+
+    @Test
+    public void streamPrimeNumbers() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/30?stream=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(equalTo("{\"initialVal\":30,\"primies\":[2,3,5,7,11,13,17,19,23,29]}")));
+    }
+
+    @Test
+    public void streamPrimeNumbersWithEngine() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/30?stream=true&engine=wheel-sieve"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"initialVal\":30,\"primies\":[2,3,5,7,11,13,17,19,23,29]}")));
+    }
+
+    @Test
+    public void streamPrimeNumbersIsNotCompletedAfterDeadline() throws Exception {
+        //When
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/3000000000?stream=true")
+                .header(PrimeServiceController.TIMEOUT_HEADER, "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Then
+        assertThat(result.getAsyncResult(30000L) instanceof DeadlineExceededException, is(true));
+        assertThat(result.getResponse().getContentAsString().endsWith("]}"), is(false));
+    }
+
+    @Test
+    public void getPrimeNumbersAsVarintGaps() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/30")
+                .accept(MediaType.parseMediaType("application/x-prime-varint-gaps")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-prime-varint-gaps"))
+                .andExpect(content().bytes(new byte[]{2, 1, 2, 2, 4, 2, 4, 2, 4, 6}));
+    }
+
+    @Test
+    public void getPrimeNumbersAsLongArray() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/10")
+                .accept(MediaType.parseMediaType("application/x-prime-long-array")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final ByteBuffer expected = ByteBuffer.allocate(32).order(ByteOrder.LITTLE_ENDIAN)
+                .putLong(2).putLong(3).putLong(5).putLong(7);
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-prime-long-array"))
+                .andExpect(content().bytes(expected.array()));
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeAsVarintGaps() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes?from=1000000&to=1100000")
+                .accept(MediaType.parseMediaType("application/x-prime-varint-gaps")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final byte[] body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-prime-varint-gaps"))
+                .andReturn().getResponse().getContentAsByteArray();
+        final List<Long> primeNumbers = new ArrayList<>();
+        VarintGapPrimeReader.read(new ByteArrayInputStream(body), primeNumbers::add);
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(1000000, 1100000)));
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeAsVarintGapsInvalidInput() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes?from=100&to=10")
+                .accept(MediaType.parseMediaType("application/x-prime-varint-gaps")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPrimeServiceWithEngine() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/30?engine=wheel-sieve")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"initialVal\":30,\"primies\":[2,3,5,7,11,13,17,19,23,29]}")));
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeAsVarintGapsWithEngine() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders
+                .get("/primes?from=1000000000000&to=1000000010000&engine=probabilistic")
+                .accept(MediaType.parseMediaType("application/x-prime-varint-gaps")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final byte[] body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        final List<Long> primeNumbers = new ArrayList<>();
+        VarintGapPrimeReader.read(new ByteArrayInputStream(body), primeNumbers::add);
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(1000000000000L, 1000000010000L)));
+    }
+
+    @Test
+    public void getPrimeServiceWithUnknownEngine() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/100?engine=eratosthenes"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.get("/primes?from=0&to=100&engine=eratosthenes"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPrimeNumbersFromPeersWithoutPeers() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=100"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void getPrimeNumbersAsVarintGapsInvalidInput() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/-5")
+                .accept(MediaType.parseMediaType("application/x-prime-varint-gaps")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamPrimeNumbersInvalidInput() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/-5?stream=true"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void countPrimeNumbers() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/1000000000000/count")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"initialVal\":1000000000000,\"count\":37607912018}")));
+    }
+
+    @Test
+    public void countPrimeNumbersUnavailableAfterDeadline() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/100000000000000/count")
+                .header(PrimeServiceController.TIMEOUT_HEADER, "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void countAndNthPrimeRejectedOverBudget() throws Exception {
+        //Work which fills the budget of the executor.
+        computeExecutor.admit(Long.MAX_VALUE / 2);
+        try {
+            mvc.perform(MockMvcRequestBuilders.get("/primes/100000000000000/count")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isTooManyRequests());
+            mvc.perform(MockMvcRequestBuilders.get("/primes/nth/1000000000000").accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isTooManyRequests());
+            mvc.perform(MockMvcRequestBuilders.get("/primes/first/1000000000").accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            computeExecutor.release(Long.MAX_VALUE / 2, 0L);
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersInRangePages() throws Exception {
+        final String[] cursors = {"", "&cursor=1000000000062", "&cursor=1000000000092"};
+        final String[] pages = {"[1000000000039,1000000000061],\"nextCursor\":\"1000000000062\"",
+                "[1000000000063,1000000000091],\"nextCursor\":\"1000000000092\"", "[],\"nextCursor\":null"};
+        for (int page = 0; page < pages.length; page++) {
+            final MvcResult result = mvc.perform(MockMvcRequestBuilders
+                    .get("/primes?from=1000000000000&to=1000000000100&limit=2" + cursors[page])
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mvc.perform(asyncDispatch(result))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(equalTo("{\"from\":1000000000000,\"to\":1000000000100,"
+                            + "\"primes\":" + pages[page] + "}")));
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeUnavailableAfterDeadline() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders
+                .get("/primes?from=1000000000000&to=2000000000000&limit=100000")
+                .header(PrimeServiceController.TIMEOUT_HEADER, "1")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeRejectedOverBudget() throws Exception {
+        //Work which fills the budget of the executor.
+        computeExecutor.admit(Long.MAX_VALUE / 2);
+        try {
+            mvc.perform(MockMvcRequestBuilders.get("/primes?from=1000000000000&to=2000000000000&limit=100000")
+                    .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            computeExecutor.release(Long.MAX_VALUE / 2, 0L);
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersInRangeInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes?from=10&to=100&cursor=5"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPrimeNumbersInBatch() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.post("/primes/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"limits\":[10,3],\"ranges\":[{\"from\":20,\"to\":30}],\"checks\":[7,91]}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"limits\":[{\"initialVal\":10,\"primies\":[2,3,5,7]},"
+                        + "{\"initialVal\":3,\"primies\":[2,3]}],"
+                        + "\"ranges\":[{\"from\":20,\"to\":30,\"primes\":[23,29],\"nextCursor\":null}],"
+                        + "\"checks\":[{\"number\":7,\"prime\":true},{\"number\":91,\"prime\":false}]}")));
+    }
+
+    @Test
+    public void getPrimeNumbersInBatchInvalidLimit() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/primes/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"limits\":[-1]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void isPrime() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/isprime/9223372036854775783").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"number\":9223372036854775783,\"prime\":true}")));
+        mvc.perform(MockMvcRequestBuilders.get("/isprime/91").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"number\":91,\"prime\":false}")));
+    }
+
+    @Test
+    public void getNthPrimeNumber() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/nth/1000000")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"n\":1000000,\"prime\":15485863}")));
+        mvc.perform(MockMvcRequestBuilders.get("/primes/nth/0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getFirstPrimeNumbers() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/first/6")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo("{\"initialVal\":13,\"primies\":[2,3,5,7,11,13]}")));
+        mvc.perform(MockMvcRequestBuilders.get("/primes/first/-1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void getPrimeFactors() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/factors/3825123056546413051").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().string(equalTo(
+                        "{\"number\":3825123056546413051,\"factors\":[149491,747451,34233211]}")));
+        mvc.perform(MockMvcRequestBuilders.get("/factors/0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void metricsAreExposed() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/primes/100").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/prime.cache.requests"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/prime.serialization"))
                 .andExpect(status().isOk())
-                .andExpect(content().string(equalTo("{\"initialVal\":10,\"primies\":[]}")));
+                .andExpect(content().string(containsString("\"statistic\":\"COUNT\"")));
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/prime.frontier.size"))
+                .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.primeservice.app;
+
+import com.primeservice.BoundedComputeExecutor;
+import com.primeservice.exception.PeerUnavailableException;
+import com.primeservice.util.SegmentedSieve;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.core.Is.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Test for {@link PrimeServiceController} as the coordinator of a peer on a local port, which fails the segments
+ * beyond {@link #FAILING_FROM}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"prime.warmup.limit=0", "prime.warmup.speculative=false",
+        "prime.cluster.segment-size=10000"})
+@ContextConfiguration(initializers = PrimeServiceFanoutControllerTest.PeerInitializer.class)
+@AutoConfigureMockMvc
+public class PrimeServiceFanoutControllerTest {
+
+    private static final long FAILING_FROM = 50000L;
+
+    private static HttpServer peer;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private BoundedComputeExecutor computeExecutor;
+
+    @AfterClass
+    public static void stopPeer() {
+        peer.stop(0);
+    }
+
+    @Test
+    public void getPrimeNumbersFromPeers() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=30"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(equalTo("{\"initialVal\":30,\"primies\":[2,3,5,7,11,13,17,19,23,29]}")));
+    }
+
+    @Test
+    public void getPrimeNumbersFromPeersAsVarintGaps() throws Exception {
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=30")
+                .accept(MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(VarintGapPrimeWriter.MEDIA_TYPE))
+                .andExpect(content().bytes(new byte[]{2, 1, 2, 2, 4, 2, 4, 2, 4, 6}));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void getPrimeNumbersFromPeersIsNotCompletedIfPeerFails() throws Exception {
+        //When
+        final MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=99999"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //Then
+        assertThat(result.getAsyncResult(30000L) instanceof PeerUnavailableException, is(true));
+        final String body = result.getResponse().getContentAsString();
+        assertThat(body.startsWith("{\"initialVal\":99999,\"primies\":[2,3,5,7,"), is(true));
+        assertThat(body.endsWith("]}"), is(false));
+    }
+
+    @Test
+    public void getPrimeNumbersFromPeersRejectedOverBudget() throws Exception {
+        //Work which fills the budget of the executor.
+        computeExecutor.admit(Long.MAX_VALUE / 2);
+        try {
+            mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=30"))
+                    .andExpect(status().isTooManyRequests());
+            mvc.perform(MockMvcRequestBuilders.get("/primes/fanout?from=0&to=30")
+                    .accept(MediaType.parseMediaType(VarintGapPrimeWriter.MEDIA_TYPE)))
+                    .andExpect(status().isTooManyRequests());
+        } finally {
+            computeExecutor.release(Long.MAX_VALUE / 2, 0L);
+        }
+    }
+    //region end
+
+    /**
+     * Starts the peer on a free local port and makes it the only one of the coordinator.
+     */
+    static class PeerInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        public void initialize(ConfigurableApplicationContext applicationContext) {
+            try {
+                peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            peer.createContext("/primes", exchange -> {
+                sendPrimeNumbers(exchange);
+                exchange.close();
+            });
+            peer.start();
+            TestPropertyValues.of("prime.cluster.peers=http://localhost:" + peer.getAddress().getPort())
+                    .applyTo(applicationContext);
+        }
+    }
+
+    private static void sendPrimeNumbers(HttpExchange exchange) throws IOException {
+        final Map<String, String> query = UriComponentsBuilder.fromUri(exchange.getRequestURI()).build()
+                .getQueryParams().toSingleValueMap();
+        final long from = Long.parseLong(query.get("from"));
+        final long to = Long.parseLong(query.get("to"));
+        if (to >= FAILING_FROM) {
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", VarintGapPrimeWriter.MEDIA_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody();
+             VarintGapPrimeWriter writer = new VarintGapPrimeWriter(body)) {
+            SegmentedSieve.getPrimeSequence(from, to).forEach(writer);
+        }
+    }
+}
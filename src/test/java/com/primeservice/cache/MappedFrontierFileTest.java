@@ -0,0 +1,150 @@
+package com.primeservice.cache;
+
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link MappedFrontierFile}
+ */
+public class MappedFrontierFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void primesSurviveReopen() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        final PrimeFrontier primeFrontier = PrimeFrontier.open(file);
+        primeFrontier.append(1000, SegmentedSieve.getPrimeNumbers(2, 1000));
+        primeFrontier.append(2000000, SegmentedSieve.getPrimeNumbers(1001, 2000000));
+
+        //When
+        final PrimeFrontier reopened = PrimeFrontier.open(file);
+
+        //Then
+        //The last byte covers 1999980 to 2009, so only the complete bytes up to 1999979 are kept.
+        assertThat(reopened.getLimit(), is(1999979L));
+        assertThat(reopened.getPrimeNumbers(1999979), is(SegmentedSieve.getPrimeNumbers(2, 1999979)));
+        assertThat(reopened.countPrimeNumbers(1999979), is(148932L));
+    }
+
+    @Test
+    public void appendsAfterReopen() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        PrimeFrontier.open(file).append(100, SegmentedSieve.getPrimeNumbers(2, 100));
+        final PrimeFrontier reopened = PrimeFrontier.open(file);
+
+        //When
+        reopened.append(100000, SegmentedSieve.getPrimeNumbers(reopened.getLimit() + 1, 100000));
+
+        //Then
+        assertThat(reopened.getPrimeNumbers(100000), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        assertThat(PrimeFrontier.open(file).getPrimeNumbers(99989), is(SegmentedSieve.getPrimeNumbers(2, 99989)));
+    }
+
+    @Test
+    public void closedFrontierStaysReadable() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        final PrimeFrontier primeFrontier = PrimeFrontier.open(file);
+        primeFrontier.append(100000, SegmentedSieve.getPrimeNumbers(2, 100000));
+
+        //When
+        primeFrontier.close();
+
+        //Then
+        assertThat(primeFrontier.getPrimeNumbers(100000), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        assertThat(PrimeFrontier.open(file).getPrimeNumbers(99989), is(SegmentedSieve.getPrimeNumbers(2, 99989)));
+        try {
+            primeFrontier.append(200000, SegmentedSieve.getPrimeNumbers(100001, 200000));
+            fail("Appended to a closed frontier");
+        } catch (UncheckedIOException e) {
+            assertThat(e.getCause() instanceof ClosedChannelException, is(true));
+        }
+    }
+
+    @Test
+    public void checksumMatchesCrc32() throws Exception {
+        //Given
+        final byte[] bytes = new byte[10000];
+        new Random(7).nextBytes(bytes);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+
+        //When
+        final long first = MappedFrontierFile.updateChecksum(0L, ByteBuffer.wrap(bytes), 0, 1234);
+        final long checksum = MappedFrontierFile.updateChecksum(first, ByteBuffer.wrap(bytes), 1234, bytes.length);
+
+        //Then
+        assertThat(checksum, is(crc32.getValue()));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void corruptSnapshotIsDiscarded() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        PrimeFrontier.open(file).append(100000, SegmentedSieve.getPrimeNumbers(2, 100000));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), MappedFrontierFile.HEADER_BYTES + 100);
+        }
+
+        //When
+        final PrimeFrontier reopened = PrimeFrontier.open(file);
+
+        //Then
+        assertThat(reopened.getLimit(), is(1L));
+        reopened.append(1000, SegmentedSieve.getPrimeNumbers(2, 1000));
+        assertThat(reopened.getPrimeNumbers(1000), is(SegmentedSieve.getPrimeNumbers(2, 1000)));
+    }
+
+    @Test
+    public void unknownFileIsDiscarded() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        Files.write(file, new byte[1000]);
+
+        //When
+        final PrimeFrontier reopened = PrimeFrontier.open(file);
+
+        //Then
+        assertThat(reopened.getLimit(), is(1L));
+    }
+
+    @Test
+    public void unfinishedAppendIsDiscarded() throws Exception {
+        //Given
+        final Path file = folder.getRoot().toPath().resolve("frontier.bin");
+        PrimeFrontier.open(file).append(299, SegmentedSieve.getPrimeNumbers(2, 299));
+        //Bits of an append which never committed its limit.
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF}), MappedFrontierFile.HEADER_BYTES + 10);
+        }
+
+        //When
+        final PrimeFrontier reopened = PrimeFrontier.open(file);
+        reopened.append(1000, SegmentedSieve.getPrimeNumbers(300, 1000));
+
+        //Then
+        assertThat(reopened.getPrimeNumbers(1000), is(SegmentedSieve.getPrimeNumbers(2, 1000)));
+    }
+    //region end
+}
@@ -0,0 +1,171 @@
+package com.primeservice.cache;
+
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link PrimeFrontier}
+ */
+public class PrimeFrontierTest {
+
+    @Test
+    public void getPrimeNumbersPrefixViews() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+
+        //When
+        primeFrontier.append(100000, SegmentedSieve.getPrimeNumbers(2, 100000));
+
+        //Then
+        for (long maxValue = 1; maxValue <= 2000; maxValue++) {
+            assertThat(primeFrontier.getPrimeNumbers(maxValue), is(SegmentedSieve.getPrimeNumbers(2, maxValue)));
+        }
+        assertThat(primeFrontier.getPrimeNumbers(100000), is(SegmentedSieve.getPrimeNumbers(2, 100000)));
+        assertThat(primeFrontier.countPrimeNumbers(100000), is(9592L));
+    }
+
+    @Test
+    public void getPrimeNumbersRandomAccess() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        final List<Long> expected = SegmentedSieve.getPrimeNumbers(2, 1000000);
+        primeFrontier.append(1000000, expected);
+
+        //When
+        final List<Long> view = primeFrontier.getPrimeNumbers(1000000);
+
+        //Then
+        assertThat(view.size(), is(78498));
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertThat(view.get(i), is(expected.get(i)));
+        }
+        assertThat(view.get(78497), is(999983L));
+    }
+
+    @Test
+    public void prefixOfView() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        primeFrontier.append(1000, SegmentedSieve.getPrimeNumbers(2, 1000));
+        final List<Long> view = primeFrontier.getPrimeNumbers(1000);
+
+        //When
+        final List<Long> prefix = view.subList(0, 25);
+
+        //Then
+        assertThat(prefix, is(SegmentedSieve.getPrimeNumbers(2, 100)));
+        assertThat(view.subList(0, 0).size(), is(0));
+        assertThat(view.subList(3, 5), is(Arrays.asList(7L, 11L)));
+    }
+
+    @Test
+    public void subSequenceOfBitmap() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        primeFrontier.append(100000, SegmentedSieve.getPrimeSequence(2, 100000));
+        final PrimeSequence sequence = primeFrontier.getPrimeSequence(100000);
+
+        //When
+        final int from = sequence.lowerBound(50000);
+        final PrimeSequence range = sequence.subSequence(from, sequence.lowerBound(60001));
+
+        //Then
+        assertThat(range.asList(), is(SegmentedSieve.getPrimeNumbers(50000, 60000)));
+        assertThat(range.stream().count(), is((long) range.size()));
+        assertThat(range.get(0), is(50021L));
+        assertThat(range.lowerBound(50022), is(1));
+        assertThat(sequence.subSequence(1, 6).toArray(), is(new long[]{3L, 5L, 7L, 11L, 13L}));
+        assertThat(sequence.subSequence(3, 4).toArray(), is(new long[]{7L}));
+        assertThat(sequence.lowerBound(1000000), is(sequence.size()));
+    }
+
+    @Test
+    public void getNthPrime() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        primeFrontier.append(200000, SegmentedSieve.getPrimeNumbers(2, 200000));
+        final List<Long> primeNumbers = SegmentedSieve.getPrimeNumbers(2, 200000);
+
+        //Then
+        for (int n = 1; n <= primeNumbers.size(); n++) {
+            assertThat(primeFrontier.getNthPrime(n), is(primeNumbers.get(n - 1)));
+        }
+        try {
+            primeFrontier.getNthPrime(primeNumbers.size() + 1);
+            fail("Prime is beyond the frontier.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void appendDeltas() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        final List<List<Long>> views = new ArrayList<>();
+
+        //When
+        long limit = 1;
+        for (long newLimit : Arrays.asList(7L, 31L, 1919L, 1920L, 1921L, 50000L, 123457L)) {
+            primeFrontier.append(newLimit, SegmentedSieve.getPrimeNumbers(limit + 1, newLimit));
+            views.add(primeFrontier.getPrimeNumbers(newLimit));
+            limit = newLimit;
+        }
+
+        //Then
+        assertThat(primeFrontier.getLimit(), is(123457L));
+        assertThat(primeFrontier.getPrimeNumbers(123457), is(SegmentedSieve.getPrimeNumbers(2, 123457)));
+        //Views taken before an append are not changed by it.
+        assertThat(views.get(0), is(Arrays.asList(2L, 3L, 5L, 7L)));
+        assertThat(views.get(3), is(SegmentedSieve.getPrimeNumbers(2, 1920)));
+    }
+
+    @Test
+    public void frontierIsBoundedBySize() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier(10000);
+        final long maxLimit = primeFrontier.getMaxLimit();
+
+        //When
+        for (long limit = 1000; limit < maxLimit; limit += 20000) {
+            primeFrontier.append(limit, SegmentedSieve.getPrimeSequence(primeFrontier.getLimit() + 1, limit));
+        }
+        primeFrontier.append(maxLimit, SegmentedSieve.getPrimeSequence(primeFrontier.getLimit() + 1, maxLimit));
+
+        //Then
+        assertThat(maxLimit, is(264959L));
+        assertThat(primeFrontier.getSizeInBytes() <= 10000, is(true));
+        assertThat(primeFrontier.getPrimeNumbers(maxLimit), is(SegmentedSieve.getPrimeNumbers(2, maxLimit)));
+        try {
+            primeFrontier.append(maxLimit + 30, SegmentedSieve.getPrimeSequence(maxLimit + 1, maxLimit + 30));
+            fail("Frontier is at its maximum size.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersBeyondLimit() throws Exception {
+        //Given
+        final PrimeFrontier primeFrontier = new PrimeFrontier();
+        primeFrontier.append(100, SegmentedSieve.getPrimeNumbers(2, 100));
+
+        //When
+        try {
+            primeFrontier.getPrimeNumbers(101);
+            fail("Should not execute this");
+        } catch (IllegalArgumentException ex) {
+            //Then
+            assertThat(primeFrontier.getLimit(), is(100L));
+        }
+    }
+}
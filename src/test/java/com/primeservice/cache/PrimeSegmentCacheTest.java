@@ -0,0 +1,84 @@
+package com.primeservice.cache;
+
+import com.primeservice.api.LongArrayPrimeSequence;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.util.SegmentedSieve;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+/**
+ * Test for {@link PrimeSegmentCache}
+ */
+public class PrimeSegmentCacheTest {
+
+    /**
+     * 10000 primes take 80064 bytes, so that 13 segments fit next to an empty frontier of at most 1 MB.
+     */
+    private static final PrimeSequence SEGMENT = new LongArrayPrimeSequence(new long[10000], 0, 10000);
+
+    @Test
+    public void getCachedSegment() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final PrimeSegmentCache segmentCache = new PrimeSegmentCache(new PrimeFrontier(1L << 20), meterRegistry);
+        final PrimeSequence primes = SegmentedSieve.getPrimeSequence(5L * PrimeSegmentCache.SEGMENT_SIZE,
+                5L * PrimeSegmentCache.SEGMENT_SIZE + 10000L);
+
+        //When
+        segmentCache.put(5L, primes);
+
+        //Then
+        assertThat(segmentCache.get(5L).asList(), is(primes.asList()));
+        assertThat(segmentCache.get(6L), is(nullValue()));
+        assertThat(segmentCache.getSizeInBytes(), is(8L * primes.size() + 64L));
+        assertThat(meterRegistry.counter("prime.segment.requests", "result", "hit").count(), is(1.0));
+        assertThat(meterRegistry.counter("prime.segment.requests", "result", "miss").count(), is(1.0));
+    }
+
+    @Test
+    public void leastRecentlyUsedSegmentIsEvicted() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final PrimeSegmentCache segmentCache = new PrimeSegmentCache(new PrimeFrontier(1L << 20), meterRegistry);
+        for (long segment = 100L; segment < 113L; segment++) {
+            segmentCache.put(segment, SEGMENT);
+        }
+        segmentCache.get(100L);
+
+        //When
+        segmentCache.put(113L, SEGMENT);
+
+        //Then
+        assertThat(segmentCache.getSegmentCount(), is(13));
+        assertThat(segmentCache.get(101L), is(nullValue()));
+        assertThat(segmentCache.get(100L) != null, is(true));
+        assertThat(segmentCache.get(113L) != null, is(true));
+        assertThat(meterRegistry.counter("prime.segment.evictions", "reason", "lru").count(), is(1.0));
+    }
+
+    @Test
+    public void segmentCoveredByFrontierIsEvictedFirst() throws Exception {
+        //Given
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final PrimeFrontier primeFrontier = new PrimeFrontier(1L << 20);
+        final PrimeSegmentCache segmentCache = new PrimeSegmentCache(primeFrontier, meterRegistry);
+        segmentCache.put(0L, SEGMENT);
+        segmentCache.put(100L, SEGMENT);
+        primeFrontier.append(PrimeSegmentCache.SEGMENT_SIZE - 1L,
+                SegmentedSieve.getPrimeSequence(2L, PrimeSegmentCache.SEGMENT_SIZE - 1L));
+
+        //When
+        segmentCache.put(101L, SEGMENT);
+
+        //Then
+        assertThat(segmentCache.get(0L), is(nullValue()));
+        assertThat(segmentCache.get(100L) != null, is(true));
+        assertThat(meterRegistry.counter("prime.segment.evictions", "reason", "covered").count(), is(1.0));
+        assertThat(segmentCache.getSizeInBytes() + primeFrontier.getSizeInBytes() <= 1L << 20, is(true));
+    }
+}
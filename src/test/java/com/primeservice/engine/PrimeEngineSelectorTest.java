@@ -0,0 +1,130 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.exception.InvalidInputException;
+import com.primeservice.exception.UnknownEngineException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link PrimeEngineSelector}
+ */
+public class PrimeEngineSelectorTest {
+
+    private final PrimeEngineSelector selector = new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(),
+            PrimeEngine.AUTO);
+
+    @Test
+    public void selectNamedEngine() {
+        assertThat(selector.select(WheelSieveEngine.NAME, 2L, 100L).getName(), is(WheelSieveEngine.NAME));
+        assertThat(selector.select(TrialDivisionEngine.NAME, 2L, 100000000L).getName(),
+                is(TrialDivisionEngine.NAME));
+    }
+
+    @Test
+    public void selectDefaultEngine() {
+        //Given
+        final PrimeEngineSelector selector = new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(),
+                ProbabilisticEngine.NAME);
+
+        //Then
+        assertThat(selector.select(null, 2L, 100000000L).getName(), is(ProbabilisticEngine.NAME));
+        assertThat(selector.getDefaultEngine(), is(ProbabilisticEngine.NAME));
+    }
+
+    @Test
+    public void autoSelectsSieveForDenseRanges() {
+        assertThat(selector.select(null, 2L, 100000000L).getName(), is(WheelSieveEngine.NAME));
+        assertThat(selector.select(PrimeEngine.AUTO, 1000000000000L, 1000001000000L).getName(),
+                is(SegmentedSieveEngine.NAME));
+    }
+
+    @Test
+    public void autoSelectsProbabilisticForShortRangesOfLargeValues() {
+        assertThat(selector.select(PrimeEngine.AUTO, 1000000000000000000L, 1000000000000010000L).getName(),
+                is(ProbabilisticEngine.NAME));
+    }
+
+    @Test
+    public void defaultSieveIsReplacedBeyondItsRange() {
+        //Given
+        final PrimeEngineSelector selector = new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(),
+                SegmentedSieveEngine.NAME);
+
+        //Then
+        assertThat(selector.select(null, 1000000000000000000L, 1000000000000001000L).getName(),
+                is(ProbabilisticEngine.NAME));
+        assertThat(selector.select(PrimeEngine.AUTO, 2L, Long.MAX_VALUE).supports(Long.MAX_VALUE), is(true));
+    }
+
+    @Test
+    public void registeredEngineReplacesBuiltIn() {
+        //Given
+        final List<PrimeEngine> engines = new ArrayList<>(PrimeEngineSelector.getBuiltInEngines());
+        final PrimeEngine freeEngine = new PrimeEngine() {
+            @Override
+            public String getName() {
+                return WheelSieveEngine.NAME;
+            }
+
+            @Override
+            public void forEachPrime(long minValue, long maxValue, LongConsumer consumer, Deadline deadline) {
+                new SegmentedSieveEngine().forEachPrime(minValue, maxValue, consumer, deadline);
+            }
+
+            @Override
+            public double estimateCost(long minValue, long maxValue) {
+                return 0.0;
+            }
+        };
+        engines.add(freeEngine);
+
+        //When
+        final PrimeEngineSelector selector = new PrimeEngineSelector(engines, PrimeEngine.AUTO);
+
+        //Then
+        assertThat(selector.getEngineNames().size(), is(4));
+        assertThat(selector.select(null, 1000000000000000000L, 1000000000000010000L), is(freeEngine));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void selectUnknownEngine() {
+        try {
+            selector.select("eratosthenes", 2L, 100L);
+            fail("Expected UnknownEngineException");
+        } catch (UnknownEngineException e) {
+            assertThat(e.getMessage().contains("eratosthenes"), is(true));
+        }
+    }
+
+    @Test(expected = InvalidInputException.class)
+    public void namedSieveBeyondItsRange() {
+        selector.select(SegmentedSieveEngine.NAME, 1000000000000000000L, 1000000000000001000L);
+    }
+
+    @Test(expected = UnknownEngineException.class)
+    public void validateUnknownEngine() {
+        selector.validate("eratosthenes");
+    }
+
+    @Test(expected = UnknownEngineException.class)
+    public void unknownDefaultEngine() {
+        new PrimeEngineSelector(PrimeEngineSelector.getBuiltInEngines(), "eratosthenes");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void selectorNeedsEngines() {
+        new PrimeEngineSelector(Arrays.asList(), PrimeEngine.AUTO);
+    }
+    //region end
+}
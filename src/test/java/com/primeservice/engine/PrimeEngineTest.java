@@ -0,0 +1,114 @@
+package com.primeservice.engine;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeEngine;
+import com.primeservice.exception.DeadlineExceededException;
+import com.primeservice.util.SegmentedSieve;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for the built-in {@link PrimeEngine}s, which must all find exactly the primes of the {@link SegmentedSieve}.
+ */
+public class PrimeEngineTest {
+
+    private static final long WHEEL_SEGMENT_VALUES = 30L * WheelSieveEngine.SEGMENT_BYTES;
+
+    @Test
+    public void enginesFindThePrimesOfSmallRanges() {
+        //Given
+        final long[][] ranges = {{0L, 0L}, {0L, 1L}, {0L, 2L}, {2L, 7L}, {4L, 6L}, {7L, 7L}, {8L, 10L}, {29L, 31L},
+                {0L, 100000L}, {99990L, 100100L}};
+
+        for (PrimeEngine engine : PrimeEngineSelector.getBuiltInEngines()) {
+            for (long[] range : ranges) {
+                //When
+                final List<Long> primeNumbers = engine.getPrimeSequence(range[0], range[1], Deadline.NONE).asList();
+
+                //Then
+                assertThat(engine.getName() + " " + Arrays.toString(range), primeNumbers,
+                        is(SegmentedSieve.getPrimeNumbers(range[0], range[1])));
+            }
+        }
+    }
+
+    @Test
+    public void wheelSieveAcrossSegments() {
+        //Given
+        final WheelSieveEngine engine = new WheelSieveEngine();
+        final long minValue = WHEEL_SEGMENT_VALUES - 101L;
+        final long maxValue = 2L * WHEEL_SEGMENT_VALUES + 103L;
+        final List<Long> primeNumbers = new ArrayList<>();
+
+        //When
+        engine.forEachPrime(minValue, maxValue, primeNumbers::add, Deadline.NONE);
+
+        //Then
+        assertThat(primeNumbers, is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+    }
+
+    @Test
+    public void enginesFindThePrimesOfLargeValues() {
+        //Given
+        final long minValue = 1000000000000L;
+        final long maxValue = minValue + 200000L;
+
+        for (PrimeEngine engine : Arrays.asList(new SegmentedSieveEngine(), new WheelSieveEngine(),
+                new ProbabilisticEngine())) {
+            //When
+            final List<Long> primeNumbers = engine.getPrimeSequence(minValue, maxValue, Deadline.NONE).asList();
+
+            //Then
+            assertThat(engine.getName(), primeNumbers, is(SegmentedSieve.getPrimeNumbers(minValue, maxValue)));
+        }
+    }
+
+    @Test
+    public void probabilisticEngineUpToLongMax() {
+        //Given
+        final ProbabilisticEngine engine = new ProbabilisticEngine();
+
+        //When
+        final List<Long> primeNumbers = engine.getPrimeSequence(Long.MAX_VALUE - 100L, Long.MAX_VALUE,
+                Deadline.NONE).asList();
+
+        //Then
+        //The largest prime below 2^63 is 2^63 - 25, the next one is 2^63 - 165.
+        assertThat(primeNumbers, is(Arrays.asList(9223372036854775783L)));
+    }
+
+    @Test
+    public void estimatesGrowWithTheRange() {
+        for (PrimeEngine engine : PrimeEngineSelector.getBuiltInEngines()) {
+            assertThat(engine.getName(), engine.estimateCost(2L, 1000L) < engine.estimateCost(2L, 1000000L),
+                    is(true));
+        }
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void enginesStopAtTheDeadline() throws InterruptedException {
+        //Given
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+
+        for (PrimeEngine engine : PrimeEngineSelector.getBuiltInEngines()) {
+            //When
+            try {
+                engine.getPrimeSequence(0L, 100000000L, deadline);
+                fail("Expected DeadlineExceededException from " + engine.getName());
+            } catch (DeadlineExceededException e) {
+                //Then
+                assertThat(engine.getName(), deadline.isExpired(), is(true));
+            }
+        }
+    }
+    //region end
+}
@@ -0,0 +1,118 @@
+package com.primeservice.util;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static junit.framework.TestCase.fail;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Test for {@link DirectBufferArena}
+ */
+public class DirectBufferArenaTest {
+
+    @Test
+    public void acquiredBufferIsDirect() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+
+        //When
+        final DirectBufferArena.Lease lease = arena.acquire(5000);
+
+        //Then
+        final ByteBuffer buffer = lease.getBuffer();
+        assertThat(buffer.isDirect(), is(true));
+        assertThat(buffer.order(), is(ByteOrder.nativeOrder()));
+        assertThat(buffer.limit(), is(5000));
+        assertThat(buffer.capacity(), is(8192));
+        assertThat(arena.getLeasedBytes(), is(8192L));
+    }
+
+    @Test
+    public void releasedBufferIsReused() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+        final ByteBuffer released;
+        try (DirectBufferArena.Lease lease = arena.acquire(100000)) {
+            released = lease.getBuffer();
+        }
+
+        //When
+        final DirectBufferArena.Lease lease = arena.acquire(70000);
+
+        //Then
+        assertThat(lease.getBuffer() == released, is(true));
+        assertThat(lease.getBuffer().limit(), is(70000));
+        assertThat(arena.getPooledBytes(), is(0L));
+        assertThat(arena.getLeasedBytes(), is(131072L));
+    }
+
+    @Test
+    public void sizeClassesAreNotMixed() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+        final ByteBuffer released;
+        try (DirectBufferArena.Lease lease = arena.acquire(100000)) {
+            released = lease.getBuffer();
+        }
+
+        //When
+        final DirectBufferArena.Lease lease = arena.acquire(10000);
+
+        //Then
+        assertThat(lease.getBuffer() == released, is(false));
+        assertThat(lease.getBuffer().capacity(), is(16384));
+        assertThat(arena.getPooledBytes(), is(131072L));
+    }
+
+    @Test
+    public void poolIsBounded() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.MIN_BUFFER_BYTES);
+        final DirectBufferArena.Lease first = arena.acquire(1);
+        final DirectBufferArena.Lease second = arena.acquire(1);
+
+        //When
+        first.close();
+        second.close();
+
+        //Then
+        assertThat(arena.getLeasedBytes(), is(0L));
+        assertThat(arena.getPooledBytes(), is((long) DirectBufferArena.MIN_BUFFER_BYTES));
+    }
+
+    //region Negative Test Cases
+    @Test
+    public void leaseIsReleasedOnce() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+        final DirectBufferArena.Lease lease = arena.acquire(1);
+
+        //When
+        lease.close();
+        lease.close();
+
+        //Then
+        assertThat(arena.getLeasedBytes(), is(0L));
+        assertThat(arena.getPooledBytes(), is((long) DirectBufferArena.MIN_BUFFER_BYTES));
+    }
+
+    @Test
+    public void negativeSizeIsRejected() throws Exception {
+        //Given
+        final DirectBufferArena arena = new DirectBufferArena(DirectBufferArena.DEFAULT_MAX_POOLED_BYTES);
+
+        //When
+        try {
+            arena.acquire(-1);
+            fail("A negative size was leased");
+        } catch (IllegalArgumentException e) {
+            //Then
+            assertThat(arena.getLeasedBytes(), is(0L));
+        }
+    }
+    //region end
+}
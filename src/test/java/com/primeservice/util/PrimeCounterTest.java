@@ -0,0 +1,136 @@
+package com.primeservice.util;
+
+import com.primeservice.api.Deadline;
+import com.primeservice.api.PrimeSequence;
+import com.primeservice.exception.DeadlineExceededException;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for {@link PrimeCounter}
+ */
+public class PrimeCounterTest {
+
+    @Test
+    public void countPrimeNumbersSmallValues() throws Exception {
+        long count = 0;
+        for (long maxValue = 0; maxValue < 100000; maxValue++) {
+            if (PrimeNumberUtil.isPrime(maxValue)) {
+                count++;
+            }
+            assertThat(PrimeCounter.countPrimeNumbers(maxValue), is(count));
+        }
+    }
+
+    @Test
+    public void countPrimeNumbersMatchesSieve() throws Exception {
+        for (long maxValue : new long[]{65537, 1000003, 20000000, 123456789}) {
+            final long[] count = new long[1];
+            SegmentedSieve.forEachPrime(2, maxValue, prime -> count[0]++);
+            assertThat(PrimeCounter.countPrimeNumbers(maxValue), is(count[0]));
+        }
+    }
+
+    @Test
+    public void countPrimeNumbersPowersOfTen() throws Exception {
+        assertThat(PrimeCounter.countPrimeNumbers(1000000000L), is(50847534L));
+        assertThat(PrimeCounter.countPrimeNumbers(100000000000L), is(4118054813L));
+        assertThat(PrimeCounter.countPrimeNumbers(10000000000000L), is(346065536839L));
+    }
+
+    @Test
+    public void getNthPrimeMatchesSieve() throws Exception {
+        final PrimeSequence primeNumbers = SegmentedSieve.getPrimeSequence(2, 3000000);
+        for (int n = 1; n <= primeNumbers.size(); n += 1 + n / 64) {
+            assertThat(PrimeCounter.getNthPrime(n), is(primeNumbers.get(n - 1)));
+        }
+    }
+
+    @Test
+    public void getNthPrimeLargeIndexes() throws Exception {
+        assertThat(PrimeCounter.getNthPrime(50847534L), is(999999937L));
+        assertThat(PrimeCounter.getNthPrime(50847535L), is(1000000007L));
+        assertThat(PrimeCounter.getNthPrime(1000000000L), is(22801763489L));
+        assertThat(PrimeCounter.getNthPrime(4118054813L), is(99999999977L));
+    }
+
+    @Test
+    public void nthPrimeBounds() throws Exception {
+        final PrimeSequence primeNumbers = SegmentedSieve.getPrimeSequence(2, 12000000);
+        for (int n = 1; n <= primeNumbers.size(); n++) {
+            assertThat(PrimeCounter.getNthPrimeLowerBound(n) <= primeNumbers.get(n - 1), is(true));
+            assertThat(PrimeCounter.getNthPrimeUpperBound(n) >= primeNumbers.get(n - 1), is(true));
+        }
+        assertThat(PrimeCounter.getNthPrimeLowerBound(1000000000L) <= 22801763489L, is(true));
+        assertThat(PrimeCounter.getNthPrimeUpperBound(1000000000L) >= 22801763489L, is(true));
+        assertThat(PrimeCounter.getNthPrimeUpperBound(1000000000L) - 22801763489L < 100000000L, is(true));
+        assertThat(Math.abs(PrimeCounter.logarithmicIntegral(1000000000.0) - 50849234.957) < 0.01, is(true));
+    }
+
+    @Test
+    public void estimateWork() throws Exception {
+        assertThat(PrimeCounter.estimateWork(1L), is(1L));
+        assertThat(PrimeCounter.estimateWork(1000000000000L), is(100000000L));
+        assertThat(PrimeCounter.estimateNthPrimeWork(1000000000L) >= PrimeCounter.estimateWork(22801763489L),
+                is(true));
+    }
+
+    @Test
+    public void countPrimeNumbersOnGivenPool() throws Exception {
+        //Given
+        final AtomicInteger workers = new AtomicInteger();
+        final ForkJoinPool pool = new ForkJoinPool(2, forkJoinPool -> {
+            workers.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+        }, null, false);
+
+        //When
+        try {
+            assertThat(PrimeCounter.countPrimeNumbers(100000000000L, Deadline.NONE, pool), is(4118054813L));
+            assertThat(PrimeCounter.getNthPrime(50847535L, Deadline.NONE, pool), is(1000000007L));
+        } finally {
+            pool.shutdown();
+        }
+
+        //Then
+        assertThat(workers.get() > 0, is(true));
+    }
+
+    //region Negative Test Cases
+    @Test(expected = DeadlineExceededException.class)
+    public void countPrimeNumbersAfterDeadline() throws Exception {
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+        PrimeCounter.countPrimeNumbers(10000000000000L, deadline);
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void getNthPrimeAfterDeadline() throws Exception {
+        final Deadline deadline = Deadline.after(1L);
+        Thread.sleep(5L);
+        PrimeCounter.getNthPrime(1000000000L, deadline);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getNthPrimeOfZero() throws Exception {
+        PrimeCounter.getNthPrime(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getNthPrimeBeyondMaxValue() throws Exception {
+        PrimeCounter.getNthPrime(PrimeCounter.MAX_NTH + 1);
+    }
+    //region end
+
+    @Test
+    public void getFlooredCubeRoot() throws Exception {
+        assertThat(PrimeCounter.getFlooredCubeRoot(26), is(2L));
+        assertThat(PrimeCounter.getFlooredCubeRoot(27), is(3L));
+        assertThat(PrimeCounter.getFlooredCubeRoot(999999999999999999L), is(999999L));
+    }
+}
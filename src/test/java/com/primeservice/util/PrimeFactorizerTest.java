@@ -0,0 +1,88 @@
+package com.primeservice.util;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for {@link PrimeFactorizer}
+ */
+public class PrimeFactorizerTest {
+
+    @Test
+    public void factorizeSmallNumbers() throws Exception {
+        assertThat(PrimeFactorizer.factorize(1L), is(new long[0]));
+        assertThat(PrimeFactorizer.factorize(2L), is(new long[]{2L}));
+        assertThat(PrimeFactorizer.factorize(360L), is(new long[]{2L, 2L, 2L, 3L, 3L, 5L}));
+        assertThat(PrimeFactorizer.factorize(4095L * 4099L), is(new long[]{3L, 3L, 5L, 7L, 13L, 4099L}));
+    }
+
+    @Test
+    public void factorizeMatchesTrialDivision() throws Exception {
+        for (long num = 1; num < 100000; num++) {
+            long product = 1L;
+            long previous = 2L;
+            for (long factor : PrimeFactorizer.factorize(num)) {
+                assertThat(PrimeNumberUtil.isPrimeByTrialDivision(factor), is(true));
+                assertThat(factor >= previous, is(true));
+                product *= factor;
+                previous = factor;
+            }
+            assertThat(product, is(num));
+        }
+    }
+
+    @Test
+    public void factorizeLargeNumbers() throws Exception {
+        assertThat(PrimeFactorizer.factorize(9223372036854775783L), is(new long[]{9223372036854775783L}));
+        assertThat(PrimeFactorizer.factorize(Long.MAX_VALUE), is(new long[]{7L, 7L, 73L, 127L, 337L, 92737L, 649657L}));
+        final long[] twos = new long[62];
+        Arrays.fill(twos, 2L);
+        assertThat(PrimeFactorizer.factorize(1L << 62), is(twos));
+        //Squares and products of two 31-bit primes have no small factor.
+        assertThat(PrimeFactorizer.factorize(4611686014132420609L), is(new long[]{2147483647L, 2147483647L}));
+        assertThat(PrimeFactorizer.factorize(3825123056546413051L),
+                is(new long[]{149491L, 747451L, 34233211L}));
+    }
+
+    @Test
+    public void factorizeMatchesBigInteger() throws Exception {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 2000; i++) {
+            final int bits = 8 + random.nextInt(24);
+            final long first = BigInteger.probablePrime(bits, random).longValue();
+            final long second = BigInteger.probablePrime(63 - bits, random).longValue();
+            final long[] factors = PrimeFactorizer.factorize(first * second);
+            assertThat(factors, is(new long[]{Math.min(first, second), Math.max(first, second)}));
+        }
+        for (int i = 0; i < 2000; i++) {
+            final long num = 1L + (random.nextLong() >>> 1);
+            BigInteger product = BigInteger.ONE;
+            for (long factor : PrimeFactorizer.factorize(num)) {
+                assertThat(BigInteger.valueOf(factor).isProbablePrime(64), is(true));
+                product = product.multiply(BigInteger.valueOf(factor));
+            }
+            assertThat(product.longValue(), is(num));
+        }
+    }
+
+    @Test
+    public void gcd() throws Exception {
+        assertThat(PrimeFactorizer.gcd(0L, 12L), is(12L));
+        assertThat(PrimeFactorizer.gcd(12L, 18L), is(6L));
+        assertThat(PrimeFactorizer.gcd(17L, 4L), is(1L));
+        assertThat(PrimeFactorizer.gcd(1L << 40, 3L << 20), is(1L << 20));
+    }
+
+    //region Negative Test Cases
+    @Test(expected = IllegalArgumentException.class)
+    public void factorizeZero() throws Exception {
+        PrimeFactorizer.factorize(0L);
+    }
+    //region end
+}
@@ -2,6 +2,9 @@ package com.primeservice.util;
 
 import org.junit.Test;
 
+import java.math.BigInteger;
+import java.util.Random;
+
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
@@ -26,6 +29,54 @@ public class PrimeNumberUtilTest {
     }
 
 
+    @Test
+    public void isPrimeMatchesTrialDivision() throws Exception {
+        for (long num = -5; num < 200000; num++) {
+            assertThat(PrimeNumberUtil.isPrime(num), is(PrimeNumberUtil.isPrimeByTrialDivision(num)));
+        }
+    }
+
+    @Test
+    public void isPrimeLargeNumbers() throws Exception {
+        assertThat(PrimeNumberUtil.isPrime(9223372036854775783L), is(true));
+        assertThat(PrimeNumberUtil.isPrime(2305843009213693951L), is(true));
+        assertThat(PrimeNumberUtil.isPrime(Long.MAX_VALUE), is(false));
+        assertThat(PrimeNumberUtil.isPrime(4611686014132420609L), is(false));
+        //Carmichael number and strong pseudoprimes to several small bases.
+        assertThat(PrimeNumberUtil.isPrime(561L), is(false));
+        assertThat(PrimeNumberUtil.isPrime(3215031751L), is(false));
+        assertThat(PrimeNumberUtil.isPrime(3825123056546413051L), is(false));
+    }
+
+    @Test
+    public void isPrimeMatchesBigInteger() throws Exception {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 20000; i++) {
+            final long num = random.nextLong() >>> (1 + random.nextInt(62));
+            assertThat(PrimeNumberUtil.isPrime(num), is(BigInteger.valueOf(num).isProbablePrime(64)));
+        }
+        for (int bits = 20; bits < 64; bits++) {
+            final BigInteger prime = BigInteger.probablePrime(bits, random);
+            assertThat(PrimeNumberUtil.isPrime(prime.longValue()), is(true));
+            if (bits < 32) {
+                assertThat(PrimeNumberUtil.isPrime(prime.multiply(prime).longValue()), is(false));
+            }
+        }
+    }
+
+    @Test
+    public void unsignedMultiplyHigh() throws Exception {
+        final Random random = new Random(7L);
+        final BigInteger unsignedMask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int i = 0; i < 10000; i++) {
+            final long a = random.nextLong();
+            final long b = random.nextLong();
+            final long expected = BigInteger.valueOf(a).and(unsignedMask)
+                    .multiply(BigInteger.valueOf(b).and(unsignedMask)).shiftRight(64).longValue();
+            assertThat(PrimeNumberUtil.unsignedMultiplyHigh(a, b), is(expected));
+        }
+    }
+
     @Test
     public void getFlooredSquareRoot() throws Exception {
         assertThat(PrimeNumberUtil.getFlooredSquareRoot(2), is(1L));
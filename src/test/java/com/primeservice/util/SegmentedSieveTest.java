@@ -0,0 +1,110 @@
+package com.primeservice.util;
+
+import com.primeservice.exception.InvalidInputException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Test for {@link SegmentedSieve}
+ */
+public class SegmentedSieveTest {
+
+    @Test
+    public void getPrimeNumbersBasic() throws Exception {
+        assertThat(SegmentedSieve.getPrimeNumbers(1, 10), is(trialDivision(1, 10)));
+        assertThat(SegmentedSieve.getPrimeNumbers(2, 2), is(trialDivision(2, 2)));
+        assertThat(SegmentedSieve.getPrimeNumbers(3, 3), is(trialDivision(3, 3)));
+        assertThat(SegmentedSieve.getPrimeNumbers(8, 10), is(trialDivision(8, 10)));
+    }
+
+    @Test
+    public void getPrimeNumbersMatchesTrialDivision() throws Exception {
+        //Ranges with odd and even boundaries which span several segments.
+        assertThat(SegmentedSieve.getPrimeNumbers(1, 1500000), is(trialDivision(1, 1500000)));
+        assertThat(SegmentedSieve.getPrimeNumbers(524287, 1048577), is(trialDivision(524287, 1048577)));
+        assertThat(SegmentedSieve.getPrimeNumbers(1000000000L, 1000200000L),
+                is(trialDivision(1000000000L, 1000200000L)));
+    }
+
+    @Test
+    public void getPrimeNumbersMatchesTrialDivisionForManyWindows() throws Exception {
+        for (long start = 1; start < 5000; start += 37) {
+            assertThat(SegmentedSieve.getPrimeNumbers(start, start + 211), is(trialDivision(start, start + 211)));
+        }
+    }
+
+    @Test
+    public void getPrimeNumbersLargeWindow() throws Exception {
+        final long start = 1000000000000L;
+        assertThat(SegmentedSieve.getPrimeNumbers(start, start + 2000), is(trialDivision(start, start + 2000)));
+    }
+
+    @Test
+    public void getPrimeNumbersEmptyRanges() throws Exception {
+        assertThat(SegmentedSieve.getPrimeNumbers(1, 1).size(), is(0));
+        assertThat(SegmentedSieve.getPrimeNumbers(-10, 1).size(), is(0));
+        assertThat(SegmentedSieve.getPrimeNumbers(24, 28).size(), is(0));
+        assertThat(SegmentedSieve.getPrimeNumbers(10, 5).size(), is(0));
+    }
+
+    @Test
+    public void largeBasePrimesAreNotShared() throws Exception {
+        //Given
+        final long start = 100000000000000L;
+
+        //When
+        final List<Long> primes = SegmentedSieve.getPrimeNumbers(start, start + 2000);
+
+        //Then
+        assertThat(primes, is(trialDivision(start, start + 2000)));
+        assertThat(SegmentedSieve.getBasePrimesLimit() <= SegmentedSieve.MAX_SHARED_BASE_PRIME_LIMIT, is(true));
+    }
+
+    @Test
+    public void largeBasePrimesAreSegmented() throws Exception {
+        //When
+        final long[] basePrimes = SegmentedSieve.getBasePrimes(5000000L);
+
+        //Then
+        //There are 348513 primes up to 5 * 10^6, of which 2 is not a base prime.
+        assertThat(-Arrays.binarySearch(basePrimes, 5000000L) - 1, is(348512));
+        assertThat(basePrimes[0], is(3L));
+    }
+
+    //region Negative Test Cases
+    @Test(expected = InvalidInputException.class)
+    public void rangeBeyondMaxValueIsRejected() throws Exception {
+        SegmentedSieve.getPrimeNumbers(SegmentedSieve.MAX_VALUE, SegmentedSieve.MAX_VALUE + 1L);
+    }
+
+    @Test(expected = InvalidInputException.class)
+    public void basePrimesBeyondTheLimitAreRejected() throws Exception {
+        SegmentedSieve.getBasePrimes(SegmentedSieve.MAX_BASE_PRIME_LIMIT + 1L);
+    }
+    //region end
+
+    //region Edge Cases
+    @Test
+    public void rangeEndsAtMaxValue() throws Exception {
+        final long start = SegmentedSieve.MAX_VALUE - 100L;
+        assertThat(SegmentedSieve.getPrimeNumbers(start, SegmentedSieve.MAX_VALUE),
+                is(trialDivision(start, SegmentedSieve.MAX_VALUE)));
+    }
+    //region end
+
+    private static List<Long> trialDivision(long startRange, long endRange) {
+        final List<Long> primes = new ArrayList<>();
+        for (long primeCandidate = startRange; primeCandidate <= endRange; primeCandidate++) {
+            if (PrimeNumberUtil.isPrimeByTrialDivision(primeCandidate)) {
+                primes.add(primeCandidate);
+            }
+        }
+        return primes;
+    }
+}